@@ -0,0 +1,155 @@
+package bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bench.DigraphBenchmarks;
+import digraph.DLinkedList;
+import digraph.PQItem;
+import digraph.PQueue;
+
+/**
+ * Benchmarks of PQueue and DLinkedList. The queue benchmarks change OPS elements of a queue of
+ * size elements per invocation and restore the size unmeasured, so the scores are per operation.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionBenchmarks {
+
+    /**
+     * Queue operations per invocation.
+     */
+    static final int OPS = 256;
+
+    @State(Scope.Thread)
+    public static class Queue {
+        @Param({ "1000", "100000" })
+        public int size;
+
+        PQueue<Double> m_queue;
+        PQItem[] m_items;
+        double[] m_keys;
+        int[] m_order;
+        double[] m_removed = new double[OPS];
+
+        @Setup(Level.Trial)
+        public void setup() {
+            if (size < OPS)
+                throw new IllegalArgumentException("size must be at least " + OPS);
+            m_keys = DigraphBenchmarks.randomDoubles(size + OPS, GraphState.SEED);
+            m_order = DigraphBenchmarks.permutation(size, GraphState.SEED);
+            m_queue = new PQueue<>((a, b) -> Double.compare(a, b));
+            m_items = new PQItem[size];
+            for (int i = 0; i < size; i++) {
+                m_items[i] = m_queue.add(m_keys[i]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AddState extends Queue {
+        /**
+         * Keeps the size of the queue, the minima are removed instead of the added elements.
+         */
+        @TearDown(Level.Invocation)
+        public void revert() {
+            for (int i = 0; i < OPS; i++) {
+                m_queue.removeMin();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RemoveMinState extends Queue {
+        @TearDown(Level.Invocation)
+        public void revert() {
+            for (int i = 0; i < OPS; i++) {
+                m_queue.add(m_removed[i]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UpdateDataState extends Queue {
+        @TearDown(Level.Invocation)
+        public void revert() {
+            for (int i = 0; i < OPS; i++) {
+                PQItem item = m_items[m_order[i]];
+                m_queue.updateData(item, m_queue.getData(item)*2);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ListState {
+        @Param({ "1000", "100000" })
+        public int size;
+
+        DLinkedList<Integer> m_list;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            m_list = new DLinkedList<>();
+            for (int i = 0; i < size; i++) {
+                m_list.add(i);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public void pqueueAdd(AddState s, Blackhole bh) {
+        for (int i = 0; i < OPS; i++) {
+            bh.consume(s.m_queue.add(s.m_keys[s.size + i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public void pqueueRemoveMin(RemoveMinState s) {
+        for (int i = 0; i < OPS; i++) {
+            s.m_removed[i] = s.m_queue.removeMin();
+        }
+    }
+
+    /**
+     * Halves the value of OPS elements, they move towards the root.
+     */
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public void pqueueUpdateData(UpdateDataState s) {
+        for (int i = 0; i < OPS; i++) {
+            PQItem item = s.m_items[s.m_order[i]];
+            s.m_queue.updateData(item, s.m_queue.getData(item)/2);
+        }
+    }
+
+    @Benchmark
+    public long dlinkedListIteration(ListState s) {
+        long sum = 0;
+        for (Integer x : s.m_list) {
+            sum += x;
+        }
+        return sum;
+    }
+}
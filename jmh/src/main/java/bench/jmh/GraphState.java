@@ -0,0 +1,39 @@
+package bench.jmh;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import bench.GraphGenerator;
+import bench.GraphGenerator.EdgeList;
+import bench.GraphGenerator.Shape;
+import digraph.Digraph;
+
+/**
+ * Synthetic graph shared by all threads of a benchmark. The parameters are named for the command
+ * line, e.g. -p shape=grid -p edges=10000000.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+
+    static final long SEED = 42;
+
+    @Param({ "random", "powerLaw", "grid" })
+    public Shape shape;
+
+    @Param({ "1000", "100000" })
+    public int edges;
+
+    EdgeList m_edges;
+    Digraph<Integer, Integer> m_graph;
+
+    @Setup(Level.Trial)
+    public void create() {
+        m_edges = GraphGenerator.create(shape, edges, SEED);
+        m_graph = m_edges.toGraph();
+    }
+}
@@ -0,0 +1,154 @@
+package bench.jmh;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bench.DigraphBenchmarks;
+import bench.GraphGenerator.EdgeList;
+import digraph.Digraph;
+
+/**
+ * Benchmarks of the changes of a Digraph. An invocation applies OPS changes to its own copy of the
+ * graph, the tear down reverts them unmeasured, so every invocation starts on the same graph and
+ * the scores are per change.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutationBenchmarks {
+
+    /**
+     * Edges added or removed per invocation.
+     */
+    static final int OPS = 256;
+
+    /**
+     * Vertices removed per invocation.
+     */
+    static final int VERTEX_OPS = 16;
+
+    @State(Scope.Thread)
+    public static class AddEdgeState {
+        Digraph<Integer, Integer> m_graph;
+        int m_firstKey;
+        int[] m_origins;
+        int[] m_destinations;
+
+        @Setup(Level.Trial)
+        public void setup(GraphState state) {
+            m_graph = state.m_edges.toGraph();
+            m_firstKey = state.m_edges.size();
+            m_origins = DigraphBenchmarks.randomInts(OPS, state.m_edges.n, GraphState.SEED);
+            m_destinations = DigraphBenchmarks.randomInts(OPS, state.m_edges.n, GraphState.SEED + 1);
+        }
+
+        @TearDown(Level.Invocation)
+        public void revert() {
+            for (int i = 0; i < OPS; i++) {
+                m_graph.removeEdge(m_firstKey + i);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RemoveEdgeState {
+        EdgeList m_edges;
+        Digraph<Integer, Integer> m_graph;
+        int[] m_keys;
+
+        @Setup(Level.Trial)
+        public void setup(GraphState state) {
+            if (state.m_edges.size() < OPS)
+                throw new IllegalArgumentException("at least " + OPS + " edges needed");
+            m_edges = state.m_edges;
+            m_graph = m_edges.toGraph();
+            m_keys = DigraphBenchmarks.permutation(m_edges.size(), GraphState.SEED);
+        }
+
+        @TearDown(Level.Invocation)
+        public void revert() {
+            for (int i = 0; i < OPS; i++) {
+                int e = m_keys[i];
+                m_graph.addEdge(e, m_edges.weights[e], m_edges.origins[e], m_edges.destinations[e]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RemoveVertexState {
+        EdgeList m_edges;
+        Digraph<Integer, Integer> m_graph;
+        int[] m_vertices;
+        /**
+         * Edges incident to the removed vertices, added again by the tear down.
+         */
+        int[] m_incident;
+
+        @Setup(Level.Trial)
+        public void setup(GraphState state) {
+            if (state.m_edges.n < VERTEX_OPS)
+                throw new IllegalArgumentException("at least " + VERTEX_OPS + " vertices needed");
+            m_edges = state.m_edges;
+            m_graph = m_edges.toGraph();
+            m_vertices = DigraphBenchmarks.permutation(m_edges.n, GraphState.SEED);
+            Set<Integer> incident = new HashSet<>();
+            for (int i = 0; i < VERTEX_OPS; i++) {
+                incident.addAll(m_graph.getAllEdgesOfVertex(m_vertices[i]));
+            }
+            m_incident = incident.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        @TearDown(Level.Invocation)
+        public void revert() {
+            for (int i = 0; i < VERTEX_OPS; i++) {
+                m_graph.addVertex(m_vertices[i]);
+            }
+            for (int e : m_incident) {
+                m_graph.addEdge(e, m_edges.weights[e], m_edges.origins[e], m_edges.destinations[e]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public void addEdge(AddEdgeState s) {
+        for (int i = 0; i < OPS; i++) {
+            s.m_graph.addEdge(s.m_firstKey + i, 1.0, s.m_origins[i], s.m_destinations[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public void removeEdge(RemoveEdgeState s) {
+        for (int i = 0; i < OPS; i++) {
+            s.m_graph.removeEdge(s.m_keys[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VERTEX_OPS)
+    public void removeVertex(RemoveVertexState s) {
+        for (int i = 0; i < VERTEX_OPS; i++) {
+            s.m_graph.removeVertex(s.m_vertices[i]);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package bench.jmh;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bench.DigraphBenchmarks;
+import digraph.DfsResult;
+
+/**
+ * Benchmarks of the read paths of a Digraph. The graph is shared, every thread walks through its
+ * own sequence of start vertices.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Vertices {
+        int[] m_vertices;
+        int m_next;
+
+        @Setup(Level.Trial)
+        public void setup(GraphState state) {
+            m_vertices = DigraphBenchmarks.randomInts(1024, state.m_edges.n, GraphState.SEED);
+        }
+
+        int next() {
+            int v = m_vertices[m_next];
+            m_next = (m_next + 1) % m_vertices.length;
+            return v;
+        }
+    }
+
+    @Benchmark
+    public Set<Integer> getLeavingEdgesOfVertex(GraphState state, Vertices vertices) {
+        return state.m_graph.getLeavingEdgesOfVertex(vertices.next());
+    }
+
+    @Benchmark
+    public HashMap<Integer, Double> dijkstra(GraphState state, Vertices vertices) {
+        return state.m_graph.dijkstra(vertices.next());
+    }
+
+    @Benchmark
+    public DfsResult<Integer, Integer> depthFirstSearch(GraphState state) {
+        return state.m_graph.depthFirstSearch();
+    }
+}
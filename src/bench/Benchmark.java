@@ -0,0 +1,219 @@
+package bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal micro benchmark harness. A measured iteration is timed as one batch and reported as
+ * throughput and mean time per operation. Only if the last warmup iteration shows that an operation
+ * takes at least LATENCY_THRESHOLD_NS, the operations are timed one by one and the latency percentiles are
+ * reported; for faster operations the overhead and granularity of the clock would dominate. The
+ * allocation rate is measured with the per thread allocation counter of the JVM, the garbage
+ * collector activity with the GC MXBeans.
+ *
+ * The harness runs without any libraries, start a suite like DigraphBenchmarks from the command
+ * line.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ */
+public class Benchmark {
+
+    /**
+     * A benchmarked operation. setup() is called before every iteration and is not measured,
+     * afterwards run(i) is measured for i = 0..operations()-1.
+     */
+    public static abstract class Case {
+        private final String m_name;
+
+        public Case(String name) {
+            m_name = name;
+        }
+
+        public String getName() {
+            return m_name;
+        }
+
+        /**
+         * Prepares the next iteration. Not measured.
+         */
+        public void setup() {
+        }
+
+        /**
+         *
+         * @return number of operations per iteration
+         */
+        public abstract int operations();
+
+        /**
+         * Runs the i-th operation of an iteration.
+         * @param i
+         */
+        public abstract void run(int i);
+    }
+
+    /**
+     * Output stream that discards everything. Used to silence algorithms printing to System.out.
+     */
+    public static final PrintStream NULL_OUT = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    /**
+     * Minimum mean time of an operation in ns to time the operations one by one.
+     */
+    public static final long LATENCY_THRESHOLD_NS = 1000;
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final int m_warmup;
+    private final int m_iterations;
+
+    /**
+     * Used to keep results of operations alive, so the JIT cannot remove them.
+     */
+    public static volatile Object s_sink;
+
+    /**
+     * @param warmup number of unmeasured iterations
+     * @param iterations number of measured iterations
+     */
+    public Benchmark(int warmup, int iterations) {
+        m_warmup = warmup;
+        m_iterations = iterations;
+    }
+
+    /**
+     * Prints the header of the result table.
+     */
+    public static void printHeader(PrintStream out) {
+        out.printf("%-40s %10s %14s %10s %10s %10s %10s %12s %12s %10s %6s%n", "benchmark", "size", "ops/s",
+                "ns/op", "p50 ns", "p90 ns", "p99 ns", "max ns", "B/op", "MB/s", "gc");
+    }
+
+    /**
+     * Runs the given case and prints one row of the result table. The percentiles are printed as
+     * "-" for operations faster than LATENCY_THRESHOLD_NS.
+     * @param c case to run
+     * @param size problem size, only printed
+     * @param out
+     */
+    public void run(Case c, long size, PrintStream out) {
+        PrintStream stdout = System.out;
+        try {
+            // mean time of an operation in the last warmup iteration
+            long warmupTime = 0;
+            for (int it = 0; it < m_warmup; it++) {
+                c.setup();
+                System.setOut(NULL_OUT);
+                warmupTime = measure(c, null, 0) / Math.max(c.operations(), 1);
+                System.setOut(stdout);
+            }
+
+            final int ops = c.operations();
+            final boolean timeEach = warmupTime >= LATENCY_THRESHOLD_NS;
+            long[] latencies = timeEach ? new long[ops * m_iterations] : null;
+            long time = 0;
+            long bytes = 0;
+            long gcCount = gcCount();
+            for (int it = 0; it < m_iterations; it++) {
+                c.setup();
+                long allocated = allocatedBytes();
+                System.setOut(NULL_OUT);
+                time += measure(c, latencies, it * ops);
+                System.setOut(stdout);
+                bytes += allocatedBytes() - allocated;
+            }
+            gcCount = gcCount() - gcCount;
+
+            String[] p = { "-", "-", "-", "-" };
+            if (latencies != null && latencies.length > 0) {
+                Arrays.sort(latencies);
+                p[0] = Long.toString(percentile(latencies, 0.5));
+                p[1] = Long.toString(percentile(latencies, 0.9));
+                p[2] = Long.toString(percentile(latencies, 0.99));
+                p[3] = Long.toString(latencies[latencies.length - 1]);
+            }
+            final long total = Math.max((long) ops * m_iterations, 1);
+            out.printf("%-40s %10d %14.1f %10.1f %10s %10s %10s %12s %12.1f %10.1f %6d%n", c.getName(), size,
+                    total * 1e9 / time, (double) time / total, p[0], p[1], p[2], p[3], (double) bytes / total,
+                    bytes * 1e3 / time, gcCount);
+        } catch (StackOverflowError e) {
+            System.setOut(stdout);
+            out.printf("%-40s %10d %s%n", c.getName(), size, "failed: StackOverflowError");
+        }
+    }
+
+    /**
+     * Runs all cases with the same size.
+     */
+    public void run(List<Case> cases, long size, PrintStream out) {
+        for (Case c : cases) {
+            run(c, size, out);
+        }
+    }
+
+    /**
+     * Runs one iteration, as one batch or with every operation timed on its own.
+     * @param latencies receives the time of each operation, null to time the iteration as a whole
+     * @return measured time in ns
+     */
+    private static long measure(Case c, long[] latencies, int offset) {
+        final int ops = c.operations();
+        if (latencies == null) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ops; i++) {
+                c.run(i);
+            }
+            return Math.max(System.nanoTime() - start, 1);
+        }
+        long time = 0;
+        for (int i = 0; i < ops; i++) {
+            long start = System.nanoTime();
+            c.run(i);
+            long t = System.nanoTime() - start;
+            time += t;
+            latencies[offset + i] = t;
+        }
+        return Math.max(time, 1);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            return bean.isThreadAllocatedMemorySupported() ? bean : null;
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @return bytes allocated by the current thread so far, 0 if not supported by the JVM
+     */
+    private static long allocatedBytes() {
+        return (THREADS == null) ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,905 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.ToDoubleBiFunction;
+import java.util.stream.IntStream;
+
+import bench.GraphGenerator.EdgeList;
+import bench.GraphGenerator.Shape;
+import digraph.CompactDigraph;
+import digraph.ConcurrentDigraph;
+import digraph.ContractionHierarchy;
+import digraph.DLinkedList;
+import digraph.DeltaStepping;
+import digraph.Digraph;
+import digraph.DijkstraEngine;
+import digraph.EdgeConsumer;
+import digraph.EdgeCursor;
+import digraph.EdgeListImporter;
+import digraph.GraphBuilder;
+import digraph.IndexedDigraph;
+import digraph.KeyCodec;
+import digraph.LandmarkIndex;
+import digraph.MappedDigraph;
+import digraph.MutationJournal;
+import digraph.PQItem;
+import digraph.PQueue;
+import digraph.VersionedDigraph;
+
+/**
+ * Benchmarks of the hot paths of Digraph, DLinkedList and PQueue on synthetic graphs.
+ *
+ * Usage: java bench.DigraphBenchmarks [-w warmup] [-i iterations] [-shape random|powerLaw|grid]
+ * [edges...]
+ *
+ * Without arguments all shapes are run with 10^3, 10^4 and 10^5 edges. Larger sizes up to 10^7
+ * edges need a bigger heap (e.g. -Xmx8g).
+ *
+ * The JMH benchmarks in the module jmh cover the main hot paths in forked JVMs; this suite needs
+ * no libraries and covers every structure of the package.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ */
+public class DigraphBenchmarks {
+
+    private static final long SEED = 42;
+
+    public static void main(String[] args) {
+        int warmup = 3;
+        int iterations = 5;
+        List<Shape> shapes = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-w")) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-i")) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-shape")) {
+                shapes.add(Shape.valueOf(args[++i]));
+            } else {
+                sizes.add((int) Double.parseDouble(args[i]));
+            }
+        }
+        if (shapes.isEmpty())
+            Collections.addAll(shapes, Shape.values());
+        if (sizes.isEmpty())
+            Collections.addAll(sizes, 1000, 10000, 100000);
+
+        Benchmark bench = new Benchmark(warmup, iterations);
+        Benchmark.printHeader(System.out);
+        for (Shape shape : shapes) {
+            for (int m : sizes) {
+                EdgeList edges = GraphGenerator.create(shape, m, SEED);
+                bench.run(cases(shape.name(), edges), edges.size(), System.out);
+            }
+        }
+    }
+
+    /**
+     * Creates all benchmark cases for the given graph.
+     * @param prefix prepended to the case names
+     * @param edges
+     */
+    public static List<Benchmark.Case> cases(String prefix, final EdgeList edges) {
+        final int n = edges.n;
+        final int m = edges.size();
+        final Digraph<Integer, Integer> graph = edges.toGraph();
+        final int[] sources = randomInts(16, n, SEED);
+        final int[] targets = randomInts(16, n, SEED + 1);
+        List<Benchmark.Case> cases = new ArrayList<>();
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.addEdge") {
+            private Digraph<Integer, Integer> g;
+
+            @Override
+            public void setup() {
+                g = edges.emptyGraph();
+            }
+
+            @Override
+            public int operations() {
+                return m;
+            }
+
+            @Override
+            public void run(int i) {
+                g.addEdge(i, edges.weights[i], edges.origins[i], edges.destinations[i]);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " ConcurrentDigraph.addEdge") {
+            private ConcurrentDigraph<Integer, Integer> g;
+
+            @Override
+            public void setup() {
+                g = emptyConcurrentGraph(edges);
+            }
+
+            @Override
+            public int operations() {
+                return m;
+            }
+
+            @Override
+            public void run(int i) {
+                g.addEdge(i, edges.weights[i], edges.origins[i], edges.destinations[i]);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " VersionedDigraph.addEdge") {
+            private VersionedDigraph<Integer, Integer> g;
+
+            @Override
+            public void setup() {
+                g = new VersionedDigraph<>();
+                for (int v = 0; v < n; v++) {
+                    g.addVertex(v);
+                }
+            }
+
+            @Override
+            public int operations() {
+                return m;
+            }
+
+            @Override
+            public void run(int i) {
+                g.addEdge(i, edges.weights[i], edges.origins[i], edges.destinations[i]);
+            }
+        });
+
+        // complete loads of all vertices and edges, one operation loads the whole graph
+        final Integer[] vertexKeys = boxedRange(n);
+        final Integer[] edgeKeys = boxedRange(m);
+        final Integer[] origins = boxed(edges.origins).toArray(new Integer[m]);
+        final Integer[] destinations = boxed(edges.destinations).toArray(new Integer[m]);
+        cases.add(new Benchmark.Case(prefix + " load Digraph.addEdge") {
+            @Override
+            public int operations() {
+                return 1;
+            }
+
+            @Override
+            public void run(int i) {
+                Digraph<Integer, Integer> g = new Digraph<>();
+                for (Integer v : vertexKeys) {
+                    g.addVertex(v);
+                }
+                for (int e = 0; e < m; e++) {
+                    g.addEdge(edgeKeys[e], edges.weights[e], origins[e], destinations[e]);
+                }
+                Benchmark.s_sink = g;
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " load GraphBuilder.build") {
+            @Override
+            public int operations() {
+                return 1;
+            }
+
+            @Override
+            public void run(int i) {
+                Benchmark.s_sink = new GraphBuilder<Integer, Integer>().addVertices(vertexKeys)
+                        .addEdges(edgeKeys, edges.weights, origins, destinations).build();
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " load VersionedDigraph.batch") {
+            @Override
+            public int operations() {
+                return 1;
+            }
+
+            @Override
+            public void run(int i) {
+                VersionedDigraph<Integer, Integer> g = new VersionedDigraph<>();
+                g.batch().addVertices(vertexKeys).addEdges(edgeKeys, edges.weights, origins, destinations).apply();
+                Benchmark.s_sink = g;
+            }
+        });
+
+        // the edges from a text file, compare with load GraphBuilder.build for the parsing cost
+        final File edgeFile = edgeListFile(edges);
+        for (int p = 1; ; p *= 2) {
+            final int parallelism = Math.min(p, Runtime.getRuntime().availableProcessors());
+            cases.add(new Benchmark.Case(prefix + " load EdgeListImporter p=" + parallelism) {
+                private final EdgeListImporter importer =
+                        new EdgeListImporter(EdgeListImporter.Format.EDGE_LIST, new ForkJoinPool(parallelism));
+
+                @Override
+                public int operations() {
+                    return 1;
+                }
+
+                @Override
+                public void run(int i) {
+                    Digraph<Integer, Integer> g = new Digraph<>();
+                    try {
+                        importer.importFile(edgeFile, g);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    Benchmark.s_sink = g;
+                }
+            });
+            if (parallelism == Runtime.getRuntime().availableProcessors())
+                break;
+        }
+
+        // all edges added by parallel writers, one operation adds m edges
+        for (int p = 1; ; p *= 2) {
+            final int parallelism = Math.min(p, Runtime.getRuntime().availableProcessors());
+            cases.add(new Benchmark.Case(prefix + " ConcurrentDigraph ingest p=" + parallelism) {
+                private final ForkJoinPool pool = new ForkJoinPool(parallelism);
+                private ConcurrentDigraph<Integer, Integer> g;
+
+                @Override
+                public void setup() {
+                    g = emptyConcurrentGraph(edges);
+                }
+
+                @Override
+                public int operations() {
+                    return 1;
+                }
+
+                @Override
+                public void run(int i) {
+                    pool.submit(() -> IntStream.range(0, m).parallel()
+                            .forEach(e -> g.addEdge(e, edges.weights[e], edges.origins[e], edges.destinations[e])))
+                            .join();
+                }
+            });
+            if (parallelism == Runtime.getRuntime().availableProcessors())
+                break;
+        }
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.removeEdge") {
+            private final int[] order = permutation(m, SEED);
+            private Digraph<Integer, Integer> g;
+
+            @Override
+            public void setup() {
+                g = edges.toGraph();
+            }
+
+            @Override
+            public int operations() {
+                return m;
+            }
+
+            @Override
+            public void run(int i) {
+                g.removeEdge(order[i]);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.removeVertex") {
+            private final int[] order = permutation(n, SEED);
+            private Digraph<Integer, Integer> g;
+
+            @Override
+            public void setup() {
+                g = edges.toGraph();
+            }
+
+            @Override
+            public int operations() {
+                return Math.min(n, 10000);
+            }
+
+            @Override
+            public void run(int i) {
+                g.removeVertex(order[i]);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.clone") {
+            @Override
+            public int operations() {
+                return 1;
+            }
+
+            @Override
+            public void run(int i) {
+                Benchmark.s_sink = graph.clone();
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " Digraph serialization round trip") {
+            @Override
+            public int operations() {
+                return 1;
+            }
+
+            @Override
+            public void run(int i) {
+                Benchmark.s_sink = roundTrip(graph);
+            }
+        });
+
+        // one operation changes 1000 weights and commits them, compare with the round trip above
+        cases.add(new Benchmark.Case(prefix + " MutationJournal.commit 1000 changes") {
+            private final Digraph<Integer, Integer> g = new Digraph<>();
+            private final MutationJournal<Integer, Integer> journal = journal(g, edges);
+            private final int[] changed = randomInts(1000, m, SEED);
+
+            @Override
+            public int operations() {
+                return 1;
+            }
+
+            @Override
+            public void run(int i) {
+                for (int e : changed) {
+                    g.setEdgeWeight(e, i);
+                }
+                try {
+                    journal.commit();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.getLeavingEdgesOfVertex") {
+            @Override
+            public int operations() {
+                return Math.min(n, 100000);
+            }
+
+            @Override
+            public void run(int i) {
+                Benchmark.s_sink = graph.getLeavingEdgesOfVertex(i);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.forEachOutgoing") {
+            private final double[] sum = new double[1];
+            private final EdgeConsumer<Integer, Integer> consumer = (e, o, d, w) -> sum[0] += w;
+
+            @Override
+            public int operations() {
+                return Math.min(n, 100000);
+            }
+
+            @Override
+            public void run(int i) {
+                graph.forEachOutgoing(i, consumer);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.EdgeCursor") {
+            private final EdgeCursor<Integer, Integer> cursor = graph.newEdgeCursor();
+            private double sum;
+
+            @Override
+            public int operations() {
+                return Math.min(n, 100000);
+            }
+
+            @Override
+            public void run(int i) {
+                cursor.resetOutgoing(i);
+                while (cursor.next()) {
+                    sum += cursor.getWeight();
+                }
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.dijkstra") {
+            @Override
+            public int operations() {
+                return sources.length;
+            }
+
+            @Override
+            public void run(int i) {
+                Benchmark.s_sink = graph.dijkstra(sources[i]);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " DijkstraEngine.search") {
+            private final DijkstraEngine<Integer, Integer> engine = new DijkstraEngine<>(graph.toCompact());
+            private final IndexedDigraph<Integer, Integer> compact = engine.getGraph();
+
+            @Override
+            public int operations() {
+                return sources.length;
+            }
+
+            @Override
+            public void run(int i) {
+                engine.search(compact.idOf(sources[i]));
+            }
+        });
+
+        final File file = graphFile(graph);
+        cases.add(new Benchmark.Case(prefix + " MappedDigraph.open") {
+            @Override
+            public int operations() {
+                return 1;
+            }
+
+            @Override
+            public void run(int i) {
+                Benchmark.s_sink = openGraphFile(file);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " DijkstraEngine.search mapped") {
+            private final DijkstraEngine<Integer, Integer> engine = new DijkstraEngine<>(openGraphFile(file));
+            private final IndexedDigraph<Integer, Integer> mapped = engine.getGraph();
+
+            @Override
+            public int operations() {
+                return sources.length;
+            }
+
+            @Override
+            public void run(int i) {
+                engine.search(mapped.idOf(sources[i]));
+            }
+        });
+
+        // single source searches, compare with DijkstraEngine.search for the speedup per core count
+        for (int p = 1; ; p *= 2) {
+            final int parallelism = Math.min(p, Runtime.getRuntime().availableProcessors());
+            cases.add(new Benchmark.Case(prefix + " DeltaStepping p=" + parallelism) {
+                private final CompactDigraph<Integer, Integer> compact = graph.toCompact();
+                private final DeltaStepping<Integer, Integer> search =
+                        new DeltaStepping<>(compact, new ForkJoinPool(parallelism));
+
+                @Override
+                public int operations() {
+                    return sources.length;
+                }
+
+                @Override
+                public void run(int i) {
+                    Benchmark.s_sink = search.distances(compact.idOf(sources[i]));
+                }
+            });
+            if (parallelism == Runtime.getRuntime().availableProcessors())
+                break;
+        }
+
+        // one pool per level of parallelism, to see how the matrix scales with the cores
+        for (int p = 1; ; p *= 2) {
+            final int parallelism = Math.min(p, Runtime.getRuntime().availableProcessors());
+            cases.add(new Benchmark.Case(prefix + " distanceMatrix 64x64 p=" + parallelism) {
+                private final ForkJoinPool pool = new ForkJoinPool(parallelism);
+                private final CompactDigraph<Integer, Integer> compact = graph.toCompact();
+                private final List<Integer> ends = boxed(randomInts(64, n, SEED));
+
+                @Override
+                public int operations() {
+                    return 1;
+                }
+
+                @Override
+                public void run(int i) {
+                    Benchmark.s_sink = compact.distanceMatrix(ends, ends, pool);
+                }
+            });
+            if (parallelism == Runtime.getRuntime().availableProcessors())
+                break;
+        }
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.shortestPath") {
+            @Override
+            public int operations() {
+                return sources.length;
+            }
+
+            @Override
+            public void run(int i) {
+                Benchmark.s_sink = graph.shortestPath(sources[i], targets[i]);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.bidirectionalShortestPath") {
+            @Override
+            public int operations() {
+                return sources.length;
+            }
+
+            @Override
+            public void run(int i) {
+                Benchmark.s_sink = graph.bidirectionalShortestPath(sources[i], targets[i]);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " DijkstraEngine.search(s,t)") {
+            private final DijkstraEngine<Integer, Integer> engine = new DijkstraEngine<>(graph.toCompact());
+            private final IndexedDigraph<Integer, Integer> compact = engine.getGraph();
+
+            @Override
+            public int operations() {
+                return sources.length;
+            }
+
+            @Override
+            public void run(int i) {
+                engine.search(compact.idOf(sources[i]), compact.idOf(targets[i]));
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " DijkstraEngine.bidirectionalSearch") {
+            private final DijkstraEngine<Integer, Integer> engine = new DijkstraEngine<>(graph.toCompact());
+            private final IndexedDigraph<Integer, Integer> compact = engine.getGraph();
+
+            @Override
+            public int operations() {
+                return sources.length;
+            }
+
+            @Override
+            public void run(int i) {
+                engine.bidirectionalSearch(compact.idOf(sources[i]), compact.idOf(targets[i]));
+            }
+        });
+
+        if (edges.cols > 0) {
+            // Manhattan distance times the smallest weight never overestimates on a grid
+            final int cols = edges.cols;
+            double min = Double.POSITIVE_INFINITY;
+            for (double w : edges.weights) {
+                min = Math.min(min, w);
+            }
+            final double minWeight = min;
+            final ToDoubleBiFunction<Integer, Integer> manhattan = (u, v) -> minWeight
+                    * (Math.abs(u/cols - v/cols) + Math.abs(u%cols - v%cols));
+
+            cases.add(new Benchmark.Case(prefix + " Digraph.astar") {
+                @Override
+                public int operations() {
+                    return sources.length;
+                }
+
+                @Override
+                public void run(int i) {
+                    Benchmark.s_sink = graph.astar(sources[i], targets[i], manhattan);
+                }
+            });
+
+            cases.add(new Benchmark.Case(prefix + " DijkstraEngine.search(s,t,h)") {
+                private final DijkstraEngine<Integer, Integer> engine = new DijkstraEngine<>(graph.toCompact());
+                private final IndexedDigraph<Integer, Integer> compact = engine.getGraph();
+                private int target;
+                private final IntToDoubleFunction h = v -> manhattan.applyAsDouble(compact.vertexOf(v), target);
+
+                @Override
+                public int operations() {
+                    return sources.length;
+                }
+
+                @Override
+                public void run(int i) {
+                    target = targets[i];
+                    engine.search(compact.idOf(sources[i]), compact.idOf(target), h);
+                }
+            });
+
+            cases.add(new Benchmark.Case(prefix + " LandmarkIndex.shortestPath") {
+                private LandmarkIndex<Integer, Integer> index;
+
+                @Override
+                public void setup() {
+                    if (index == null)
+                        index = new LandmarkIndex<>(graph, 8);
+                }
+
+                @Override
+                public int operations() {
+                    return sources.length;
+                }
+
+                @Override
+                public void run(int i) {
+                    Benchmark.s_sink = index.shortestPath(sources[i], targets[i]);
+                }
+            });
+
+            // road-like graphs only, the preprocessing of the other shapes takes too long
+            cases.add(new Benchmark.Case(prefix + " ContractionHierarchy.Query") {
+                private ContractionHierarchy<Integer, Integer>.Query query;
+
+                @Override
+                public void setup() {
+                    if (query == null)
+                        query = ContractionHierarchy.build(graph).newQuery();
+                }
+
+                @Override
+                public int operations() {
+                    return sources.length;
+                }
+
+                @Override
+                public void run(int i) {
+                    Benchmark.s_sink = query.distance(sources[i], targets[i]);
+                }
+            });
+        }
+
+        cases.add(new Benchmark.Case(prefix + " Digraph.depthFirstSearch") {
+            @Override
+            public int operations() {
+                return 2;
+            }
+
+            @Override
+            public void run(int i) {
+                graph.depthFirstSearch();
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " PQueue.add") {
+            private final double[] keys = randomDoubles(m, SEED);
+            private PQueue<Double> pq;
+
+            @Override
+            public void setup() {
+                pq = new PQueue<>((a, b) -> Double.compare(a, b));
+            }
+
+            @Override
+            public int operations() {
+                return m;
+            }
+
+            @Override
+            public void run(int i) {
+                pq.add(keys[i]);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " PQueue.removeMin") {
+            private final double[] keys = randomDoubles(m, SEED);
+            private PQueue<Double> pq;
+
+            @Override
+            public void setup() {
+                pq = new PQueue<>((a, b) -> Double.compare(a, b));
+                for (double k : keys) {
+                    pq.add(k);
+                }
+            }
+
+            @Override
+            public int operations() {
+                return m;
+            }
+
+            @Override
+            public void run(int i) {
+                Benchmark.s_sink = pq.removeMin();
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " PQueue.updateData") {
+            private final double[] keys = randomDoubles(m, SEED);
+            private final int[] order = permutation(m, SEED);
+            private PQueue<Double> pq;
+            private PQItem[] items;
+
+            @Override
+            public void setup() {
+                pq = new PQueue<>((a, b) -> Double.compare(a, b));
+                items = new PQItem[m];
+                for (int i = 0; i < m; i++) {
+                    items[i] = pq.add(keys[i]);
+                }
+            }
+
+            @Override
+            public int operations() {
+                return m;
+            }
+
+            @Override
+            public void run(int i) {
+                // halve the value, the element moves towards the root
+                PQItem item = items[order[i]];
+                pq.updateData(item, pq.getData(item)/2);
+            }
+        });
+
+        cases.add(new Benchmark.Case(prefix + " DLinkedList.iterator") {
+            private final DLinkedList<Integer> list = new DLinkedList<>();
+            {
+                for (int i = 0; i < m; i++) {
+                    list.add(i);
+                }
+            }
+
+            @Override
+            public int operations() {
+                return 10;
+            }
+
+            @Override
+            public void run(int i) {
+                long sum = 0;
+                for (Integer x : list) {
+                    sum += x;
+                }
+                Benchmark.s_sink = sum;
+            }
+        });
+
+        return cases;
+    }
+
+    public static int[] permutation(int n, long seed) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = i;
+        }
+        Random rnd = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+        return a;
+    }
+
+    /**
+     *
+     * @return a ConcurrentDigraph with all vertices of edges, but no edges
+     */
+    public static ConcurrentDigraph<Integer, Integer> emptyConcurrentGraph(EdgeList edges) {
+        ConcurrentDigraph<Integer, Integer> g = new ConcurrentDigraph<>(2*edges.n, 2*edges.size());
+        for (int v = 0; v < edges.n; v++) {
+            g.addVertex(v);
+        }
+        return g;
+    }
+
+    /**
+     *
+     * @return temporary graph file of graph, deleted on exit
+     */
+    public static File graphFile(Digraph<Integer, Integer> graph) {
+        try {
+            File file = File.createTempFile("digraph", ".graph");
+            file.deleteOnExit();
+            MappedDigraph.write(graph, file, KeyCodec.INTEGER, KeyCodec.INTEGER);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     *
+     * @return journal in a temporary directory, graph holds edges and a checkpoint afterwards
+     */
+    public static MutationJournal<Integer, Integer> journal(Digraph<Integer, Integer> graph, EdgeList edges) {
+        try {
+            File dir = Files.createTempDirectory("journal").toFile();
+            dir.deleteOnExit();
+            new File(dir, "snapshot").deleteOnExit();
+            new File(dir, "journal").deleteOnExit();
+            MutationJournal<Integer, Integer> journal =
+                    MutationJournal.open(dir, graph, KeyCodec.INTEGER, KeyCodec.INTEGER);
+            GraphBuilder<Integer, Integer> batch = graph.batch();
+            for (int v = 0; v < edges.n; v++) {
+                batch.addVertex(v);
+            }
+            for (int e = 0; e < edges.size(); e++) {
+                batch.addEdge(e, edges.weights[e], edges.origins[e], edges.destinations[e]);
+            }
+            batch.apply();
+            journal.checkpoint();
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     *
+     * @return copy of graph written and read by object streams
+     */
+    public static Object roundTrip(Digraph<Integer, Integer> graph) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(graph);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return in.readObject();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     *
+     * @return temporary file with the lines "origin destination weight" of edges
+     */
+    public static File edgeListFile(EdgeList edges) {
+        try {
+            File file = File.createTempFile("digraph", ".txt");
+            file.deleteOnExit();
+            try (Writer out = new BufferedWriter(new FileWriter(file))) {
+                for (int e = 0; e < edges.size(); e++) {
+                    out.write(edges.origins[e] + " " + edges.destinations[e] + " " + edges.weights[e] + "\n");
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static MappedDigraph<Integer, Integer> openGraphFile(File file) {
+        try {
+            return MappedDigraph.open(file, KeyCodec.INTEGER, KeyCodec.INTEGER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     *
+     * @return the Integers 0 until n-1
+     */
+    public static Integer[] boxedRange(int n) {
+        Integer[] a = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = i;
+        }
+        return a;
+    }
+
+    public static List<Integer> boxed(int[] a) {
+        List<Integer> list = new ArrayList<>(a.length);
+        for (int x : a) {
+            list.add(x);
+        }
+        return list;
+    }
+
+    public static int[] randomInts(int count, int bound, long seed) {
+        Random rnd = new Random(seed);
+        int[] a = new int[count];
+        for (int i = 0; i < count; i++) {
+            a[i] = rnd.nextInt(bound);
+        }
+        return a;
+    }
+
+    public static double[] randomDoubles(int count, long seed) {
+        Random rnd = new Random(seed);
+        double[] a = new double[count];
+        for (int i = 0; i < count; i++) {
+            a[i] = rnd.nextDouble();
+        }
+        return a;
+    }
+}
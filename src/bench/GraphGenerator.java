@@ -0,0 +1,168 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import digraph.Digraph;
+
+/**
+ * Creates synthetic graphs for the benchmarks. Vertices are the Integers 0..n-1, edges the
+ * Integers 0..m-1 with weights in [1, 100).
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ */
+public class GraphGenerator {
+
+    /**
+     * Supported graph shapes.
+     */
+    public enum Shape {
+        /** uniformly distributed endpoints */
+        random,
+        /** Chung-Lu graph with power law degree distribution (exponent 2.5) */
+        powerLaw,
+        /** square grid, every vertex is connected to its four neighbours in both directions */
+        grid
+    }
+
+    /**
+     * Edge list of a synthetic graph.
+     */
+    public static class EdgeList {
+        public final int n;
+        /**
+         * Number of columns of a grid graph, 0 for the other shapes.
+         */
+        public int cols;
+        public final int[] origins;
+        public final int[] destinations;
+        public final double[] weights;
+
+        private EdgeList(int n, int m) {
+            this.n = n;
+            origins = new int[m];
+            destinations = new int[m];
+            weights = new double[m];
+        }
+
+        public int size() {
+            return origins.length;
+        }
+
+        /**
+         *
+         * @return a graph with all vertices, but no edges
+         */
+        public Digraph<Integer, Integer> emptyGraph() {
+            Digraph<Integer, Integer> g = new Digraph<>(2*n, 2*size());
+            for (int v = 0; v < n; v++) {
+                g.addVertex(v);
+            }
+            return g;
+        }
+
+        /**
+         *
+         * @return a graph with all vertices and edges of this list
+         */
+        public Digraph<Integer, Integer> toGraph() {
+            Digraph<Integer, Integer> g = emptyGraph();
+            for (int e = 0; e < size(); e++) {
+                g.addEdge(e, weights[e], origins[e], destinations[e]);
+            }
+            return g;
+        }
+    }
+
+    /**
+     * Creates an edge list with approximately m edges and an average outdegree of 8.
+     * @param shape
+     * @param m number of edges
+     * @param seed
+     */
+    public static EdgeList create(Shape shape, int m, long seed) {
+        switch (shape) {
+        case powerLaw:
+            return powerLaw(Math.max(2, m/8), m, seed);
+        case grid:
+            int side = Math.max(2, (int) Math.sqrt(m/4.0));
+            return grid(side, side, seed);
+        default:
+            return random(Math.max(2, m/8), m, seed);
+        }
+    }
+
+    /**
+     * Graph with uniformly distributed endpoints.
+     */
+    public static EdgeList random(int n, int m, long seed) {
+        Random rnd = new Random(seed);
+        EdgeList g = new EdgeList(n, m);
+        for (int e = 0; e < m; e++) {
+            g.origins[e] = rnd.nextInt(n);
+            g.destinations[e] = rnd.nextInt(n);
+            g.weights[e] = 1 + rnd.nextInt(99);
+        }
+        return g;
+    }
+
+    /**
+     * Chung-Lu graph: the endpoints are drawn proportional to the expected degree (i+1)^(-1/1.5),
+     * which gives a power law degree distribution with exponent 2.5 and a few hub vertices.
+     */
+    public static EdgeList powerLaw(int n, int m, long seed) {
+        Random rnd = new Random(seed);
+        double[] cumulated = new double[n];
+        double sum = 0;
+        for (int v = 0; v < n; v++) {
+            sum += Math.pow(v + 1, -1/1.5);
+            cumulated[v] = sum;
+        }
+
+        EdgeList g = new EdgeList(n, m);
+        for (int e = 0; e < m; e++) {
+            g.origins[e] = draw(cumulated, rnd.nextDouble()*sum);
+            g.destinations[e] = draw(cumulated, rnd.nextDouble()*sum);
+            g.weights[e] = 1 + rnd.nextInt(99);
+        }
+        return g;
+    }
+
+    /**
+     * Grid graph with rows*cols vertices. Vertex (r, c) has the id r*cols + c.
+     */
+    public static EdgeList grid(int rows, int cols, long seed) {
+        Random rnd = new Random(seed);
+        int m = 2*(rows*(cols - 1) + cols*(rows - 1));
+        EdgeList g = new EdgeList(rows*cols, m);
+        g.cols = cols;
+        int e = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int v = r*cols + c;
+                if (c + 1 < cols) {
+                    e = addBoth(g, e, v, v + 1, 1 + rnd.nextInt(99));
+                }
+                if (r + 1 < rows) {
+                    e = addBoth(g, e, v, v + cols, 1 + rnd.nextInt(99));
+                }
+            }
+        }
+        return g;
+    }
+
+    private static int addBoth(EdgeList g, int e, int u, int v, double weight) {
+        g.origins[e] = u;
+        g.destinations[e] = v;
+        g.weights[e++] = weight;
+        g.origins[e] = v;
+        g.destinations[e] = u;
+        g.weights[e++] = weight;
+        return e;
+    }
+
+    private static int draw(double[] cumulated, double x) {
+        int i = Arrays.binarySearch(cumulated, x);
+        return Math.min(cumulated.length - 1, (i < 0) ? -i - 1 : i);
+    }
+}
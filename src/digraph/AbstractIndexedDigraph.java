@@ -0,0 +1,339 @@
+package digraph;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Read side of an IndexedDigraph implemented once on top of the id accessors, so CompactDigraph
+ * on the heap and MappedDigraph on a mapped file only provide the storage. The searches run on a
+ * DijkstraEngine that is kept per thread and reused while the thread searches the same graph.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+abstract class AbstractIndexedDigraph<V, E> implements IndexedDigraph<V, E> {
+
+    /**
+     * Engine of the last graph each thread searched, reused by the searches below. Taken out while
+     * a search runs, so a search started from a DijkstraListener gets its own engine. One slot for
+     * all graphs, so a thread keeps at most one graph reachable.
+     */
+    private static final ThreadLocal<DijkstraEngine<?, ?>> s_engine = new ThreadLocal<>();
+
+    /**
+     *
+     * @return the vertex keys by vertex id, must not be changed by the caller
+     */
+    Object[] vertexKeys() {
+        Object[] keys = new Object[getNumberOfVerts()];
+        for (int v = 0; v < keys.length; v++) {
+            keys[v] = vertexOf(v);
+        }
+        return keys;
+    }
+
+    @Override
+    public boolean containsEdge(E edge) {
+        return edgeIdOf(edge) >= 0;
+    }
+
+    @Override
+    public boolean containsEdge(V origin, V destination) {
+        int u = idOf(origin);
+        int v = idOf(destination);
+        if (u < 0 || v < 0)
+            return false;
+        for (int e = outBegin(u), end = outEnd(u); e < end; e++) {
+            if (target(e) == v)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsVertex(V vertex) {
+        return idOf(vertex) >= 0;
+    }
+
+    @Override
+    public int indegOf(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in this Graph";
+        int v = idOf(vertex);
+        return inEnd(v) - inBegin(v);
+    }
+
+    @Override
+    public int outdegOf(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in this Graph";
+        int v = idOf(vertex);
+        return outEnd(v) - outBegin(v);
+    }
+
+    @Override
+    public Set<E> getAllEdgesOfVertex(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in this Graph";
+        Set<E> edges = getLeavingEdgesOfVertex(vertex);
+        edges.addAll(getIncomingEdgesOfVertex(vertex));
+        return edges;
+    }
+
+    @Override
+    public Set<E> getLeavingEdgesOfVertex(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        int v = idOf(vertex);
+        HashSet<E> edges = new HashSet<>();
+        for (int e = outBegin(v), end = outEnd(v); e < end; e++) {
+            edges.add(edgeOf(e));
+        }
+        return edges;
+    }
+
+    @Override
+    public Set<E> getIncomingEdgesOfVertex(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        int v = idOf(vertex);
+        HashSet<E> edges = new HashSet<>();
+        for (int i = inBegin(v), end = inEnd(v); i < end; i++) {
+            edges.add(edgeOf(inEdge(i)));
+        }
+        return edges;
+    }
+
+    @Override
+    public Set<E> getEdgesBetween(V source, V destination) {
+        int u = idOf(source);
+        int v = idOf(destination);
+        HashSet<E> edges = new HashSet<>();
+        if (u < 0 || v < 0)
+            return edges;
+        for (int e = outBegin(u), end = outEnd(u); e < end; e++) {
+            if (target(e) == v)
+                edges.add(edgeOf(e));
+        }
+        return edges;
+    }
+
+    @Override
+    public V getEdgeSource(E edge) {
+        assert (containsEdge(edge)) : "Edge must be in list";
+        return vertexOf(source(edgeIdOf(edge)));
+    }
+
+    @Override
+    public V getEdgeDestination(E edge) {
+        assert (containsEdge(edge)) : "Edge must be in list";
+        return vertexOf(target(edgeIdOf(edge)));
+    }
+
+    @Override
+    public double getEdgeWeight(E edge) {
+        assert (containsEdge(edge)) : "Edge must be in list";
+        return weight(edgeIdOf(edge));
+    }
+
+    @Override
+    public void forEachOutgoing(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        int v = idOf(vertex);
+        for (int e = outBegin(v), end = outEnd(v); e < end; e++) {
+            consumer.accept(edgeOf(e), vertex, vertexOf(target(e)), weight(e));
+        }
+    }
+
+    @Override
+    public void forEachIncoming(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        int v = idOf(vertex);
+        for (int i = inBegin(v), end = inEnd(v); i < end; i++) {
+            consumer.accept(edgeOf(inEdge(i)), vertexOf(inSource(i)), vertex, inWeight(i));
+        }
+    }
+
+    @Override
+    public EdgeCursor<V, E> newEdgeCursor() {
+        return new CsrCursor();
+    }
+
+    @Override
+    public ShortestPathTree<V, E> shortestPathTree(V origin, DijkstraListener<? super V, ? super E> listener) {
+        assert (containsVertex(origin)) : "Vertex must be in this Graph";
+        DijkstraEngine<V, E> engine = takeEngine();
+        try {
+            return engine.shortestPathTree(origin, listener);
+        } finally {
+            s_engine.set(engine);
+        }
+    }
+
+    @Override
+    public Path<V, E> shortestPath(V origin, V target) {
+        DijkstraEngine<V, E> engine = takeEngine();
+        try {
+            return engine.shortestPath(origin, target);
+        } finally {
+            s_engine.set(engine);
+        }
+    }
+
+    @Override
+    public Path<V, E> astar(V origin, V target, ToDoubleBiFunction<? super V, ? super V> heuristic) {
+        DijkstraEngine<V, E> engine = takeEngine();
+        try {
+            return engine.astar(origin, target, heuristic);
+        } finally {
+            s_engine.set(engine);
+        }
+    }
+
+    @Override
+    public Path<V, E> bidirectionalShortestPath(V origin, V target) {
+        DijkstraEngine<V, E> engine = takeEngine();
+        try {
+            return engine.bidirectionalShortestPath(origin, target);
+        } finally {
+            s_engine.set(engine);
+        }
+    }
+
+    /**
+     * @return the engine of the calling thread, a new one if it searched another graph last or its
+     *         engine runs
+     */
+    @SuppressWarnings("unchecked")
+    private DijkstraEngine<V, E> takeEngine() {
+        DijkstraEngine<?, ?> engine = s_engine.get();
+        if (engine == null || engine.getGraph() != this)
+            return new DijkstraEngine<>(this);
+        s_engine.set(null);
+        return (DijkstraEngine<V, E>) engine;
+    }
+
+    @Override
+    public DfsResult<V, E> depthFirstSearch() {
+        final int n = getNumberOfVerts();
+        int[] disc = new int[n];
+        int[] fin = new int[n];
+        int[] pred = new int[n];
+        int[] pre = new int[n];
+        int[] post = new int[n];
+        int preSize = 0, postSize = 0, time = 0;
+        List<E> back = new ArrayList<>();
+
+        // next edge to visit for each vertex on the stack
+        int[] next = new int[n];
+        int[] stack = new int[n];
+        int top = 0;
+
+        for (int s = 0; s < n; s++) {
+            if (disc[s] != 0)
+                continue;
+            disc[s] = ++time;
+            pred[s] = -1;
+            pre[preSize++] = s;
+            next[s] = outBegin(s);
+            stack[top++] = s;
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (next[v] < outEnd(v)) {
+                    int e = next[v]++;
+                    int w = target(e);
+                    if (disc[w] == 0) {
+                        disc[w] = ++time;
+                        pred[w] = v;
+                        pre[preSize++] = w;
+                        next[w] = outBegin(w);
+                        stack[top++] = w;
+                    } else if (fin[w] == 0) {
+                        back.add(edgeOf(e));
+                    }
+                } else {
+                    fin[v] = ++time;
+                    post[postSize++] = v;
+                    top--;
+                }
+            }
+        }
+        return new DfsResult<>(vertexKeys(), disc, fin, pred, pre, post, back);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int v = 0, n = getNumberOfVerts(); v < n; v++) {
+            sb.append("(" + vertexOf(v) + ")");
+            for (int e = outBegin(v), end = outEnd(v); e < end; e++) {
+                sb.append("---" + weight(e) + "--->(" + vertexOf(target(e)) + ")");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * EdgeCursor over a range of the forward or the reverse CSR.
+     */
+    private class CsrCursor implements EdgeCursor<V, E> {
+        private int m_pos;
+        private int m_end;
+        private int m_edge = -1; // current edge id
+        private boolean m_incoming;
+
+        @Override
+        public EdgeCursor<V, E> resetOutgoing(V vertex) {
+            assert (containsVertex(vertex)) : "Vertex must be in list";
+            int v = idOf(vertex);
+            m_pos = outBegin(v);
+            m_end = outEnd(v);
+            m_edge = -1;
+            m_incoming = false;
+            return this;
+        }
+
+        @Override
+        public EdgeCursor<V, E> resetIncoming(V vertex) {
+            assert (containsVertex(vertex)) : "Vertex must be in list";
+            int v = idOf(vertex);
+            m_pos = inBegin(v);
+            m_end = inEnd(v);
+            m_edge = -1;
+            m_incoming = true;
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            if (m_pos >= m_end) {
+                m_edge = -1;
+                return false;
+            }
+            m_edge = m_incoming ? inEdge(m_pos++) : m_pos++;
+            return true;
+        }
+
+        @Override
+        public E getEdge() {
+            return edgeOf(m_edge);
+        }
+
+        @Override
+        public V getOrigin() {
+            return vertexOf(source(m_edge));
+        }
+
+        @Override
+        public V getDestination() {
+            return vertexOf(target(m_edge));
+        }
+
+        @Override
+        public double getWeight() {
+            return weight(m_edge);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package digraph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a directed, weighted Graph stored in compressed sparse row (CSR) layout.
+ * Every vertex and every edge gets a dense int id. The outgoing edges of vertex v are the edge ids
+ * outBegin(v) until outEnd(v) - 1, so a traversal is a sequential scan over primitive arrays. The
+ * incoming edges are stored in a second, reverse CSR.
+ *
+ * Use Digraph.toCompact() to create an instance.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class CompactDigraph<V, E> extends AbstractIndexedDigraph<V, E> {
+
+    /**
+     * vertex keys by vertex id
+     */
+    private final Object[] m_vertices;
+
+    /**
+     * edge keys by edge id
+     */
+    private final Object[] m_edges;
+
+    private final HashMap<V, Integer> m_vertexIds;
+    private final HashMap<E, Integer> m_edgeIds;
+
+    /**
+     * forward CSR: the edges leaving vertex v are stored at [m_outOffsets[v], m_outOffsets[v+1])
+     */
+    private final int[] m_outOffsets;
+    private final int[] m_targets;
+    private final double[] m_weights;
+
+    /**
+     * origin vertex id by edge id
+     */
+    private final int[] m_sources;
+
+    /**
+     * reverse CSR: the edges ending on vertex v are stored at [m_inOffsets[v], m_inOffsets[v+1])
+     */
+    private final int[] m_inOffsets;
+    private final int[] m_inSources;
+    private final double[] m_inWeights;
+
+    /**
+     * edge id of the entries in the reverse CSR
+     */
+    private final int[] m_inEdges;
+
+    /**
+     * Creates the snapshot out of a forward CSR. The reverse CSR and the key lookup tables are
+     * derived from it. The arrays are taken over and must not be changed afterwards.
+     *
+     * @param vertices vertex keys by vertex id
+     * @param outOffsets offsets of the outgoing edges, length = number of vertices + 1
+     * @param targets destination vertex id by edge id
+     * @param weights weight by edge id
+     * @param edges edge keys by edge id
+     */
+    CompactDigraph(Object[] vertices, int[] outOffsets, int[] targets, double[] weights, Object[] edges) {
+        assert (outOffsets.length == vertices.length + 1) : "one offset per vertex needed";
+        assert (targets.length == edges.length && weights.length == edges.length) : "one entry per edge needed";
+        final int n = vertices.length;
+        final int m = edges.length;
+
+        m_vertices = vertices;
+        m_edges = edges;
+        m_outOffsets = outOffsets;
+        m_targets = targets;
+        m_weights = weights;
+
+        m_vertexIds = new HashMap<>(Math.max(16, (int) (n / 0.75f) + 1));
+        for (int v = 0; v < n; v++) {
+            m_vertexIds.put(vertexOf(v), v);
+        }
+        m_edgeIds = new HashMap<>(Math.max(16, (int) (m / 0.75f) + 1));
+        for (int e = 0; e < m; e++) {
+            m_edgeIds.put(edgeOf(e), e);
+        }
+
+        m_sources = new int[m];
+        for (int v = 0; v < n; v++) {
+            Arrays.fill(m_sources, outOffsets[v], outOffsets[v + 1], v);
+        }
+
+        // counting sort of the edges by destination
+        m_inOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            m_inOffsets[targets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            m_inOffsets[v + 1] += m_inOffsets[v];
+        }
+        m_inEdges = new int[m];
+        m_inSources = new int[m];
+        m_inWeights = new double[m];
+        int[] next = Arrays.copyOf(m_inOffsets, n);
+        for (int e = 0; e < m; e++) {
+            int pos = next[targets[e]]++;
+            m_inEdges[pos] = e;
+            m_inSources[pos] = m_sources[e];
+            m_inWeights[pos] = weights[e];
+        }
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+    // INDEX BASED ACCESS
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     *
+     * @param vertex
+     * @return dense id of the given vertex or -1 if it is not in this Graph
+     */
+    public int idOf(V vertex) {
+        Integer id = m_vertexIds.get(vertex);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     *
+     * @param id vertex id in [0, getNumberOfVerts())
+     * @return the vertex with the given id
+     */
+    @SuppressWarnings("unchecked")
+    public V vertexOf(int id) {
+        return (V) m_vertices[id];
+    }
+
+    /**
+     *
+     * @param edge
+     * @return dense id of the given edge or -1 if it is not in this Graph
+     */
+    public int edgeIdOf(E edge) {
+        Integer id = m_edgeIds.get(edge);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     *
+     * @param id edge id in [0, getNumberOfEdges())
+     * @return the edge with the given id
+     */
+    @SuppressWarnings("unchecked")
+    public E edgeOf(int id) {
+        return (E) m_edges[id];
+    }
+
+    /**
+     *
+     * @param v vertex id
+     * @return id of the first edge leaving v
+     */
+    public int outBegin(int v) {
+        return m_outOffsets[v];
+    }
+
+    /**
+     *
+     * @param v vertex id
+     * @return id after the last edge leaving v
+     */
+    public int outEnd(int v) {
+        return m_outOffsets[v + 1];
+    }
+
+    /**
+     *
+     * @param e edge id
+     * @return vertex id of the origin of e
+     */
+    public int source(int e) {
+        return m_sources[e];
+    }
+
+    /**
+     *
+     * @param e edge id
+     * @return vertex id of the destination of e
+     */
+    public int target(int e) {
+        return m_targets[e];
+    }
+
+    /**
+     *
+     * @param e edge id
+     * @return weight of e
+     */
+    public double weight(int e) {
+        return m_weights[e];
+    }
+
+    /**
+     *
+     * @param v vertex id
+     * @return position of the first edge ending on v in the reverse CSR
+     */
+    public int inBegin(int v) {
+        return m_inOffsets[v];
+    }
+
+    /**
+     *
+     * @param v vertex id
+     * @return position after the last edge ending on v in the reverse CSR
+     */
+    public int inEnd(int v) {
+        return m_inOffsets[v + 1];
+    }
+
+    /**
+     *
+     * @param i position in the reverse CSR
+     * @return vertex id of the origin of the incoming edge at i
+     */
+    public int inSource(int i) {
+        return m_inSources[i];
+    }
+
+    /**
+     *
+     * @param i position in the reverse CSR
+     * @return weight of the incoming edge at i
+     */
+    public double inWeight(int i) {
+        return m_inWeights[i];
+    }
+
+    /**
+     *
+     * @param i position in the reverse CSR
+     * @return edge id of the incoming edge at i
+     */
+    public int inEdge(int i) {
+        return m_inEdges[i];
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+    // IReadOnlyDigraph
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Set<V> getVertsOfGraph() {
+        return Collections.unmodifiableSet(m_vertexIds.keySet());
+    }
+
+    @Override
+    public Set<E> getEdgesOfGraph() {
+        return Collections.unmodifiableSet(m_edgeIds.keySet());
+    }
+
+    @Override
+    public int getNumberOfVerts() {
+        return m_vertices.length;
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return m_edges.length;
+    }
+
+    @Override
+    Object[] vertexKeys() {
+        return m_vertices;
+    }
+
+    /**
+     * A CompactDigraph is already immutable.
+     *
+     * @return this
+     */
+    @Override
+    public CompactDigraph<V, E> toCompact() {
+        return this;
+    }
+}
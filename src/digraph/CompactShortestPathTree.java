@@ -0,0 +1,80 @@
+package digraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ShortestPathTree over the dense ids of an IndexedDigraph. Distances and predecessors are kept in
+ * primitive arrays and only mapped back to vertex and edge keys on request.
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+class CompactShortestPathTree<V, E> implements ShortestPathTree<V, E> {
+
+    private final IndexedDigraph<V, E> m_graph;
+    private final int m_origin;
+    private final double[] m_dist; // distance by vertex id, infinite if unreachable
+    private final int[] m_pred; // id of the last edge of the shortest path by vertex id, -1 if none
+
+    CompactShortestPathTree(IndexedDigraph<V, E> graph, int origin, double[] dist, int[] pred) {
+        m_graph = graph;
+        m_origin = origin;
+        m_dist = dist;
+        m_pred = pred;
+    }
+
+    @Override
+    public V getOrigin() {
+        return m_graph.vertexOf(m_origin);
+    }
+
+    @Override
+    public boolean hasPathTo(V vertex) {
+        int v = m_graph.idOf(vertex);
+        return v >= 0 && m_dist[v] != Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public double distanceTo(V vertex) {
+        int v = m_graph.idOf(vertex);
+        return (v < 0) ? Double.POSITIVE_INFINITY : m_dist[v];
+    }
+
+    @Override
+    public V predecessorOf(V vertex) {
+        int v = m_graph.idOf(vertex);
+        return (v < 0 || m_pred[v] < 0) ? null : m_graph.vertexOf(m_graph.source(m_pred[v]));
+    }
+
+    @Override
+    public E predecessorEdgeOf(V vertex) {
+        int v = m_graph.idOf(vertex);
+        return (v < 0 || m_pred[v] < 0) ? null : m_graph.edgeOf(m_pred[v]);
+    }
+
+    @Override
+    public List<V> pathTo(V vertex) {
+        if (!hasPathTo(vertex))
+            return new ArrayList<>();
+        ArrayList<V> path = new ArrayList<>();
+        for (int v = m_graph.idOf(vertex); v != m_origin; v = m_graph.source(m_pred[v])) {
+            path.add(m_graph.vertexOf(v));
+        }
+        path.add(m_graph.vertexOf(m_origin));
+        Collections.reverse(path);
+        return path;
+    }
+
+    @Override
+    public HashMap<V, Double> getDistances() {
+        final int n = m_dist.length;
+        HashMap<V, Double> d = new HashMap<>(Math.max(16, (int) (n / 0.75f) + 1));
+        for (int v = 0; v < n; v++) {
+            d.put(m_graph.vertexOf(v), (m_dist[v] == Double.POSITIVE_INFINITY) ? Double.MAX_VALUE : m_dist[v]);
+        }
+        return d;
+    }
+}
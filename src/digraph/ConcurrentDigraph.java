@@ -0,0 +1,920 @@
+package digraph;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Thread-safe variant of Digraph. The vertices and edges are stored in ConcurrentHashMaps and the
+ * adjacency lists of a vertex are concurrent sets, so readers never block and see every change
+ * that completed before they started.
+ *
+ * Every vertex has its own lock which guards its adjacency. Adding, removing or changing an edge
+ * holds the locks of both endpoints, always taken in the order of creation of the vertices, so
+ * writers on disjoint vertices proceed in parallel and cannot deadlock. A removed vertex is marked
+ * under its lock before its edges are removed one by one; no edge can be added to it afterwards.
+ * It stays in the vertex map until its edges are gone, adding the same key again waits until
+ * then.
+ *
+ * Iterations, traversals and searches are weakly consistent: they may or may not see changes made
+ * while they run. The searches walk the adjacency sets directly; to run many searches on one
+ * consistent state, take a snapshot with toCompact() once and search on it.
+ *
+ * The listeners are notified while the locks of the changed vertices are held, possibly from
+ * several threads at the same time, so they must be thread-safe. The events of a vertex reach the
+ * listeners in the order of the changes: vertexAdded() before the edgeAdded() of its edges and
+ * vertexRemoved() before the vertexAdded() of the same key added again. Events of changes on
+ * disjoint vertices may arrive in any order.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class ConcurrentDigraph<V, E> implements IDigraph<V, E> {
+
+    private final ConcurrentHashMap<V, Vertex> m_vList;
+    private final ConcurrentHashMap<E, Edge> m_eList;
+    private final CopyOnWriteArrayList<DigraphListener<? super V, ? super E>> m_listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Source of the lock order of the vertices.
+     */
+    private final AtomicLong m_created = new AtomicLong();
+
+    public ConcurrentDigraph() {
+        m_vList = new ConcurrentHashMap<>();
+        m_eList = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param sizeVertex sets the size of the internal vertex map
+     * @param sizeEdge sets the size of the internal edge map
+     * @throws IllegalArgumentException - if the initial capacity is negative
+     */
+    public ConcurrentDigraph(int sizeVertex, int sizeEdge) {
+        m_vList = new ConcurrentHashMap<>(sizeVertex);
+        m_eList = new ConcurrentHashMap<>(sizeEdge);
+    }
+
+    /**
+     * Copies the vertices and edges into a new Graph without the listeners. Changes made during
+     * the copy may or may not be contained.
+     *
+     * @return the new copy
+     */
+    @Override
+    public Object clone() {
+        ConcurrentDigraph<V, E> copy = new ConcurrentDigraph<>(m_vList.size(), m_eList.size());
+        for (V v : m_vList.keySet()) {
+            copy.addVertex(v);
+        }
+        for (Edge e : m_eList.values()) {
+            copy.addEdge(e.m_key, e.m_weight, e.m_origin.m_key, e.m_destination.m_key);
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean addEdge(E key, double weight, V origin, V destination) {
+        assert (weight >= 0) : "weight must be >= 0";
+        while (true) {
+            Vertex o = m_vList.get(origin);
+            Vertex d = m_vList.get(destination);
+            if (o == null || d == null)
+                return false;
+            // an edge with the same key is discarded
+            if (m_eList.containsKey(key))
+                removeEdge(key);
+            Edge edge = new Edge(key, weight, o, d);
+            synchronized (first(o, d)) {
+                synchronized (second(o, d)) {
+                    // a marked vertex that is still in the map is being removed
+                    if ((o.m_removed && m_vList.get(origin) == o) || (d.m_removed && m_vList.get(destination) == d))
+                        return false;
+                    // retry if a vertex was replaced or the key was added again meanwhile
+                    if (o.m_removed || d.m_removed || m_eList.putIfAbsent(key, edge) != null)
+                        continue;
+                    o.m_outgoing.add(edge);
+                    d.m_incoming.add(edge);
+                    for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                        l.edgeAdded(key, origin, destination, weight);
+                    }
+                    return true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean addVertex(V vertex) {
+        Vertex v = new Vertex(vertex, m_created.getAndIncrement());
+        // locked before it is visible, so edges to it wait for the vertexAdded event
+        synchronized (v) {
+            Vertex old;
+            while ((old = m_vList.putIfAbsent(vertex, v)) != null) {
+                if (!awaitRemoval(vertex, old))
+                    return false;
+            }
+            for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                l.vertexAdded(vertex);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Waits until old has left the vertex map if it is being removed.
+     * @return false if old is present and not being removed
+     */
+    private boolean awaitRemoval(V vertex, Vertex old) {
+        boolean interrupted = false;
+        synchronized (old) {
+            if (!old.m_removed)
+                return false;
+            while (m_vList.get(vertex) == old) {
+                try {
+                    old.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return true;
+    }
+
+    @Override
+    public boolean containsEdge(E edge) {
+        return m_eList.containsKey(edge);
+    }
+
+    @Override
+    public boolean containsEdge(V origin, V destination) {
+        Vertex o = m_vList.get(origin);
+        if (o == null)
+            return false;
+        for (Edge e : o.m_outgoing) {
+            if (e.m_destination.m_key.equals(destination))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsVertex(V vertex) {
+        return m_vList.containsKey(vertex);
+    }
+
+    @Override
+    public int indegOf(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in this Graph";
+        return m_vList.get(vertex).m_incoming.size();
+    }
+
+    @Override
+    public int outdegOf(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in this Graph";
+        return m_vList.get(vertex).m_outgoing.size();
+    }
+
+    @Override
+    public Set<V> getVertsOfGraph() {
+        return m_vList.keySet();
+    }
+
+    @Override
+    public Set<E> getEdgesOfGraph() {
+        return m_eList.keySet();
+    }
+
+    @Override
+    public Set<E> getAllEdgesOfVertex(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in this Graph";
+        Vertex v = m_vList.get(vertex);
+        return addKeys(v.m_incoming, addKeys(v.m_outgoing, new HashSet<E>()));
+    }
+
+    @Override
+    public Set<E> getLeavingEdgesOfVertex(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        return addKeys(m_vList.get(vertex).m_outgoing, new HashSet<E>());
+    }
+
+    @Override
+    public Set<E> getIncomingEdgesOfVertex(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        return addKeys(m_vList.get(vertex).m_incoming, new HashSet<E>());
+    }
+
+    private Set<E> addKeys(Set<Edge> edges, Set<E> keys) {
+        for (Edge e : edges) {
+            keys.add(e.m_key);
+        }
+        return keys;
+    }
+
+    @Override
+    public Set<E> getEdgesBetween(V source, V destination) {
+        assert (containsVertex(source)) : "Vertex must be in list";
+        HashSet<E> keys = new HashSet<>();
+        for (Edge e : m_vList.get(source).m_outgoing) {
+            if (e.m_destination.m_key.equals(destination))
+                keys.add(e.m_key);
+        }
+        return keys;
+    }
+
+    @Override
+    public V getEdgeSource(E edge) {
+        assert (containsEdge(edge)) : "Edge must be in list";
+        return m_eList.get(edge).m_origin.m_key;
+    }
+
+    @Override
+    public V getEdgeDestination(E edge) {
+        assert (containsEdge(edge)) : "Edge must be in list";
+        return m_eList.get(edge).m_destination.m_key;
+    }
+
+    @Override
+    public double getEdgeWeight(E edge) {
+        assert (containsEdge(edge)) : "Edge must be in list";
+        return m_eList.get(edge).m_weight;
+    }
+
+    /**
+     * @return false if the edge is not present, also if another thread removed it first
+     */
+    @Override
+    public boolean removeEdge(E edge) {
+        while (true) {
+            Edge e = m_eList.get(edge);
+            if (e == null)
+                return false;
+            synchronized (first(e.m_origin, e.m_destination)) {
+                synchronized (second(e.m_origin, e.m_destination)) {
+                    // the key may have been given to another edge meanwhile
+                    if (m_eList.get(edge) != e)
+                        continue;
+                    unlink(e);
+                    for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                        l.edgeRemoved(edge, e.m_origin.m_key, e.m_destination.m_key, e.m_weight);
+                    }
+                    return true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public E removeEdge(double weight, V origin, V destination) {
+        assert (weight >= 0) : "not a valid weight";
+        Vertex o = m_vList.get(origin);
+        if (o == null)
+            return null;
+        for (Edge e : o.m_outgoing) {
+            if (e.m_destination.m_key.equals(destination) && e.m_weight == weight && removeEdge(e.m_key))
+                return e.m_key;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean removeVertex(V vertex) {
+        return removeVertex(vertex, true);
+    }
+
+    /**
+     * Marks the vertex as removed, afterwards its edges are unlinked one by one. Then the listeners
+     * are notified and the vertex leaves the map under its lock.
+     * @param notify false to suppress the vertexRemoved event
+     */
+    private boolean removeVertex(V vertex, boolean notify) {
+        Vertex v = m_vList.get(vertex);
+        if (v == null)
+            return false;
+        synchronized (v) {
+            if (v.m_removed)
+                return false;
+            v.m_removed = true;
+        }
+        for (Edge e : v.m_outgoing) {
+            remove(e);
+        }
+        for (Edge e : v.m_incoming) {
+            remove(e);
+        }
+        synchronized (v) {
+            // notified before the key is free, so vertexAdded of a new vertex follows
+            if (notify) {
+                for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                    l.vertexRemoved(vertex);
+                }
+            }
+            m_vList.remove(vertex, v);
+            // wake the threads adding the key again
+            v.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Unlinks e under the locks of its endpoints without notifying the listeners.
+     */
+    private void remove(Edge e) {
+        synchronized (first(e.m_origin, e.m_destination)) {
+            synchronized (second(e.m_origin, e.m_destination)) {
+                unlink(e);
+            }
+        }
+    }
+
+    /**
+     * Removes e from the edge map and the adjacency of its endpoints. The locks of both endpoints
+     * must be held.
+     */
+    private void unlink(Edge e) {
+        m_eList.remove(e.m_key, e);
+        e.m_origin.m_outgoing.remove(e);
+        e.m_destination.m_incoming.remove(e);
+    }
+
+    /**
+     * A negative weight is ignored like in Digraph, an edge removed meanwhile as well.
+     */
+    @Override
+    public void setEdgeWeight(E edge, double weight) {
+        assert (weight >= 0) : "weight must be >=0";
+        assert (containsEdge(edge)) : "Edge must be in Graph";
+        if (!(weight >= 0))
+            return;
+        // retry if the key was given to another edge meanwhile
+        for (;;) {
+            Edge e = m_eList.get(edge);
+            if (e == null)
+                return;
+            synchronized (first(e.m_origin, e.m_destination)) {
+                synchronized (second(e.m_origin, e.m_destination)) {
+                    if (m_eList.get(edge) != e)
+                        continue;
+                    double old = e.m_weight;
+                    e.m_weight = weight;
+                    for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                        l.edgeWeightChanged(edge, e.m_origin.m_key, e.m_destination.m_key, old, weight);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean removeAllEdges(Collection<? extends E> edges) {
+        boolean all = true;
+        for (E e : edges) {
+            all &= removeEdge(e);
+        }
+        return all;
+    }
+
+    @Override
+    public boolean removeAllEdges(E[] edges) {
+        boolean all = true;
+        for (E e : edges) {
+            all &= removeEdge(e);
+        }
+        return all;
+    }
+
+    @Override
+    public boolean removeAllEdges() {
+        for (E e : m_eList.keySet()) {
+            removeEdge(e);
+        }
+        return m_eList.isEmpty();
+    }
+
+    @Override
+    public boolean clear() {
+        for (V v : m_vList.keySet()) {
+            removeVertex(v, false);
+        }
+        for (DigraphListener<? super V, ? super E> l : m_listeners) {
+            l.cleared();
+        }
+        return m_eList.isEmpty() && m_vList.isEmpty();
+    }
+
+    @Override
+    public Set<E> removeAllEdgesBetweenVertex(V origin, V destination) {
+        assert (containsVertex(origin) && containsVertex(destination)) : "Vertices must be in graph";
+        HashSet<E> removed = new HashSet<>();
+        for (Edge e : m_vList.get(origin).m_outgoing) {
+            if (e.m_destination.m_key.equals(destination) && removeEdge(e.m_key))
+                removed.add(e.m_key);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean removeAllVertices(Collection<? extends V> vertices) {
+        boolean all = true;
+        for (V v : vertices) {
+            all &= removeVertex(v);
+        }
+        return all;
+    }
+
+    @Override
+    public void addDigraphListener(DigraphListener<? super V, ? super E> listener) {
+        m_listeners.add(listener);
+    }
+
+    @Override
+    public boolean removeDigraphListener(DigraphListener<? super V, ? super E> listener) {
+        return m_listeners.remove(listener);
+    }
+
+    @Override
+    public int getNumberOfVerts() {
+        return m_vList.size();
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return m_eList.size();
+    }
+
+    @Override
+    public void forEachOutgoing(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        forEach(m_vList.get(vertex).m_outgoing, consumer);
+    }
+
+    @Override
+    public void forEachIncoming(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        forEach(m_vList.get(vertex).m_incoming, consumer);
+    }
+
+    private void forEach(Set<Edge> edges, EdgeConsumer<? super V, ? super E> consumer) {
+        for (Edge e : edges) {
+            consumer.accept(e.m_key, e.m_origin.m_key, e.m_destination.m_key, e.m_weight);
+        }
+    }
+
+    @Override
+    public EdgeCursor<V, E> newEdgeCursor() {
+        return new AdjacencyCursor();
+    }
+
+    @Override
+    public ShortestPathTree<V, E> shortestPathTree(V origin, DijkstraListener<? super V, ? super E> listener) {
+        assert (containsVertex(origin)) : "Vertex must be in this Graph";
+        HashMap<Vertex, Label> labels = new HashMap<>();
+        PQueue<Label> pq = new PQueue<>();
+        label(pq, labels, m_vList.get(origin), 0.0, null, null, null, null);
+        while (!pq.isEmpty()) {
+            Label u = pq.removeMin();
+            if (listener != null)
+                listener.vertexSettled(u.m_vertex.m_key, u.m_dist);
+            for (Edge e : u.m_vertex.m_outgoing) {
+                double d = u.m_dist + e.m_weight;
+                Label w = labels.get(e.m_destination);
+                if (w != null && w.m_dist <= d)
+                    continue;
+                label(pq, labels, e.m_destination, d, e, u, null, null);
+                if (listener != null)
+                    listener.edgeRelaxed(e.m_key, e.m_origin.m_key, e.m_destination.m_key, d);
+            }
+        }
+
+        // the reached vertices are numbered in the order they were labeled, the others follow
+        final int reached = labels.size();
+        ArrayList<Object> keys = new ArrayList<>(Math.max(reached, m_vList.size()));
+        Label[] byIndex = newLabels(reached);
+        for (Label l : labels.values()) {
+            byIndex[l.m_index] = l;
+        }
+        for (Label l : byIndex) {
+            keys.add(l.m_vertex.m_key);
+        }
+        for (Vertex v : m_vList.values()) {
+            if (!labels.containsKey(v))
+                keys.add(v.m_key);
+        }
+        final int n = keys.size();
+        double[] d = new double[n];
+        int[] pred = new int[n];
+        Object[] predEdges = new Object[n];
+        for (int v = 0; v < n; v++) {
+            Label l = (v < reached) ? byIndex[v] : null;
+            d[v] = (l == null) ? Double.POSITIVE_INFINITY : l.m_dist;
+            pred[v] = (l == null || l.m_prev == null) ? -1 : l.m_prev.m_index;
+            predEdges[v] = (l == null || l.m_pred == null) ? null : l.m_pred.m_key;
+        }
+        return new IndexedShortestPathTree<>(keys.toArray(), 0, d, pred, predEdges);
+    }
+
+    @Override
+    public Path<V, E> shortestPath(V origin, V target) {
+        return astar(origin, target, null);
+    }
+
+    @Override
+    public Path<V, E> astar(V origin, V target, ToDoubleBiFunction<? super V, ? super V> heuristic) {
+        assert (containsVertex(origin) && containsVertex(target)) : "Vertex must be in this Graph";
+        // only the reached vertices get a label, the search stops when target is settled
+        HashMap<Vertex, Label> labels = new HashMap<>();
+        PQueue<Label> pq = new PQueue<>();
+        label(pq, labels, m_vList.get(origin), 0.0, null, null, heuristic, target);
+        while (!pq.isEmpty()) {
+            Label u = pq.removeMin();
+            if (u.m_vertex.m_key.equals(target))
+                return toPath(u, null);
+            for (Edge e : u.m_vertex.m_outgoing) {
+                label(pq, labels, e.m_destination, u.m_dist + e.m_weight, e, u, heuristic, target);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Path<V, E> bidirectionalShortestPath(V origin, V target) {
+        assert (containsVertex(origin) && containsVertex(target)) : "Vertex must be in this Graph";
+        HashMap<Vertex, Label> forward = new HashMap<>();
+        HashMap<Vertex, Label> backward = new HashMap<>();
+        PQueue<Label> fq = new PQueue<>();
+        PQueue<Label> bq = new PQueue<>();
+        label(fq, forward, m_vList.get(origin), 0.0, null, null, null, null);
+        label(bq, backward, m_vList.get(target), 0.0, null, null, null, null);
+        // mu is the length of the shortest path seen so far, it passes through meet
+        double mu = origin.equals(target) ? 0.0 : Double.POSITIVE_INFINITY;
+        Vertex meet = origin.equals(target) ? m_vList.get(origin) : null;
+
+        while (!fq.isEmpty() && !bq.isEmpty()) {
+            double fmin = fq.getPriority(fq.getFirstItem());
+            double bmin = bq.getPriority(bq.getFirstItem());
+            // every path not seen yet is at least fmin + bmin long
+            if (fmin + bmin >= mu)
+                break;
+            if (fmin <= bmin) {
+                Label u = fq.removeMin();
+                for (Edge e : u.m_vertex.m_outgoing) {
+                    Label w = label(fq, forward, e.m_destination, u.m_dist + e.m_weight, e, u, null, null);
+                    Label b = backward.get(e.m_destination);
+                    if (b != null && w.m_dist + b.m_dist < mu) {
+                        mu = w.m_dist + b.m_dist;
+                        meet = e.m_destination;
+                    }
+                }
+            } else {
+                Label u = bq.removeMin();
+                for (Edge e : u.m_vertex.m_incoming) {
+                    Label w = label(bq, backward, e.m_origin, u.m_dist + e.m_weight, e, u, null, null);
+                    Label f = forward.get(e.m_origin);
+                    if (f != null && f.m_dist + w.m_dist < mu) {
+                        mu = f.m_dist + w.m_dist;
+                        meet = e.m_origin;
+                    }
+                }
+            }
+        }
+        return (meet == null) ? null : toPath(forward.get(meet), backward.get(meet));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Label[] newLabels(int length) {
+        return (Label[]) Array.newInstance(ConcurrentDigraph.Label.class, length);
+    }
+
+    /**
+     * Relaxes the label of vertex to distance d over edge pred. The label is queued with the
+     * priority d + heuristic(vertex, target) and queued again if it was already removed, so an
+     * admissible but inconsistent heuristic and weights lowered during the search still yield
+     * shortest paths.
+     * @param prev label at the other end of pred
+     * @param heuristic null for Dijkstra's algorithm
+     * @return the label of vertex
+     */
+    private Label label(PQueue<Label> pq, HashMap<Vertex, Label> labels, Vertex vertex, double d, Edge pred,
+            Label prev, ToDoubleBiFunction<? super V, ? super V> heuristic, V target) {
+        Label l = labels.get(vertex);
+        if (l == null) {
+            l = new Label(vertex, labels.size(), d, pred, prev);
+            if (heuristic != null)
+                l.m_estimate = heuristic.applyAsDouble(vertex.m_key, target);
+            l.m_item = pq.add(l, d + l.m_estimate);
+            labels.put(vertex, l);
+        } else if (d < l.m_dist) {
+            l.m_dist = d;
+            l.m_pred = pred;
+            l.m_prev = prev;
+            if (!pq.decreaseKey(l.m_item, d + l.m_estimate))
+                l.m_item = pq.add(l, d + l.m_estimate);
+        }
+        return l;
+    }
+
+    /**
+     * Follows the labels of the forward search back to the origin and those of the backward
+     * search on to the target.
+     * @param f label of the forward search
+     * @param b label of the backward search at the same vertex, null for a unidirectional search
+     */
+    private Path<V, E> toPath(Label f, Label b) {
+        ArrayList<V> vertices = new ArrayList<>();
+        ArrayList<E> edges = new ArrayList<>();
+        for (Label l = f; l != null; l = l.m_prev) {
+            vertices.add(l.m_vertex.m_key);
+            if (l.m_pred != null)
+                edges.add(l.m_pred.m_key);
+        }
+        Collections.reverse(vertices);
+        Collections.reverse(edges);
+        double weight = f.m_dist;
+        if (b != null) {
+            weight += b.m_dist;
+            for (Label l = b; l.m_prev != null; l = l.m_prev) {
+                edges.add(l.m_pred.m_key);
+                vertices.add(l.m_prev.m_vertex.m_key);
+            }
+        }
+        return new Path<>(vertices, edges, weight);
+    }
+
+    /**
+     * Iterative depthFirstSearch over the vertices present when it starts. Edges to vertices added
+     * later are skipped.
+     */
+    @Override
+    public DfsResult<V, E> depthFirstSearch() {
+        List<Vertex> verts = new ArrayList<>(m_vList.values());
+        final int n = verts.size();
+        Object[] keys = new Object[n];
+        HashMap<Vertex, Integer> ids = new HashMap<>(Math.max(16, (int) (n / 0.75f) + 1));
+        for (int v = 0; v < n; v++) {
+            keys[v] = verts.get(v).m_key;
+            ids.put(verts.get(v), v);
+        }
+        int[] disc = new int[n];
+        int[] fin = new int[n];
+        int[] pred = new int[n];
+        int[] pre = new int[n];
+        int[] post = new int[n];
+        int preSize = 0, postSize = 0, time = 0;
+        List<E> back = new ArrayList<>();
+
+        // remaining edges of each vertex on the stack
+        ArrayList<Iterator<Edge>> next = new ArrayList<>();
+        int[] stack = new int[n];
+        int top = 0;
+
+        for (int s = 0; s < n; s++) {
+            if (disc[s] != 0)
+                continue;
+            disc[s] = ++time;
+            pred[s] = -1;
+            pre[preSize++] = s;
+            next.add(verts.get(s).m_outgoing.iterator());
+            stack[top++] = s;
+            while (top > 0) {
+                int v = stack[top - 1];
+                Iterator<Edge> it = next.get(top - 1);
+                if (it.hasNext()) {
+                    Edge e = it.next();
+                    Integer w = ids.get(e.m_destination);
+                    if (w == null)
+                        continue;
+                    if (disc[w] == 0) {
+                        disc[w] = ++time;
+                        pred[w] = v;
+                        pre[preSize++] = w;
+                        next.add(e.m_destination.m_outgoing.iterator());
+                        stack[top++] = w;
+                    } else if (fin[w] == 0) {
+                        back.add(e.m_key);
+                    }
+                } else {
+                    fin[v] = ++time;
+                    post[postSize++] = v;
+                    next.remove(--top);
+                }
+            }
+        }
+        return new DfsResult<>(keys, disc, fin, pred, pre, post, back);
+    }
+
+    /**
+     * The snapshot contains the vertices present when it is started and the edges between them
+     * seen while it runs, every edge key at most once.
+     */
+    @Override
+    public CompactDigraph<V, E> toCompact() {
+        List<Vertex> verts = new ArrayList<>(m_vList.values());
+        final int n = verts.size();
+        Object[] vertices = new Object[n];
+        HashMap<Vertex, Integer> ids = new HashMap<>(Math.max(16, (int) (n / 0.75f) + 1));
+        for (int v = 0; v < n; v++) {
+            vertices[v] = verts.get(v).m_key;
+            ids.put(verts.get(v), v);
+        }
+
+        int[] offsets = new int[n + 1];
+        ArrayList<Edge> edges = new ArrayList<>(m_eList.size());
+        HashSet<E> seen = new HashSet<>();
+        for (int v = 0; v < n; v++) {
+            offsets[v] = edges.size();
+            for (Edge e : verts.get(v).m_outgoing) {
+                if (ids.containsKey(e.m_destination) && seen.add(e.m_key))
+                    edges.add(e);
+            }
+        }
+        final int m = edges.size();
+        offsets[n] = m;
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        Object[] keys = new Object[m];
+        for (int i = 0; i < m; i++) {
+            Edge e = edges.get(i);
+            targets[i] = ids.get(e.m_destination);
+            weights[i] = e.m_weight;
+            keys[i] = e.m_key;
+        }
+        return new CompactDigraph<>(vertices, offsets, targets, weights, keys);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Vertex v : m_vList.values()) {
+            sb.append(v.toString());
+            for (Edge e : v.m_outgoing) {
+                sb.append(e.toString());
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the vertex whose lock is taken first
+     */
+    private Vertex first(Vertex a, Vertex b) {
+        return (a.m_order <= b.m_order) ? a : b;
+    }
+
+    private Vertex second(Vertex a, Vertex b) {
+        return (a.m_order <= b.m_order) ? b : a;
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+    // INNER CLASSES
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A vertex with its adjacency. The object itself is the lock of the adjacency.
+     */
+    private class Vertex {
+        private final V m_key;
+        /**
+         * Position in the lock order.
+         */
+        private final long m_order;
+        private final Set<Edge> m_outgoing = ConcurrentHashMap.newKeySet();
+        private final Set<Edge> m_incoming = ConcurrentHashMap.newKeySet();
+        /**
+         * Set under the lock when the vertex is removed.
+         */
+        private boolean m_removed;
+
+        private Vertex(V key, long order) {
+            m_key = key;
+            m_order = order;
+        }
+
+        @Override
+        public String toString() {
+            return ("(" + m_key.toString() + ")");
+        }
+    }
+
+    /**
+     * A weighted edge. Identity is the object, a key added again gets a new Edge.
+     */
+    private class Edge {
+        private final E m_key;
+        private final Vertex m_origin;
+        private final Vertex m_destination;
+        private volatile double m_weight;
+
+        private Edge(E key, double weight, Vertex origin, Vertex destination) {
+            m_key = key;
+            m_weight = weight;
+            m_origin = origin;
+            m_destination = destination;
+        }
+
+        @Override
+        public String toString() {
+            return "---" + m_weight + "--->" + m_destination.toString();
+        }
+    }
+
+    /**
+     * State of a vertex reached by a search.
+     */
+    private class Label {
+        private final Vertex m_vertex;
+        /**
+         * Number of the label in the order of labeling, starting at 0.
+         */
+        private final int m_index;
+        private double m_dist;
+        /**
+         * Edge over which the vertex was reached, null for the start of the search.
+         */
+        private Edge m_pred;
+        /**
+         * Label at the other end of m_pred.
+         */
+        private Label m_prev;
+        /**
+         * Value of the heuristic of an A* search, 0 for Dijkstra's algorithm.
+         */
+        private double m_estimate;
+        private PQItem m_item;
+
+        private Label(Vertex vertex, int index, double dist, Edge pred, Label prev) {
+            m_vertex = vertex;
+            m_index = index;
+            m_dist = dist;
+            m_pred = pred;
+            m_prev = prev;
+        }
+    }
+
+    /**
+     * EdgeCursor over the weakly consistent iterator of an adjacency set.
+     */
+    private class AdjacencyCursor implements EdgeCursor<V, E> {
+        private Iterator<Edge> m_iterator;
+        private Edge m_current;
+
+        @Override
+        public EdgeCursor<V, E> resetOutgoing(V vertex) {
+            assert (containsVertex(vertex)) : "Vertex must be in list";
+            return reset(m_vList.get(vertex).m_outgoing);
+        }
+
+        @Override
+        public EdgeCursor<V, E> resetIncoming(V vertex) {
+            assert (containsVertex(vertex)) : "Vertex must be in list";
+            return reset(m_vList.get(vertex).m_incoming);
+        }
+
+        private EdgeCursor<V, E> reset(Set<Edge> edges) {
+            m_iterator = edges.iterator();
+            m_current = null;
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            m_current = m_iterator.hasNext() ? m_iterator.next() : null;
+            return m_current != null;
+        }
+
+        @Override
+        public E getEdge() {
+            return m_current.m_key;
+        }
+
+        @Override
+        public V getOrigin() {
+            return m_current.m_origin.m_key;
+        }
+
+        @Override
+        public V getDestination() {
+            return m_current.m_destination.m_key;
+        }
+
+        @Override
+        public double getWeight() {
+            return m_current.m_weight;
+        }
+    }
+}
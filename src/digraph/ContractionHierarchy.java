@@ -0,0 +1,740 @@
+package digraph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Contraction Hierarchy for fast point to point queries on a static Graph.
+ *
+ * The preprocessing contracts the vertices one after the other in order of importance (edge
+ * difference plus number of contracted neighbours). Contracting v removes it from the remaining
+ * Graph; for every pair of neighbours u -> v -> w whose shortest connection leads over v a
+ * shortcut u -> w is inserted. Whether another connection (a witness) exists is decided by a
+ * bounded Dijkstra search. The result is an overlay of original edges and shortcuts in which
+ * every shortest path first climbs to vertices of higher rank and then descends, so a query only
+ * needs a bidirectional search over the upward edges, which settles a few hundred vertices even
+ * on large road-like graphs.
+ *
+ * The hierarchy does not reference the Graph it was built from and can be stored with save() and
+ * restored with load(). It is immutable; queries of different threads need their own Query.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class ContractionHierarchy<V, E> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * A witness search gives up after settling this many vertices and a shortcut is inserted.
+     * Estimating the priority only needs an approximate number of shortcuts.
+     */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+
+    /**
+     * vertex keys by vertex id
+     */
+    private final Object[] m_vertices;
+
+    /**
+     * edge keys by original edge id
+     */
+    private final Object[] m_edges;
+
+    /**
+     * position of the vertex in the contraction order by vertex id
+     */
+    private final int[] m_rank;
+
+    /**
+     * Arcs of the overlay, original edges as well as shortcuts. A shortcut replaces the two arcs
+     * m_arcFirst and m_arcSecond, an original edge has the edge id m_arcEdge (-1 for shortcuts).
+     */
+    private final int[] m_arcFrom;
+    private final int[] m_arcTo;
+    private final double[] m_arcWeight;
+    private final int[] m_arcEdge;
+    private final int[] m_arcFirst;
+    private final int[] m_arcSecond;
+
+    /**
+     * arcs leaving v to a vertex of higher rank: m_upArcs[m_upOffsets[v]..m_upOffsets[v+1])
+     */
+    private final int[] m_upOffsets;
+    private final int[] m_upArcs;
+
+    /**
+     * arcs coming into v from a vertex of higher rank: m_downArcs[m_downOffsets[v]..m_downOffsets[v+1])
+     */
+    private final int[] m_downOffsets;
+    private final int[] m_downArcs;
+
+    private transient HashMap<Object, Integer> m_ids;
+    private transient Query m_query;
+
+    private ContractionHierarchy(Contractor c) {
+        final int n = c.m_n;
+        final int m = c.m_arcCount;
+        m_vertices = c.m_vertices;
+        m_edges = c.m_edges;
+        m_rank = c.m_rank;
+        m_arcFrom = Arrays.copyOf(c.m_from, m);
+        m_arcTo = Arrays.copyOf(c.m_to, m);
+        m_arcWeight = Arrays.copyOf(c.m_weight, m);
+        m_arcEdge = Arrays.copyOf(c.m_edge, m);
+        m_arcFirst = Arrays.copyOf(c.m_first, m);
+        m_arcSecond = Arrays.copyOf(c.m_second, m);
+
+        // every arc is stored at its endpoint of lower rank
+        m_upOffsets = new int[n + 1];
+        m_downOffsets = new int[n + 1];
+        for (int a = 0; a < m; a++) {
+            if (m_rank[m_arcFrom[a]] < m_rank[m_arcTo[a]]) {
+                m_upOffsets[m_arcFrom[a] + 1]++;
+            } else {
+                m_downOffsets[m_arcTo[a] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            m_upOffsets[v + 1] += m_upOffsets[v];
+            m_downOffsets[v + 1] += m_downOffsets[v];
+        }
+        m_upArcs = new int[m_upOffsets[n]];
+        m_downArcs = new int[m_downOffsets[n]];
+        int[] up = Arrays.copyOf(m_upOffsets, n);
+        int[] down = Arrays.copyOf(m_downOffsets, n);
+        for (int a = 0; a < m; a++) {
+            if (m_rank[m_arcFrom[a]] < m_rank[m_arcTo[a]]) {
+                m_upArcs[up[m_arcFrom[a]]++] = a;
+            } else {
+                m_downArcs[down[m_arcTo[a]]++] = a;
+            }
+        }
+        initIds();
+    }
+
+    /**
+     * Contracts all vertices of graph. The edge weights must not be negative.
+     * Time complexity: depends on the structure, roughly O(n log n) witness searches on road-like
+     * graphs
+     * @param graph
+     * @return the hierarchy of graph
+     */
+    public static <V, E> ContractionHierarchy<V, E> build(IReadOnlyDigraph<V, E> graph) {
+        Contractor c = new Contractor(graph.toCompact());
+        c.contractAll();
+        return new ContractionHierarchy<>(c);
+    }
+
+    /**
+     * Reads a hierarchy written by save().
+     * @param in
+     * @return the restored hierarchy
+     * @throws IOException
+     * @throws ClassNotFoundException if the classes of the keys are not available
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, E> ContractionHierarchy<V, E> load(InputStream in) throws IOException, ClassNotFoundException {
+        return (ContractionHierarchy<V, E>) new ObjectInputStream(in).readObject();
+    }
+
+    /**
+     * Writes this hierarchy to out, so preprocessing has to run only once. The vertex and edge
+     * keys must be Serializable.
+     * @param out
+     * @throws IOException
+     */
+    public void save(OutputStream out) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(this);
+        oos.flush();
+    }
+
+    /**
+     *
+     * @return number of vertices
+     */
+    public int getNumberOfVerts() {
+        return m_vertices.length;
+    }
+
+    /**
+     *
+     * @return number of shortcuts inserted by the preprocessing
+     */
+    public int getNumberOfShortcuts() {
+        int count = 0;
+        for (int e : m_arcEdge) {
+            if (e < 0)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     *
+     * @param vertex
+     * @return position of vertex in the contraction order, higher is more important
+     */
+    public int getRank(V vertex) {
+        return m_rank[idOf(vertex)];
+    }
+
+    /**
+     * Not thread safe, see newQuery().
+     * @param origin
+     * @param target
+     * @return length of the shortest path from origin to target, Double.POSITIVE_INFINITY if
+     *         target is not reachable
+     */
+    public double distance(V origin, V target) {
+        return query().distance(origin, target);
+    }
+
+    /**
+     * Not thread safe, see newQuery().
+     * @param origin
+     * @param target
+     * @return a shortest path from origin to target with the shortcuts unpacked into the original
+     *         edges, null if target is not reachable
+     */
+    public Path<V, E> shortestPath(V origin, V target) {
+        return query().shortestPath(origin, target);
+    }
+
+    /**
+     * Creates the buffers for queries. Every thread needs its own Query, a Query can be used for
+     * any number of searches.
+     * @return a new Query on this hierarchy
+     */
+    public Query newQuery() {
+        return new Query();
+    }
+
+    private Query query() {
+        if (m_query == null)
+            m_query = new Query();
+        return m_query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V vertexAt(int id) {
+        return (V) m_vertices[id];
+    }
+
+    private int idOf(V vertex) {
+        Integer id = m_ids.get(vertex);
+        if (id == null)
+            throw new IllegalArgumentException("Vertex is not in the hierarchy.");
+        return id;
+    }
+
+    private void initIds() {
+        m_ids = new HashMap<>(Math.max(16, (int) (m_vertices.length / 0.75f) + 1));
+        for (int i = 0; i < m_vertices.length; i++) {
+            m_ids.put(m_vertices[i], i);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initIds();
+    }
+
+    /**
+     * Bidirectional Dijkstra search over the upward arcs. Distances and predecessors are kept in
+     * arrays, only the entries touched by the previous search are reset.
+     */
+    public class Query {
+        private final double[] m_fdist;
+        private final double[] m_bdist;
+        private final int[] m_fpred; // arc by vertex id
+        private final int[] m_bpred;
+        private final IndexedDoubleHeap m_fheap;
+        private final IndexedDoubleHeap m_bheap;
+        private final int[] m_touched;
+        private int m_touchedSize;
+        private int m_meet;
+
+        private Query() {
+            final int n = m_vertices.length;
+            m_fdist = new double[n];
+            m_bdist = new double[n];
+            m_fpred = new int[n];
+            m_bpred = new int[n];
+            m_fheap = new IndexedDoubleHeap(n);
+            m_bheap = new IndexedDoubleHeap(n);
+            m_touched = new int[2*n];
+            Arrays.fill(m_fdist, Double.POSITIVE_INFINITY);
+            Arrays.fill(m_bdist, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         *
+         * @param origin
+         * @param target
+         * @return length of the shortest path from origin to target, Double.POSITIVE_INFINITY if
+         *         target is not reachable
+         */
+        public double distance(V origin, V target) {
+            return search(idOf(origin), idOf(target));
+        }
+
+        /**
+         *
+         * @param origin
+         * @param target
+         * @return a shortest path from origin to target with the shortcuts unpacked into the
+         *         original edges, null if target is not reachable
+         */
+        public Path<V, E> shortestPath(V origin, V target) {
+            final double d = search(idOf(origin), idOf(target));
+            if (d == Double.POSITIVE_INFINITY)
+                return null;
+
+            // arcs of the overlay from origin over the meeting vertex to target
+            ArrayList<Integer> arcs = new ArrayList<>();
+            for (int a = m_fpred[m_meet]; a >= 0; a = m_fpred[m_arcFrom[a]]) {
+                arcs.add(a);
+            }
+            Collections.reverse(arcs);
+            for (int a = m_bpred[m_meet]; a >= 0; a = m_bpred[m_arcTo[a]]) {
+                arcs.add(a);
+            }
+
+            ArrayList<V> vertices = new ArrayList<>();
+            ArrayList<E> edges = new ArrayList<>();
+            vertices.add(origin);
+            int[] stack = new int[16];
+            for (int arc : arcs) {
+                // replace every shortcut by its two arcs until only original edges are left
+                int top = 0;
+                stack[top++] = arc;
+                while (top > 0) {
+                    int a = stack[--top];
+                    if (m_arcEdge[a] >= 0) {
+                        edges.add(edgeAt(m_arcEdge[a]));
+                        vertices.add(vertexAt(m_arcTo[a]));
+                    } else {
+                        if (top + 2 > stack.length)
+                            stack = Arrays.copyOf(stack, 2*stack.length);
+                        stack[top++] = m_arcSecond[a];
+                        stack[top++] = m_arcFirst[a];
+                    }
+                }
+            }
+            return new Path<>(vertices, edges, d);
+        }
+
+        /**
+         * Runs the search between the vertex ids source and target.
+         * @param source
+         * @param target
+         * @return length of the shortest path, Double.POSITIVE_INFINITY if target is not reachable
+         */
+        public double search(int source, int target) {
+            reset();
+            m_fdist[source] = 0.0;
+            m_fpred[source] = -1;
+            m_touched[m_touchedSize++] = source;
+            m_fheap.insert(source, 0.0);
+            m_bdist[target] = 0.0;
+            m_bpred[target] = -1;
+            m_touched[m_touchedSize++] = target;
+            m_bheap.insert(target, 0.0);
+            double mu = Double.POSITIVE_INFINITY;
+            m_meet = -1;
+
+            // a side is finished as soon as its minimum reaches the best path seen so far
+            while (true) {
+                final double fmin = m_fheap.minKey();
+                final double bmin = m_bheap.minKey();
+                if (fmin >= mu && bmin >= mu)
+                    break;
+                if (fmin <= bmin) {
+                    final int u = m_fheap.removeMin();
+                    final double du = m_fdist[u];
+                    if (du + m_bdist[u] < mu) {
+                        mu = du + m_bdist[u];
+                        m_meet = u;
+                    }
+                    if (stalled(m_fdist, du, m_downOffsets[u], m_downOffsets[u + 1], m_downArcs, m_arcFrom))
+                        continue;
+                    for (int i = m_upOffsets[u], end = m_upOffsets[u + 1]; i < end; i++) {
+                        final int a = m_upArcs[i];
+                        relax(m_fdist, m_fpred, m_fheap, m_arcTo[a], du + m_arcWeight[a], a);
+                    }
+                } else {
+                    final int u = m_bheap.removeMin();
+                    final double du = m_bdist[u];
+                    if (m_fdist[u] + du < mu) {
+                        mu = m_fdist[u] + du;
+                        m_meet = u;
+                    }
+                    if (stalled(m_bdist, du, m_upOffsets[u], m_upOffsets[u + 1], m_upArcs, m_arcTo))
+                        continue;
+                    for (int i = m_downOffsets[u], end = m_downOffsets[u + 1]; i < end; i++) {
+                        final int a = m_downArcs[i];
+                        relax(m_bdist, m_bpred, m_bheap, m_arcFrom[a], du + m_arcWeight[a], a);
+                    }
+                }
+            }
+            return mu;
+        }
+
+        /**
+         * Stall-on-demand: a vertex reached over a higher vertex with a shorter distance than
+         * found by the upward search is not on a shortest path, its arcs need not be relaxed.
+         * @param arcs the arcs between the settled vertex and higher vertices against the search
+         *        direction, ends gives their other end
+         */
+        private boolean stalled(double[] dist, double du, int begin, int end, int[] arcs, int[] ends) {
+            for (int i = begin; i < end; i++) {
+                final int a = arcs[i];
+                if (dist[ends[a]] + m_arcWeight[a] < du)
+                    return true;
+            }
+            return false;
+        }
+
+        private void relax(double[] dist, int[] pred, IndexedDoubleHeap heap, int v, double d, int arc) {
+            if (d < dist[v]) {
+                if (m_fdist[v] == Double.POSITIVE_INFINITY && m_bdist[v] == Double.POSITIVE_INFINITY)
+                    m_touched[m_touchedSize++] = v;
+                heap.insertOrDecrease(v, d);
+                dist[v] = d;
+                pred[v] = arc;
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < m_touchedSize; i++) {
+                final int v = m_touched[i];
+                m_fdist[v] = Double.POSITIVE_INFINITY;
+                m_bdist[v] = Double.POSITIVE_INFINITY;
+            }
+            m_touchedSize = 0;
+            m_fheap.clear();
+            m_bheap.clear();
+        }
+
+        @SuppressWarnings("unchecked")
+        private E edgeAt(int id) {
+            return (E) m_edges[id];
+        }
+    }
+
+    /**
+     * State of the preprocessing. The remaining Graph is kept as lists of arc ids per vertex;
+     * arcs to contracted vertices are removed from the lists of the neighbours.
+     */
+    private static class Contractor {
+        private final int m_n;
+        private final Object[] m_vertices;
+        private final Object[] m_edges;
+
+        private int m_arcCount;
+        private int[] m_from;
+        private int[] m_to;
+        private double[] m_weight;
+        private int[] m_edge;
+        private int[] m_first;
+        private int[] m_second;
+
+        private final int[][] m_out;
+        private final int[] m_outSize;
+        private final int[][] m_in;
+        private final int[] m_inSize;
+
+        private final boolean[] m_contracted;
+        private final boolean[] m_target; // out neighbours of the vertex being contracted
+        private final int[] m_deleted; // number of contracted neighbours by vertex id
+        private final int[] m_updated; // last contracted neighbour by vertex id
+        private final int[] m_rank;
+
+        // witness search
+        private final double[] m_dist;
+        private final IndexedDoubleHeap m_heap;
+        private final int[] m_touched;
+        private int m_touchedSize;
+
+        private <V, E> Contractor(CompactDigraph<V, E> g) {
+            final int n = g.getNumberOfVerts();
+            final int m = g.getNumberOfEdges();
+            m_n = n;
+            m_vertices = new Object[n];
+            m_edges = new Object[m];
+            for (int v = 0; v < n; v++) {
+                m_vertices[v] = g.vertexOf(v);
+            }
+            for (int e = 0; e < m; e++) {
+                m_edges[e] = g.edgeOf(e);
+            }
+
+            final int capacity = Math.max(16, m);
+            m_from = new int[capacity];
+            m_to = new int[capacity];
+            m_weight = new double[capacity];
+            m_edge = new int[capacity];
+            m_first = new int[capacity];
+            m_second = new int[capacity];
+            m_out = new int[n][];
+            m_outSize = new int[n];
+            m_in = new int[n][];
+            m_inSize = new int[n];
+            for (int v = 0; v < n; v++) {
+                m_out[v] = new int[Math.max(2, g.outEnd(v) - g.outBegin(v))];
+                m_in[v] = new int[Math.max(2, g.inEnd(v) - g.inBegin(v))];
+            }
+
+            m_contracted = new boolean[n];
+            m_target = new boolean[n];
+            m_deleted = new int[n];
+            m_updated = new int[n];
+            Arrays.fill(m_updated, -1);
+            m_rank = new int[n];
+            m_dist = new double[n];
+            m_heap = new IndexedDoubleHeap(n);
+            m_touched = new int[n];
+            Arrays.fill(m_dist, Double.POSITIVE_INFINITY);
+
+            // of parallel edges only the lightest one can be on a shortest path, loops never are
+            for (int u = 0; u < n; u++) {
+                for (int e = g.outBegin(u), end = g.outEnd(u); e < end; e++) {
+                    final int w = g.target(e);
+                    if (u == w)
+                        continue;
+                    final int a = findArc(u, w);
+                    if (a < 0) {
+                        addArc(u, w, g.weight(e), e, -1, -1);
+                    } else if (g.weight(e) < m_weight[a]) {
+                        m_weight[a] = g.weight(e);
+                        m_edge[a] = e;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Contracts the vertices in order of their priority. The priorities are updated lazily:
+         * the priority of the removed vertex is recomputed and the vertex is put back if it is
+         * no longer the smallest.
+         */
+        private void contractAll() {
+            IndexedDoubleHeap order = new IndexedDoubleHeap(m_n);
+            for (int v = 0; v < m_n; v++) {
+                order.insert(v, priority(v));
+            }
+            int rank = 0;
+            while (!order.isEmpty()) {
+                final int v = order.removeMin();
+                final double p = priority(v);
+                if (!order.isEmpty() && p > order.minKey()) {
+                    order.insert(v, p);
+                    continue;
+                }
+                contract(v, true);
+                m_contracted[v] = true;
+                m_rank[v] = rank++;
+                // the priorities of the neighbours change most, update them right away
+                for (int i = 0; i < m_outSize[v]; i++) {
+                    updateNeighbour(order, m_to[m_out[v][i]], v);
+                }
+                for (int i = 0; i < m_inSize[v]; i++) {
+                    updateNeighbour(order, m_from[m_in[v][i]], v);
+                }
+            }
+        }
+
+        /**
+         * Removes the arcs to contracted vertices from the lists of u and recomputes its priority.
+         * Called once per neighbour u of the contracted vertex v.
+         */
+        private void updateNeighbour(IndexedDoubleHeap order, int u, int v) {
+            if (!m_contracted[u] && m_updated[u] != v) {
+                m_updated[u] = v;
+                m_outSize[u] = prune(m_out[u], m_outSize[u], m_to);
+                m_inSize[u] = prune(m_in[u], m_inSize[u], m_from);
+                m_deleted[u]++;
+                order.changeKey(u, priority(u));
+            }
+        }
+
+        /**
+         * Keeps the arcs whose other end given by ends is not contracted.
+         * @return new size of the list
+         */
+        private int prune(int[] arcs, int size, int[] ends) {
+            int k = 0;
+            for (int i = 0; i < size; i++) {
+                if (!m_contracted[ends[arcs[i]]])
+                    arcs[k++] = arcs[i];
+            }
+            return k;
+        }
+
+        /**
+         * Edge difference plus number of contracted neighbours, the latter spreads the
+         * contraction uniformly over the Graph.
+         */
+        private double priority(int v) {
+            int removed = 0;
+            for (int i = 0; i < m_outSize[v]; i++) {
+                if (!m_contracted[m_to[m_out[v][i]]])
+                    removed++;
+            }
+            for (int i = 0; i < m_inSize[v]; i++) {
+                if (!m_contracted[m_from[m_in[v][i]]])
+                    removed++;
+            }
+            return contract(v, false) - removed + m_deleted[v];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract v.
+         * @param insert true to insert the shortcuts, false to count them only
+         * @return number of shortcuts
+         */
+        private int contract(int v, boolean insert) {
+            double maxOut = 0;
+            int targets = 0;
+            for (int j = 0; j < m_outSize[v]; j++) {
+                final int a = m_out[v][j];
+                if (!m_contracted[m_to[a]]) {
+                    maxOut = Math.max(maxOut, m_weight[a]);
+                    m_target[m_to[a]] = true;
+                    targets++;
+                }
+            }
+
+            int shortcuts = 0;
+            for (int i = 0; i < m_inSize[v]; i++) {
+                final int a1 = m_in[v][i];
+                final int u = m_from[a1];
+                if (m_contracted[u])
+                    continue;
+                witnessSearch(u, v, m_weight[a1] + maxOut, m_target[u] ? targets - 1 : targets,
+                        insert ? WITNESS_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT);
+                for (int j = 0; j < m_outSize[v]; j++) {
+                    final int a2 = m_out[v][j];
+                    final int w = m_to[a2];
+                    if (m_contracted[w] || w == u)
+                        continue;
+                    final double via = m_weight[a1] + m_weight[a2];
+                    if (m_dist[w] > via) {
+                        shortcuts++;
+                        if (insert)
+                            addShortcut(u, w, via, a1, a2);
+                    }
+                }
+                resetWitness();
+            }
+            for (int j = 0; j < m_outSize[v]; j++) {
+                m_target[m_to[m_out[v][j]]] = false;
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Dijkstra from source in the remaining Graph without skip. Stops as soon as all targets
+         * are settled, at distance maxDist or after limit settled vertices.
+         * @param targets number of marked targets other than source
+         */
+        private void witnessSearch(int source, int skip, double maxDist, int targets, int limit) {
+            m_dist[source] = 0.0;
+            m_touched[m_touchedSize++] = source;
+            m_heap.insert(source, 0.0);
+            int settled = 0;
+            while (!m_heap.isEmpty() && m_heap.minKey() <= maxDist && settled++ < limit && targets > 0) {
+                final int u = m_heap.removeMin();
+                if (m_target[u] && u != source)
+                    targets--;
+                for (int i = 0; i < m_outSize[u]; i++) {
+                    final int a = m_out[u][i];
+                    final int w = m_to[a];
+                    if (m_contracted[w] || w == skip)
+                        continue;
+                    final double d = m_dist[u] + m_weight[a];
+                    if (d < m_dist[w]) {
+                        if (m_dist[w] == Double.POSITIVE_INFINITY) {
+                            m_touched[m_touchedSize++] = w;
+                            m_heap.insert(w, d);
+                        } else {
+                            m_heap.decreaseKey(w, d);
+                        }
+                        m_dist[w] = d;
+                    }
+                }
+            }
+        }
+
+        private void resetWitness() {
+            for (int i = 0; i < m_touchedSize; i++) {
+                m_dist[m_touched[i]] = Double.POSITIVE_INFINITY;
+            }
+            m_touchedSize = 0;
+            m_heap.clear();
+        }
+
+        private void addShortcut(int u, int w, double weight, int first, int second) {
+            final int a = findArc(u, w);
+            if (a < 0) {
+                addArc(u, w, weight, -1, first, second);
+            } else if (weight < m_weight[a]) {
+                m_weight[a] = weight;
+                m_edge[a] = -1;
+                m_first[a] = first;
+                m_second[a] = second;
+            }
+        }
+
+        /**
+         *
+         * @return the arc from u to w, -1 if there is none
+         */
+        private int findArc(int u, int w) {
+            for (int i = 0; i < m_outSize[u]; i++) {
+                if (m_to[m_out[u][i]] == w)
+                    return m_out[u][i];
+            }
+            return -1;
+        }
+
+        private void addArc(int u, int w, double weight, int edge, int first, int second) {
+            if (m_arcCount == m_from.length) {
+                final int capacity = 2*m_arcCount;
+                m_from = Arrays.copyOf(m_from, capacity);
+                m_to = Arrays.copyOf(m_to, capacity);
+                m_weight = Arrays.copyOf(m_weight, capacity);
+                m_edge = Arrays.copyOf(m_edge, capacity);
+                m_first = Arrays.copyOf(m_first, capacity);
+                m_second = Arrays.copyOf(m_second, capacity);
+            }
+            final int a = m_arcCount++;
+            m_from[a] = u;
+            m_to[a] = w;
+            m_weight[a] = weight;
+            m_edge[a] = edge;
+            m_first[a] = first;
+            m_second[a] = second;
+
+            if (m_outSize[u] == m_out[u].length)
+                m_out[u] = Arrays.copyOf(m_out[u], 2*m_outSize[u]);
+            m_out[u][m_outSize[u]++] = a;
+            if (m_inSize[w] == m_in[w].length)
+                m_in[w] = Arrays.copyOf(m_in[w], 2*m_inSize[w]);
+            m_in[w][m_inSize[w]++] = a;
+        }
+    }
+}
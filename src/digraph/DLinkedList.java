@@ -14,6 +14,12 @@ public class DLinkedList<E> extends AbstractList<E> {
 	private ListItem last;
 	private int size = 0;
 	
+	/**
+	 * Ownership token of the items of this list. Replaced by a new token when the items are
+	 * spliced into another list.
+	 */
+	private Owner owner = new Owner(this);
+	
 	/**
 	 * Tells if the argument is the index of an existing element.
 	 * @param index to test
@@ -341,7 +347,7 @@ public class DLinkedList<E> extends AbstractList<E> {
 	 * @return true if item is member of a list
 	 */
 	private boolean checkOwnership(ListItem item) {
-		return item.getOwner() != null;
+		return item.owner != null;
 	}
 
 	/**
@@ -721,6 +727,7 @@ public class DLinkedList<E> extends AbstractList<E> {
 
 	/**
 	 * Inserts list after item in O(n) time, where n is the size of list.
+	 * If list is a DLinkedList its items are spliced in O(1) time.
 	 * Makes list the empty list;
 	 * @param item can be null
 	 */
@@ -734,6 +741,8 @@ public class DLinkedList<E> extends AbstractList<E> {
 		
 		if (item == null) {
 			conc(list, false);
+		} else if (list instanceof DLinkedList) {
+			splice(item, (DLinkedList<E>) list);
 		} else {
 			Iterator<E> itr = list.iterator();
 			while (itr.hasNext()) {
@@ -746,6 +755,7 @@ public class DLinkedList<E> extends AbstractList<E> {
 
 	/**
 	 * Inserts list before item in O(n) time, where n is the size of list.
+	 * If list is a DLinkedList its items are spliced in O(1) time.
 	 * Makes list the empty list;
 	 * @param item can be null
 	 */
@@ -759,6 +769,8 @@ public class DLinkedList<E> extends AbstractList<E> {
 		
 		if (item == null) {
 			conc(list, true);
+		} else if (list instanceof DLinkedList) {
+			splice(item.getPrev(), (DLinkedList<E>) list);
 		} else {
 			Iterator<E> itr = list.iterator();
 			while (itr.hasNext()) {
@@ -771,6 +783,7 @@ public class DLinkedList<E> extends AbstractList<E> {
 	/**
 	 * Appends (after = true) or prepends (after = false) list to this list in O(n) time 
 	 * and makes list the empty list. n is the size of list.
+	 * If list is a DLinkedList its items are spliced in O(1) time.
 	 * @param list
 	 * @param after
 	 */
@@ -780,7 +793,9 @@ public class DLinkedList<E> extends AbstractList<E> {
 		if (list == this)
 			throw new IllegalArgumentException("List must be another list than this.");
 
-		if (after) {
+		if (list instanceof DLinkedList) {
+			splice(after ? last : null, (DLinkedList<E>) list);
+		} else if (after) {
 			Iterator<E> itr = list.iterator();
 			while (itr.hasNext()) {
 				addTail(itr.next());
@@ -799,6 +814,45 @@ public class DLinkedList<E> extends AbstractList<E> {
 		}
 	}
 
+	/**
+	 * Moves all items of list behind pred in O(1) time and makes list the empty list.
+	 * The items keep their identity. They still refer to the ownership token of list, which is
+	 * forwarded to the token of this list, while list gets a new token.
+	 * @param pred item of this list after which list is inserted, null to insert in front
+	 * @param list another list
+	 */
+	private void splice(ListItem pred, DLinkedList<E> list) {
+		assert pred == null || checkMembership(pred) : "Item must be in this list.";
+		assert list != this : "List must be another list than this.";
+		
+		if (list.size == 0) return;
+		
+		final ListItem succ = (pred == null) ? first : pred.getNext();
+		list.first.setPrev(pred);
+		list.last.setNext(succ);
+		if (pred == null) {
+			first = list.first;
+		} else {
+			pred.setNext(list.first);
+		}
+		if (succ == null) {
+			last = list.last;
+		} else {
+			succ.setPrev(list.last);
+		}
+		size += list.size;
+		modCount++;
+		
+		// hand the items over to this list
+		list.owner.forward = owner;
+		list.owner.list = null;
+		list.owner = new Owner(list);
+		list.first = null;
+		list.last = null;
+		list.size = 0;
+		list.modCount++;
+	}
+
 	/**
 	 * Removes a (cyclic extended) sublist in O(n) time, where n is the size of the returned list.
 	 * If startInclusive = endExclusive then this list becomes the empty list.
@@ -845,13 +899,46 @@ public class DLinkedList<E> extends AbstractList<E> {
 		return returned;
 	}
 	
+	/**
+	 * Ownership token shared by the items of a list. After a splice the token of the emptied list
+	 * forwards to the token of the receiving list, so the owner of an item is found by following
+	 * the forward references (union-find with path compression).
+	 */
+	private static class Owner {
+		@SuppressWarnings("rawtypes")
+		private DLinkedList list;	// owning list, null if forwarded
+		private Owner forward;		// token this one was merged into
+		
+		@SuppressWarnings("rawtypes")
+		private Owner(DLinkedList list) {
+			this.list = list;
+		}
+		
+		/**
+		 * Follows the forward references and shortens them.
+		 * @return the token that is currently used by a list
+		 */
+		private Owner find() {
+			Owner root = this;
+			while (root.forward != null) {
+				root = root.forward;
+			}
+			Owner o = this;
+			while (o.forward != null) {
+				Owner f = o.forward;
+				o.forward = root;
+				o = f;
+			}
+			return root;
+		}
+	}
+	
 	public static class ListItem {
 		
 		private Object data;
 		private ListItem prev;
 		private ListItem next;
-		@SuppressWarnings("rawtypes")
-		private DLinkedList owner;
+		private Owner owner;
 		
 		private ListItem() {}
 		
@@ -860,7 +947,7 @@ public class DLinkedList<E> extends AbstractList<E> {
 			this.data = data;
 			this.prev = prev;
 			this.next = next;
-			this.owner = owner;
+			this.owner = (owner == null) ? null : owner.owner;
 		}
 
 		private Object getData() {
@@ -887,14 +974,22 @@ public class DLinkedList<E> extends AbstractList<E> {
 			this.next = next;
 		}
 		
+		/**
+		 * Returns the list this item is in. Amortized O(1) after splicing.
+		 * @return owning list or null if the item is in no list
+		 */
 		@SuppressWarnings("rawtypes")
 		public DLinkedList getOwner() {
-			return owner;
+			if (owner == null) return null;
+			if (owner.forward != null) {
+				owner = owner.find();
+			}
+			return owner.list;
 		}
 		
 		@SuppressWarnings("rawtypes")
 		private void setOwner(DLinkedList owner) {
-			this.owner = owner;
+			this.owner = (owner == null) ? null : owner.owner;
 		}
 	}
 	
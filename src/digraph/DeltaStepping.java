@@ -0,0 +1,383 @@
+package digraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel single source shortest paths by delta-stepping (Meyer, Sanders). The vertices are kept
+ * in buckets of width delta by their tentative distance. The smallest bucket is emptied in phases:
+ * all its vertices relax their light edges (weight at most delta) in parallel, which may refill the
+ * bucket, afterwards the heavy edges of all vertices removed from the bucket are relaxed once.
+ * With delta = 0 this is Dijkstra's algorithm, with infinite delta Bellman-Ford.
+ *
+ * The distances are stored as bits of non negative doubles in an AtomicLongArray; for those the
+ * order of the bits equals the order of the values, so an improvement is a compare-and-set loop.
+ * Since the predecessors cannot be updated together with the distances, they are derived from
+ * the final distances afterwards.
+ *
+ * Only buckets within the largest edge weight of the current bucket can be non empty, they are
+ * stored in a cyclic array.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class DeltaStepping<V, E> {
+
+    /**
+     * Number of vertices relaxed by one task.
+     */
+    private static final int CHUNK = 512;
+
+    private static final long INFINITY = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+
+    private final CompactDigraph<V, E> m_graph;
+    private final ForkJoinPool m_pool;
+    private final double m_delta;
+    private final int m_buckets; // length of the cyclic bucket array
+    private final boolean m_zeroWeights;
+
+    /**
+     * Creates a search with an automatically chosen delta: the largest weight divided by the
+     * average outdegree, so that a vertex has about one heavy edge.
+     * @param graph
+     * @param pool
+     */
+    public DeltaStepping(CompactDigraph<V, E> graph, ForkJoinPool pool) {
+        this(graph, pool, autoDelta(graph));
+    }
+
+    /**
+     * @param graph
+     * @param pool
+     * @param delta width of the buckets, must be positive
+     * @throws IllegalArgumentException if delta is so small that too many buckets would be needed
+     */
+    public DeltaStepping(CompactDigraph<V, E> graph, ForkJoinPool pool, double delta) {
+        assert (delta > 0) : "delta must be positive";
+        double max = 0;
+        boolean zero = false;
+        for (int e = 0; e < graph.getNumberOfEdges(); e++) {
+            max = Math.max(max, graph.weight(e));
+            zero |= graph.weight(e) == 0;
+        }
+        double buckets = Math.ceil(max/delta) + 2;
+        if (buckets > 1 << 24)
+            throw new IllegalArgumentException("delta " + delta + " is too small for weights up to " + max + ".");
+        m_graph = graph;
+        m_pool = pool;
+        m_delta = delta;
+        m_buckets = (int) buckets;
+        m_zeroWeights = zero;
+    }
+
+    private static double autoDelta(CompactDigraph<?, ?> graph) {
+        final int n = graph.getNumberOfVerts();
+        final int m = graph.getNumberOfEdges();
+        double max = 0;
+        double minPositive = Double.POSITIVE_INFINITY;
+        for (int e = 0; e < m; e++) {
+            final double w = graph.weight(e);
+            max = Math.max(max, w);
+            if (w > 0)
+                minPositive = Math.min(minPositive, w);
+        }
+        if (max == 0)
+            return 1.0;
+        return Math.max(minPositive, max/Math.max(1.0, (double) m/Math.max(1, n)));
+    }
+
+    /**
+     *
+     * @return the width of the buckets
+     */
+    public double getDelta() {
+        return m_delta;
+    }
+
+    /**
+     * Computes the shortest paths from origin to all reachable vertices.
+     * @param origin
+     * @return distances and predecessors
+     */
+    public ShortestPathTree<V, E> shortestPathTree(V origin) {
+        assert (m_graph.containsVertex(origin)) : "Vertex must be in this Graph";
+        final int s = m_graph.idOf(origin);
+        double[] dist = distances(s);
+        return new CompactShortestPathTree<>(m_graph, s, dist, predecessors(s, dist));
+    }
+
+    /**
+     * Computes the distances from the vertex with id source.
+     * @param source vertex id
+     * @return distance by vertex id, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double[] distances(int source) {
+        final int n = m_graph.getNumberOfVerts();
+        AtomicLongArray dist = new AtomicLongArray(n);
+        for (int v = 0; v < n; v++) {
+            dist.set(v, INFINITY);
+        }
+        new Search(dist).run(source);
+
+        double[] d = new double[n];
+        for (int v = 0; v < n; v++) {
+            d[v] = Double.longBitsToDouble(dist.get(v));
+        }
+        return d;
+    }
+
+    /**
+     * For every reached vertex an incoming edge whose weight closes the gap to the distance of
+     * its origin is the predecessor. Edges of weight 0 could close cycles among vertices with
+     * equal distance, so those are only followed from vertices that already have a predecessor.
+     */
+    private int[] predecessors(final int source, final double[] dist) {
+        final int n = dist.length;
+        final int[] pred = new int[n];
+        Arrays.fill(pred, -1);
+        final CompactDigraph<V, E> g = m_graph;
+        m_pool.invoke(new Range(0, n) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            void run(int v) {
+                if (v == source || dist[v] == Double.POSITIVE_INFINITY)
+                    return;
+                for (int i = g.inBegin(v), end = g.inEnd(v); i < end; i++) {
+                    final double w = g.inWeight(i);
+                    if (w > 0 && dist[g.inSource(i)] + w == dist[v]) {
+                        pred[v] = g.inEdge(i);
+                        return;
+                    }
+                }
+            }
+        });
+
+        if (m_zeroWeights) {
+            int[] stack = new int[n];
+            int top = 0;
+            for (int v = 0; v < n; v++) {
+                if (v == source || pred[v] >= 0)
+                    stack[top++] = v;
+            }
+            while (top > 0) {
+                final int u = stack[--top];
+                for (int e = g.outBegin(u), end = g.outEnd(u); e < end; e++) {
+                    final int v = g.target(e);
+                    if (g.weight(e) == 0 && v != source && pred[v] < 0 && dist[v] == dist[u]) {
+                        pred[v] = e;
+                        stack[top++] = v;
+                    }
+                }
+            }
+        }
+        return pred;
+    }
+
+    /**
+     * State of one search: the distances and the cyclic buckets. The buckets are only changed by
+     * the coordinating thread, the relaxing tasks report the improved vertices.
+     */
+    private class Search {
+        private final AtomicLongArray m_dist;
+        private final long[] m_queued; // bucket number the vertex was last put into, -1 if none
+        private final int[][] m_bucket;
+        private final int[] m_bucketSize;
+        private long m_pending; // entries in all buckets, including outdated ones
+
+        private Search(AtomicLongArray dist) {
+            final int n = dist.length();
+            m_dist = dist;
+            m_queued = new long[n];
+            Arrays.fill(m_queued, -1);
+            m_bucket = new int[m_buckets][];
+            m_bucketSize = new int[m_buckets];
+            for (int b = 0; b < m_buckets; b++) {
+                m_bucket[b] = new int[16];
+            }
+        }
+
+        private void run(int source) {
+            m_dist.set(source, Double.doubleToRawLongBits(0.0));
+            enqueue(source);
+            int[] removed = new int[16];
+            long current = 0;
+            while (m_pending > 0) {
+                while (m_bucketSize[(int) (current % m_buckets)] == 0) {
+                    current++;
+                }
+                final int slot = (int) (current % m_buckets);
+                int removedSize = 0;
+                while (m_bucketSize[slot] > 0) {
+                    // take the bucket, skipping vertices that moved to a smaller bucket since
+                    int[] frontier = m_bucket[slot];
+                    int size = m_bucketSize[slot];
+                    m_bucket[slot] = new int[16];
+                    m_bucketSize[slot] = 0;
+                    m_pending -= size;
+                    int k = 0;
+                    for (int i = 0; i < size; i++) {
+                        final int v = frontier[i];
+                        if (m_queued[v] == current) {
+                            m_queued[v] = -1;
+                            frontier[k++] = v;
+                        }
+                    }
+                    if (removedSize + k > removed.length)
+                        removed = Arrays.copyOf(removed, Math.max(2*removed.length, removedSize + k));
+                    System.arraycopy(frontier, 0, removed, removedSize, k);
+                    removedSize += k;
+                    relax(frontier, k, true);
+                }
+                relax(removed, removedSize, false);
+                current++;
+            }
+        }
+
+        /**
+         * Relaxes the light or heavy edges of the vertices in parallel and puts the improved
+         * vertices into their buckets.
+         */
+        private void relax(int[] vertices, int size, boolean light) {
+            if (size == 0)
+                return;
+            final int chunks = (size + CHUNK - 1)/CHUNK;
+            final List<Relax> tasks = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                tasks.add(new Relax(this, vertices, c*CHUNK, Math.min(size, (c + 1)*CHUNK), light));
+            }
+            if (chunks == 1) {
+                tasks.get(0).compute();
+            } else {
+                m_pool.invoke(new RecursiveAction() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                        ForkJoinTask.invokeAll(tasks);
+                    }
+                });
+            }
+            for (Relax t : tasks) {
+                for (int i = 0; i < t.m_improvedSize; i++) {
+                    enqueue(t.m_improved[i]);
+                }
+            }
+        }
+
+        private void enqueue(int v) {
+            final long b = (long) (Double.longBitsToDouble(m_dist.get(v))/m_delta);
+            if (m_queued[v] == b)
+                return;
+            m_queued[v] = b;
+            final int slot = (int) (b % m_buckets);
+            if (m_bucketSize[slot] == m_bucket[slot].length)
+                m_bucket[slot] = Arrays.copyOf(m_bucket[slot], 2*m_bucketSize[slot]);
+            m_bucket[slot][m_bucketSize[slot]++] = v;
+            m_pending++;
+        }
+    }
+
+    /**
+     * Relaxes the light or the heavy edges of a range of vertices and collects the vertices
+     * whose distance was lowered.
+     */
+    private class Relax extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search m_search;
+        private final int[] m_vertices;
+        private final int m_begin;
+        private final int m_end;
+        private final boolean m_light;
+        private int[] m_improved = new int[16];
+        private int m_improvedSize;
+
+        private Relax(Search search, int[] vertices, int begin, int end, boolean light) {
+            m_search = search;
+            m_vertices = vertices;
+            m_begin = begin;
+            m_end = end;
+            m_light = light;
+        }
+
+        @Override
+        protected void compute() {
+            final CompactDigraph<V, E> g = m_graph;
+            final AtomicLongArray dist = m_search.m_dist;
+            final double delta = m_delta;
+            for (int i = m_begin; i < m_end; i++) {
+                final int u = m_vertices[i];
+                final double du = Double.longBitsToDouble(dist.get(u));
+                for (int e = g.outBegin(u), end = g.outEnd(u); e < end; e++) {
+                    final double w = g.weight(e);
+                    if ((w <= delta) != m_light)
+                        continue;
+                    final int v = g.target(e);
+                    final long nd = Double.doubleToRawLongBits(du + w);
+                    long cur = dist.get(v);
+                    while (nd < cur) {
+                        if (dist.compareAndSet(v, cur, nd)) {
+                            if (m_improvedSize == m_improved.length)
+                                m_improved = Arrays.copyOf(m_improved, 2*m_improvedSize);
+                            m_improved[m_improvedSize++] = v;
+                            break;
+                        }
+                        cur = dist.get(v);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parallel loop over the indices begin..end-1.
+     */
+    private static abstract class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int m_begin;
+        private final int m_end;
+
+        Range(int begin, int end) {
+            m_begin = begin;
+            m_end = end;
+        }
+
+        abstract void run(int i);
+
+        @Override
+        protected void compute() {
+            if (m_end - m_begin > 8*CHUNK) {
+                final int mid = (m_begin + m_end) >>> 1;
+                final Range outer = this;
+                invokeAll(new Range(m_begin, mid) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void run(int i) {
+                        outer.run(i);
+                    }
+                }, new Range(mid, m_end) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void run(int i) {
+                        outer.run(i);
+                    }
+                });
+                return;
+            }
+            for (int i = m_begin; i < m_end; i++) {
+                run(i);
+            }
+        }
+    }
+}
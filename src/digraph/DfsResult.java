@@ -0,0 +1,164 @@
+package digraph;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Result of a depth first search over a whole Graph. Contains the discovery and finish times, the
+ * predecessors in the depth first forest, the vertices in pre-, post- and reverse postorder and the
+ * back edges. The Graph is acyclic iff there are no back edges, in this case the reverse postorder
+ * is a topological order.
+ *
+ * The search numbers the vertices internally, the results are mapped back to the vertices on
+ * request.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class DfsResult<V, E> {
+
+    private final Object[] m_vertices; // vertex by index, null for unused indices
+    private final int[] m_discovery; // discovery time by index, starting at 1
+    private final int[] m_finish; // finish time by index
+    private final int[] m_pred; // index of the predecessor by index, -1 for roots
+    private final int[] m_preorder; // indices in order of discovery
+    private final int[] m_postorder; // indices in order of finishing
+    private final List<E> m_backEdges;
+
+    private HashMap<V, Integer> m_index; // created on first request
+
+    /**
+     * Takes over the arrays filled by a search.
+     */
+    DfsResult(Object[] vertices, int[] discovery, int[] finish, int[] pred, int[] preorder, int[] postorder,
+            List<E> backEdges) {
+        m_vertices = vertices;
+        m_discovery = discovery;
+        m_finish = finish;
+        m_pred = pred;
+        m_preorder = preorder;
+        m_postorder = postorder;
+        m_backEdges = backEdges;
+    }
+
+    /**
+     *
+     * @param vertex
+     * @return time at which vertex was discovered (turned grey)
+     */
+    public int getDiscoveryTime(V vertex) {
+        return m_discovery[indexOf(vertex)];
+    }
+
+    /**
+     *
+     * @param vertex
+     * @return time at which all descendants of vertex were visited (turned black)
+     */
+    public int getFinishTime(V vertex) {
+        return m_finish[indexOf(vertex)];
+    }
+
+    /**
+     *
+     * @param vertex
+     * @return predecessor of vertex in the depth first forest, null if vertex is a root
+     */
+    public V getPredecessor(V vertex) {
+        int p = m_pred[indexOf(vertex)];
+        return (p < 0) ? null : vertexAt(p);
+    }
+
+    /**
+     *
+     * @return HashMap with vertex v as key and forerunner vertex as value, null for roots
+     */
+    public HashMap<V, V> getPredecessors() {
+        HashMap<V, V> a = new HashMap<>(Math.max(16, (int) (m_vertices.length / 0.75f) + 1));
+        for (int i = 0; i < m_vertices.length; i++) {
+            if (m_vertices[i] != null)
+                a.put(vertexAt(i), (m_pred[i] < 0) ? null : vertexAt(m_pred[i]));
+        }
+        return a;
+    }
+
+    /**
+     *
+     * @return the vertices in order of discovery
+     */
+    public List<V> getPreorder() {
+        return asList(m_preorder, false);
+    }
+
+    /**
+     *
+     * @return the vertices in order of finishing
+     */
+    public List<V> getPostorder() {
+        return asList(m_postorder, false);
+    }
+
+    /**
+     *
+     * @return the vertices in reverse order of finishing, a topological order if the Graph is
+     *         acyclic
+     */
+    public List<V> getReversePostorder() {
+        return asList(m_postorder, true);
+    }
+
+    /**
+     *
+     * @return the edges leading to a vertex on the current search path, each of them closes a cycle
+     */
+    public List<E> getBackEdges() {
+        return m_backEdges;
+    }
+
+    /**
+     *
+     * @return true if the Graph contains a cycle
+     */
+    public boolean hasCycle() {
+        return !m_backEdges.isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V vertexAt(int i) {
+        return (V) m_vertices[i];
+    }
+
+    private int indexOf(V vertex) {
+        if (m_index == null) {
+            m_index = new HashMap<>(Math.max(16, (int) (m_vertices.length / 0.75f) + 1));
+            for (int i = 0; i < m_vertices.length; i++) {
+                if (m_vertices[i] != null)
+                    m_index.put(vertexAt(i), i);
+            }
+        }
+        Integer i = m_index.get(vertex);
+        if (i == null)
+            throw new IllegalArgumentException("Vertex was not searched.");
+        return i;
+    }
+
+    /**
+     * Read-only list view over an array of indices.
+     */
+    private List<V> asList(final int[] order, final boolean reversed) {
+        return new AbstractList<V>() {
+            @Override
+            public V get(int i) {
+                return vertexAt(order[reversed ? order.length - 1 - i : i]);
+            }
+
+            @Override
+            public int size() {
+                return order.length;
+            }
+        };
+    }
+}
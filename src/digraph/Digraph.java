@@ -2,18 +2,25 @@ package digraph;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.ToDoubleBiFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -32,19 +39,41 @@ import java.util.stream.Collectors;
  */
 public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
 
+    private static final long serialVersionUID = 1L;
+
     /**
-     * internal Datastructure used to store all Vertices
+     * internal Datastructure used to store all Vertices. The structures are serialized by
+     * writeObject().
      */
-    private HashMap<V, Vertex> m_vList;
+    private transient HashMap<V, Vertex> m_vList;
 
     /**
      * internal Datastructure used to store all Edges
      */
-    private HashMap<E, Edge> m_eList;
+    private transient HashMap<E, Edge> m_eList;
+
+    /**
+     * Dense ids of the vertices and edges, assigned on insertion and reused after removal. The
+     * algorithms keep their state in arrays indexed by these ids.
+     */
+    private transient IdTable<Vertex> m_vertexIds;
+    private transient IdTable<Edge> m_edgeIds;
+
+    /**
+     * Registered listeners, null if there are none. Not serialized.
+     */
+    private transient ArrayList<DigraphListener<? super V, ? super E>> m_listeners;
+
+    /**
+     * Set while the structures above are shared with lazy copies, see lazyCopy().
+     */
+    private transient Share m_share;
 
     public Digraph() {
         m_vList = new HashMap<>();
         m_eList = new HashMap<>();
+        m_vertexIds = new IdTable<>();
+        m_edgeIds = new IdTable<>();
     }
 
     /**
@@ -57,6 +86,8 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
     public Digraph(int sizeVertex, int sizeEdge) {
         m_vList = new HashMap<>(sizeVertex);
         m_eList = new HashMap<>(sizeEdge);
+        m_vertexIds = new IdTable<>();
+        m_edgeIds = new IdTable<>();
     }
 
     /**
@@ -72,34 +103,312 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
     public Digraph(int sizeVertex, int sizeEdge, float loadFactorVertex, float loadFactorEdge) {
         m_vList = new HashMap<>(sizeVertex, loadFactorVertex);
         m_eList = new HashMap<>(sizeEdge, loadFactorEdge);
+        m_vertexIds = new IdTable<>();
+        m_edgeIds = new IdTable<>();
+    }
+
+    /**
+     * Takes over the structures of graph, see lazyCopy().
+     */
+    private Digraph(Digraph<V, E> graph) {
+        m_vList = graph.m_vList;
+        m_eList = graph.m_eList;
+        m_vertexIds = graph.m_vertexIds;
+        m_edgeIds = graph.m_edgeIds;
     }
 
     /**
-     * clone the graph object using serialization to break selfloops
+     * clone the graph object by a structural copy, the keys are shared
      * 
      * @return the new clone
      */
     public Object clone() {
+        return copy(true);
+    }
+
+    /**
+     * Copies the Graph in one pass over the vertices and edges. The maps are presized, the
+     * adjacency lists keep their order and every vertex and edge keeps its id. Listeners are not
+     * copied.
+     * 
+     * @param shareKeys true to use the same key objects in the copy, false to copy the keys by
+     *            serialization
+     * @return the copy
+     * @throws IllegalStateException if shareKeys is false and a key cannot be serialized
+     */
+    @SuppressWarnings("unchecked")
+    public Digraph<V, E> copy(boolean shareKeys) {
+        final int nv = m_vertexIds.bound();
+        final int ne = m_edgeIds.bound();
+        Object[] vkeys = new Object[nv];
+        Object[] ekeys = new Object[ne];
+        for (int id = 0; id < nv; id++) {
+            Vertex v = m_vertexIds.get(id);
+            if (v != null)
+                vkeys[id] = v.m_key_V;
+        }
+        for (int id = 0; id < ne; id++) {
+            Edge e = m_edgeIds.get(id);
+            if (e != null)
+                ekeys[id] = e.m_key_E;
+        }
+        if (!shareKeys) {
+            // one stream for all keys, so a key object referenced twice is copied once
+            Object[][] copied = copyKeys(new Object[][] { vkeys, ekeys });
+            vkeys = copied[0];
+            ekeys = copied[1];
+        }
+
+        Digraph<V, E> g = new Digraph<>((int) (m_vList.size() / 0.75f) + 1, (int) (m_eList.size() / 0.75f) + 1);
+        g.m_vertexIds = new IdTable<>(m_vertexIds);
+        g.m_edgeIds = new IdTable<>(m_edgeIds);
+        Vertex[] verts = newArray(Digraph.Vertex.class, nv);
+        Edge[] edges = newArray(Digraph.Edge.class, ne);
+        for (int id = 0; id < nv; id++) {
+            Vertex v = m_vertexIds.get(id);
+            if (v != null) {
+                Vertex c = g.new Vertex((V) vkeys[id]);
+                c.m_id = id;
+                c.m_selfLoops = v.m_selfLoops;
+                g.m_vList.put(c.m_key_V, c);
+                g.m_vertexIds.put(id, c);
+                verts[id] = c;
+            }
+        }
+        for (int id = 0; id < ne; id++) {
+            Edge e = m_edgeIds.get(id);
+            if (e != null) {
+                Edge c = g.new Edge((E) ekeys[id], e.m_weight, verts[e.m_from.m_id], verts[e.m_to.m_id]);
+                c.m_id = id;
+                g.m_eList.put(c.m_key_E, c);
+                g.m_edgeIds.put(id, c);
+                edges[id] = c;
+            }
+        }
+        for (int id = 0; id < nv; id++) {
+            Vertex v = m_vertexIds.get(id);
+            if (v != null) {
+                Vertex c = verts[id];
+                for (Edge e : v.outgoingList) {
+                    Edge ce = edges[e.m_id];
+                    ce.m_outItem = c.outgoingList.addTail(ce);
+                }
+                for (Edge e : v.incomingList) {
+                    Edge ce = edges[e.m_id];
+                    ce.m_inItem = c.incomingList.addTail(ce);
+                }
+            }
+        }
+        return g;
+    }
+
+    /**
+     * @return a deep copy of keys made by a serialization round trip
+     */
+    private static Object[][] copyKeys(Object[][] keys) {
         try {
             ByteArrayOutputStream out = new ByteArrayOutputStream();
             ObjectOutputStream oout = new ObjectOutputStream(out);
-            oout.writeObject(this);
+            oout.writeObject(keys);
+            oout.close();
             ObjectInputStream oin = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
-            return oin.readObject();
-        } catch (Exception e) {
-            throw new RuntimeException("cannot clone class");
+            return (Object[][]) oin.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("cannot copy the keys", e);
+        }
+    }
+
+    /**
+     * Writes the free ids and the vertex keys in id order, then for every vertex its outgoing
+     * edges as (id, key, destination id, weight) and the ids of its incoming edges. The Graph
+     * is restored with the same ids and adjacency order, listeners are not written.
+     * 
+     * @serialData see above, the keys are written with writeObject()
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        final int nv = m_vertexIds.bound();
+        writeFreeIds(out, m_vertexIds);
+        for (int id = 0; id < nv; id++) {
+            Vertex v = m_vertexIds.get(id);
+            if (v != null)
+                out.writeObject(v.m_key_V);
+        }
+        writeFreeIds(out, m_edgeIds);
+        for (int id = 0; id < nv; id++) {
+            Vertex v = m_vertexIds.get(id);
+            if (v != null) {
+                out.writeInt(v.outgoingList.size());
+                for (Edge e : v.outgoingList) {
+                    out.writeInt(e.m_id);
+                    out.writeObject(e.m_key_E);
+                    out.writeInt(e.m_to.m_id);
+                    out.writeDouble(e.m_weight);
+                }
+            }
         }
+        for (int id = 0; id < nv; id++) {
+            Vertex v = m_vertexIds.get(id);
+            if (v != null) {
+                out.writeInt(v.incomingList.size());
+                for (Edge e : v.incomingList) {
+                    out.writeInt(e.m_id);
+                }
+            }
+        }
+    }
+
+    private static void writeFreeIds(ObjectOutputStream out, IdTable<?> ids) throws IOException {
+        out.writeInt(ids.bound());
+        out.writeInt(ids.m_freeSize);
+        for (int i = 0; i < ids.m_freeSize; i++) {
+            out.writeInt(ids.m_free[i]);
+        }
+    }
+
+    /**
+     * Rebuilds the maps, id tables and adjacency lists written by writeObject().
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        m_vertexIds = readFreeIds(in);
+        final int nv = m_vertexIds.bound();
+        final boolean[] freeVertexIds = m_vertexIds.freeIds();
+        final int vertexCount = nv - m_vertexIds.m_freeSize;
+        m_vList = new HashMap<>((int) (vertexCount / 0.75f) + 1);
+        Vertex[] verts = newArray(Digraph.Vertex.class, nv);
+        for (int id = 0; id < nv; id++) {
+            if (!freeVertexIds[id]) {
+                Vertex v = new Vertex((V) in.readObject());
+                v.m_id = id;
+                if (m_vList.put(v.m_key_V, v) != null)
+                    throw new InvalidObjectException("duplicate vertex " + v.m_key_V);
+                m_vertexIds.put(id, v);
+                verts[id] = v;
+            }
+        }
+
+        m_edgeIds = readFreeIds(in);
+        final int ne = m_edgeIds.bound();
+        final boolean[] freeEdgeIds = m_edgeIds.freeIds();
+        final int edgeCount = ne - m_edgeIds.m_freeSize;
+        m_eList = new HashMap<>((int) (edgeCount / 0.75f) + 1);
+        Edge[] edges = newArray(Digraph.Edge.class, ne);
+        for (Vertex v : verts) {
+            if (v == null)
+                continue;
+            for (int n = in.readInt(); n > 0; n--) {
+                int id = in.readInt();
+                E key = (E) in.readObject();
+                int to = in.readInt();
+                double weight = in.readDouble();
+                if (id < 0 || id >= ne || freeEdgeIds[id] || edges[id] != null || to < 0 || to >= nv
+                        || verts[to] == null || !(weight >= 0))
+                    throw new InvalidObjectException("invalid edge " + key);
+                Edge e = new Edge(key, weight, v, verts[to]);
+                e.m_id = id;
+                if (m_eList.put(key, e) != null)
+                    throw new InvalidObjectException("duplicate edge " + key);
+                m_edgeIds.put(id, e);
+                edges[id] = e;
+                e.m_outItem = v.outgoingList.addTail(e);
+                if (e.m_to == v)
+                    v.m_selfLoops++;
+            }
+        }
+        if (m_eList.size() != edgeCount)
+            throw new InvalidObjectException("missing edges");
+        int incoming = 0;
+        for (Vertex v : verts) {
+            if (v == null)
+                continue;
+            for (int n = in.readInt(); n > 0; n--) {
+                int id = in.readInt();
+                Edge e = (id >= 0 && id < ne) ? edges[id] : null;
+                if (e == null || e.m_to != v || e.m_inItem != null)
+                    throw new InvalidObjectException("invalid incoming edge id " + id);
+                e.m_inItem = v.incomingList.addTail(e);
+                incoming++;
+            }
+        }
+        if (incoming != edgeCount)
+            throw new InvalidObjectException("missing incoming edges");
+    }
+
+    private static <T> IdTable<T> readFreeIds(ObjectInputStream in) throws IOException {
+        int bound = in.readInt();
+        int[] free = new int[Math.max(0, in.readInt())];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = in.readInt();
+        }
+        if (bound < 0 || free.length > bound)
+            throw new InvalidObjectException("invalid ids");
+        return new IdTable<>(bound, free);
+    }
+
+    /**
+     * Returns a copy in O(1) that shares all structures with this Graph. The first change of
+     * either Graph copies the structures for that Graph, see copy(true), so later changes are not
+     * visible in the other one. Views and cursors obtained before that first change keep
+     * reflecting the shared structures. Listeners are not copied.
+     * 
+     * @return the copy
+     */
+    public Digraph<V, E> lazyCopy() {
+        if (m_share == null)
+            m_share = new Share();
+        Digraph<V, E> g = new Digraph<>(this);
+        synchronized (m_share) {
+            m_share.m_graphs++;
+        }
+        g.m_share = m_share;
+        return g;
+    }
+
+    /**
+     * Called before every change: copies the structures if they are shared with a lazy copy.
+     */
+    private void own() {
+        if (m_share == null)
+            return;
+        synchronized (m_share) {
+            // the last Graph that shares the structures takes them over
+            if (m_share.m_graphs > 1) {
+                Digraph<V, E> g = copy(true);
+                m_vList = g.m_vList;
+                m_eList = g.m_eList;
+                m_vertexIds = g.m_vertexIds;
+                m_edgeIds = g.m_edgeIds;
+            }
+            m_share.m_graphs--;
+        }
+        m_share = null;
     }
 
     @Override
     public boolean addEdge(E key, double weight, V origin, V destination) {
         assert (weight >= 0) : "weight must be >= 0";
-        if (containsVertex(origin) && containsVertex(destination)) {
-            Edge edge = new Edge(key, weight, origin, destination);
+        own();
+        Vertex from = m_vList.get(origin);
+        Vertex to = m_vList.get(destination);
+        if (from != null && to != null) {
+            // an edge with the same key is discarded
+            if (containsEdge(key))
+                removeEdge(key);
+            Edge edge = new Edge(key, weight, from, to);
             // add the new edge to the graph hashmap and the specific outgoint/incominglists
             m_eList.put(key, edge);
-            m_vList.get(origin).outgoingList.add(key);
-            m_vList.get(destination).incomingList.add(key);
+            edge.m_id = m_edgeIds.add(edge);
+            if (from == to)
+                from.m_selfLoops++;
+            edge.m_outItem = from.outgoingList.addTail(edge);
+            edge.m_inItem = to.incomingList.addTail(edge);
+            if (m_listeners != null) {
+                for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                    l.edgeAdded(key, origin, destination, weight);
+                }
+            }
             return true;
         }
         return false;
@@ -108,13 +417,94 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
     @Override
     public boolean addVertex(V vertex) {
         if (!containsVertex(vertex)) {
+            own();
             Vertex tmp = new Vertex(vertex);
             m_vList.put(vertex, tmp);
+            tmp.m_id = m_vertexIds.add(tmp);
+            if (m_listeners != null) {
+                for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                    l.vertexAdded(vertex);
+                }
+            }
             return true;
         }
         return false;
     }
 
+    /**
+     * Bulk insertion used by GraphBuilder. The maps are grown once for the whole batch, the
+     * Vertex of an endpoint is looked up once for a run of edges with the same endpoint and an
+     * edge key is inserted with a single put. Edges with an unknown endpoint are skipped.
+     * @param vertices the first nv entries are added
+     * @param keys the first ne entries, weights, origins and destinations describe the edges
+     * @return the number of edges added
+     */
+    @SuppressWarnings("unchecked")
+    int addAll(Object[] vertices, int nv, Object[] keys, double[] weights, Object[] origins, Object[] destinations, int ne) {
+        own();
+        if (nv > m_vList.size())
+            m_vList = presized(m_vList, nv);
+        if (ne > m_eList.size())
+            m_eList = presized(m_eList, ne);
+        for (int i = 0; i < nv; i++) {
+            V key = (V) vertices[i];
+            if (m_vList.get(key) == null) {
+                Vertex v = new Vertex(key);
+                m_vList.put(key, v);
+                v.m_id = m_vertexIds.add(v);
+                if (m_listeners != null) {
+                    for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                        l.vertexAdded(key);
+                    }
+                }
+            }
+        }
+
+        int added = 0;
+        Vertex from = null;
+        Vertex to = null;
+        for (int i = 0; i < ne; i++) {
+            V origin = (V) origins[i];
+            V destination = (V) destinations[i];
+            if (from == null || !from.m_key_V.equals(origin))
+                from = m_vList.get(origin);
+            if (to == null || !to.m_key_V.equals(destination))
+                to = m_vList.get(destination);
+            if (from == null || to == null)
+                continue;
+            E key = (E) keys[i];
+            Edge edge = new Edge(key, weights[i], from, to);
+            Edge old = m_eList.put(key, edge);
+            if (old != null) {
+                // an edge with the same key is discarded
+                m_eList.put(key, old);
+                removeEdge(key);
+                m_eList.put(key, edge);
+            }
+            edge.m_id = m_edgeIds.add(edge);
+            if (from == to)
+                from.m_selfLoops++;
+            edge.m_outItem = from.outgoingList.addTail(edge);
+            edge.m_inItem = to.incomingList.addTail(edge);
+            added++;
+            if (m_listeners != null) {
+                for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                    l.edgeAdded(key, origin, destination, weights[i]);
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @return map, or a copy of it with room for extra more entries without rehashing
+     */
+    private static <K, T> HashMap<K, T> presized(HashMap<K, T> map, int extra) {
+        HashMap<K, T> bigger = new HashMap<>((int) ((map.size() + extra) / 0.75f) + 1);
+        bigger.putAll(map);
+        return bigger;
+    }
+
     @Override
     public boolean containsEdge(E edge) {
         return m_eList.containsKey(edge);
@@ -122,10 +512,12 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
 
     @Override
     public boolean containsEdge(V origin, V destination) {
-        if (!(containsVertex(origin) && containsVertex(destination)))
+        Vertex from = m_vList.get(origin);
+        Vertex to = m_vList.get(destination);
+        if (from == null || to == null)
             return false;
-        for (E e : m_vList.get(origin).outgoingList) {
-            if (m_eList.get(e).destination.equals(destination)) {
+        for (Edge e : from.outgoingList) {
+            if (e.m_to == to) {
                 return true;
             }
         }
@@ -159,31 +551,44 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
         return m_eList.keySet();
     }
 
+    /**
+     * Returns a read-only view over the outgoing and incoming list of vertex. The view is created
+     * in O(1) and reflects later changes of the Graph.
+     */
     @Override
     public Set<E> getAllEdgesOfVertex(V vertex) {
         assert (containsVertex(vertex)) : "Vertex must be in this Graph";
-        DLinkedList<E> inc = (DLinkedList<E>) m_vList.get(vertex).incomingList;
-        DLinkedList<E> out = (DLinkedList<E>) m_vList.get(vertex).outgoingList;
-        inc.conc(out, true);
-        return new HashSet<>(inc);
+        return new IncidentEdges(m_vList.get(vertex));
     }
 
     @Override
     public Set<E> getLeavingEdgesOfVertex(V vertex) {
         assert (containsVertex(vertex)) : "Vertex must be in list";
-        return new HashSet<E>(m_vList.get(vertex).outgoingList);
+        return addKeys(m_vList.get(vertex).outgoingList, new HashSet<E>());
     }
 
     @Override
     public Set<E> getIncomingEdgesOfVertex(V vertex) {
         assert (containsVertex(vertex)) : "Vertex must be in list";
-        return new HashSet<E>(m_vList.get(vertex).incomingList);
+        return addKeys(m_vList.get(vertex).incomingList, new HashSet<E>());
+    }
+
+    /**
+     * Adds the keys of all edges in list to keys.
+     * @return keys
+     */
+    private Set<E> addKeys(DLinkedList<Edge> list, Set<E> keys) {
+        for (Edge e : list) {
+            keys.add(e.m_key_E);
+        }
+        return keys;
     }
 
     @Override
     public Set<E> getEdgesBetween(V source, V destination) {
-        return (m_vList.get(source).outgoingList.stream().filter(e -> (m_eList.get(e).destination.equals(destination)))
-                .collect(Collectors.toSet()));
+        Vertex to = m_vList.get(destination);
+        return (m_vList.get(source).outgoingList.stream().filter(e -> (e.m_to == to))
+                .map(e -> e.m_key_E).collect(Collectors.toSet()));
     }
 
     @Override
@@ -205,14 +610,25 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
     }
 
     // delete from outgoing list of origin, incoming list of destination and
-    // m_eList
+    // m_eList in O(1) using the list items stored in the edge
     @Override
     public boolean removeEdge(E edge) {
         assert (containsEdge(edge)) : "Edge must be in list";
-        Edge e = m_eList.get(edge);
-        return (m_vList.get(e.origin).outgoingList.remove(edge) && m_vList.get(e.destination).incomingList.remove(edge) && m_eList
-                .remove(edge, e));
-
+        own();
+        Edge e = m_eList.remove(edge);
+        if (e == null)
+            return false;
+        if (e.m_from == e.m_to)
+            e.m_from.m_selfLoops--;
+        e.m_from.outgoingList.remove(e.m_outItem);
+        e.m_to.incomingList.remove(e.m_inItem);
+        m_edgeIds.remove(e.m_id);
+        if (m_listeners != null) {
+            for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                l.edgeRemoved(edge, e.origin, e.destination, e.m_weight);
+            }
+        }
+        return true;
     }
 
     @Override
@@ -240,17 +656,31 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
         if (!containsVertex(vertex))
             return false;
 
-        // get all edges touching v (all incoming and outgoing)
-        DLinkedList<E> touchingEdges = (DLinkedList<E>) m_vList.get(vertex).outgoingList;
-        touchingEdges.conc(m_vList.get(vertex).incomingList, true);
-
-        // remove all those edges
-        if (!removeAllEdges(touchingEdges))
-            return false;
-
         // remove v from vertex-hashmap
-        m_vList.remove(vertex);
+        own();
+        Vertex v = m_vList.remove(vertex);
 
+        // unlink all edges touching v (all incoming and outgoing) from the list of the other
+        // endpoint in O(1). The lists of v are dropped together with v.
+        for (Edge e : v.outgoingList) {
+            m_eList.remove(e.m_key_E);
+            m_edgeIds.remove(e.m_id);
+            if (e.m_to != v)
+                e.m_inItem.getOwner().remove(e.m_inItem);
+        }
+        for (Edge e : v.incomingList) {
+            if (e.m_from != v) {
+                m_eList.remove(e.m_key_E);
+                m_edgeIds.remove(e.m_id);
+                e.m_outItem.getOwner().remove(e.m_outItem);
+            }
+        }
+        m_vertexIds.remove(v.m_id);
+        if (m_listeners != null) {
+            for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                l.vertexRemoved(vertex);
+            }
+        }
         return true;
     }
 
@@ -258,18 +688,28 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
     public void setEdgeWeight(E edge, double weight) {
         assert (weight >= 0) : "weight must be >=0";
         assert (containsEdge(edge)) : "Edge must be in Graph";
-        if (weight >= 0)
-            m_eList.get(edge).m_weight = weight;
+        if (weight >= 0) {
+            own();
+            Edge e = m_eList.get(edge);
+            double old = e.m_weight;
+            e.m_weight = weight;
+            if (m_listeners != null) {
+                for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                    l.edgeWeightChanged(edge, e.origin, e.destination, old, weight);
+                }
+            }
+        }
     }
 
     @Override
     public boolean removeAllEdges(Collection<? extends E> edges) {
-        int edgeSize = getNumberOfEdges();
+        // edges may be a view that shrinks while its edges are removed
+        int expected = getNumberOfEdges() - edges.size();
         for (E e : edges) {
             if (containsEdge(e))
                 removeEdge(e);
         }
-        return (edgeSize - edges.size() == getNumberOfEdges());
+        return (expected == getNumberOfEdges());
     }
 
     @Override
@@ -284,18 +724,36 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
 
     @Override
     public boolean removeAllEdges() {
+        own();
+        if (m_listeners != null) {
+            for (Edge e : m_eList.values()) {
+                for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                    l.edgeRemoved(e.m_key_E, e.origin, e.destination, e.m_weight);
+                }
+            }
+        }
         for (Vertex v : m_vList.values()) {
             v.outgoingList.clear();
             v.incomingList.clear();
+            v.m_selfLoops = 0;
         }
         m_eList.clear();
+        m_edgeIds.clear();
         return m_eList.isEmpty();
     }
 
     @Override
     public boolean clear() {
+        own();
         m_eList.clear();
         m_vList.clear();
+        m_edgeIds.clear();
+        m_vertexIds.clear();
+        if (m_listeners != null) {
+            for (DigraphListener<? super V, ? super E> l : m_listeners) {
+                l.cleared();
+            }
+        }
         return m_eList.isEmpty() && m_vList.isEmpty();
     }
 
@@ -303,8 +761,14 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
     public Set<E> removeAllEdgesBetweenVertex(V origin, V destination) {
         assert (containsVertex(origin) && containsVertex(destination)) : "Vertices must be in graph";
         HashSet<E> edgeList = new HashSet<>();
-        for (E e : m_vList.get(origin).outgoingList) {
-            if (m_eList.get(e).destination.equals(destination)) {
+        DLinkedList<Edge> outgoing = m_vList.get(origin).outgoingList;
+        Vertex to = m_vList.get(destination);
+        DLinkedList.ListItem next;
+        for (DLinkedList.ListItem item = outgoing.head(); item != null; item = next) {
+            // remember the successor, the item is unlinked by removeEdge
+            next = item.getNext();
+            E e = outgoing.get(item).m_key_E;
+            if (outgoing.get(item).m_to == to) {
                 // stop the deletion of further objects if one fails and return
                 // the
                 // ones deleted up to this point
@@ -327,6 +791,22 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
         return (listSize - vertices.size() == m_vList.size());
     }
 
+    @Override
+    public void addDigraphListener(DigraphListener<? super V, ? super E> listener) {
+        if (m_listeners == null)
+            m_listeners = new ArrayList<>();
+        m_listeners.add(listener);
+    }
+
+    @Override
+    public boolean removeDigraphListener(DigraphListener<? super V, ? super E> listener) {
+        if (m_listeners == null || !m_listeners.remove(listener))
+            return false;
+        if (m_listeners.isEmpty())
+            m_listeners = null;
+        return true;
+    }
+
     @Override
     public int getNumberOfVerts() {
         return m_vList.size();
@@ -338,109 +818,386 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
     }
 
     @Override
-    public HashMap<V, Double> dijkstra(V origin) {
+    public void forEachOutgoing(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        forEach(m_vList.get(vertex).outgoingList, consumer);
+    }
+
+    @Override
+    public void forEachIncoming(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        forEach(m_vList.get(vertex).incomingList, consumer);
+    }
+
+    /**
+     * Walks the list items of an adjacency list. The consumer may remove the current edge.
+     */
+    private void forEach(DLinkedList<Edge> list, EdgeConsumer<? super V, ? super E> consumer) {
+        DLinkedList.ListItem next;
+        for (DLinkedList.ListItem item = list.head(); item != null; item = next) {
+            next = item.getNext();
+            Edge e = list.get(item);
+            consumer.accept(e.m_key_E, e.origin, e.destination, e.m_weight);
+        }
+    }
+
+    @Override
+    public EdgeCursor<V, E> newEdgeCursor() {
+        return new AdjacencyCursor();
+    }
+
+    @Override
+    public ShortestPathTree<V, E> shortestPathTree(V origin, DijkstraListener<? super V, ? super E> listener) {
+        assert (containsVertex(origin)) : "Vertex must be in this Graph";
         // BEGIN INIT
-        // D ist Hashmap mit Key = Vertex und Value = Wert des momentan kuerzesten Pfades von origin
-        // nach v.
-        // A enthaelt den Nachbarknoten ueber den der kuerzeste Pfad geht
-        HashMap<V, Double> d = new HashMap<>();
-        HashMap<V, V> a = new HashMap<>();
-        // Mit maximaler Anzahl initialisieren, damit immer kuerzere Pfade gefunden werden koennen
-        for (V v : m_vList.keySet()) {
-            d.put(v, Double.MAX_VALUE);
-            a.put(v, null);
-        }
-        d.put(origin, 0.0);
-        LinkedList<V> perm = new LinkedList<>();
-        PQueue<V> pq = new PQueue<>(new Comparator<V>() {
-            @Override
-            public int compare(V o1, V o2) {
-                return (int) (d.get(o1) - d.get(o2));
-            }
-        });
-
-        pq.add(origin);
+        // d enthaelt den Wert des momentan kuerzesten Pfades von origin nach v, pred den
+        // Nachbarknoten und predEdges die Kante ueber die der kuerzeste Pfad geht
+        final int n = m_vertexIds.bound();
+        Object[] keys = new Object[n];
+        double[] d = new double[n];
+        int[] pred = new int[n];
+        Object[] predEdges = new Object[n];
+        for (int v = 0; v < n; v++) {
+            Vertex vertex = m_vertexIds.get(v);
+            keys[v] = (vertex == null) ? null : vertex.m_key_V;
+            d[v] = Double.POSITIVE_INFINITY;
+            pred[v] = -1;
+        }
+        // keyed queue ordered by the distances, handles are kept to decrease the key of a vertex
+        PQueue<Vertex> pq = new PQueue<>();
+        PQItem[] items = new PQItem[n];
+
+        final Vertex start = m_vList.get(origin);
+        final int s = start.m_id;
+        d[s] = 0.0;
+        items[s] = pq.add(start, 0.0);
         // END INIT
         while (!pq.isEmpty()) {
-            V u = pq.removeMin();
-            for (E e : m_vList.get(u).outgoingList) {
-                V v = getEdgeDestination(e);
-                // if(u == v) continue;
-                if (d.get(v) == Double.MAX_VALUE) {
-                    pq.add(v);
+            Vertex u = pq.removeMin();
+            final int ui = u.m_id;
+            if (listener != null)
+                listener.vertexSettled(u.m_key_V, d[ui]);
+            for (Edge e : u.outgoingList) {
+                Vertex w = e.m_to;
+                final int wi = w.m_id;
+                // prueft ob aktuelle strecke groesser ist als start-vertex und kantengewicht
+                if (d[wi] > d[ui] + e.m_weight) {
+                    d[wi] = d[ui] + e.m_weight;
+                    pred[wi] = ui;
+                    predEdges[wi] = e.m_key_E;
+                    if (items[wi] == null) {
+                        items[wi] = pq.add(w, d[wi]);
+                    } else {
+                        pq.decreaseKey(items[wi], d[wi]);
+                    }
+                    if (listener != null)
+                        listener.edgeRelaxed(e.m_key_E, e.origin, e.destination, d[wi]);
+                }
+            }
+        }
+        return new IndexedShortestPathTree<>(keys, s, d, pred, predEdges);
+    }
+
+    @Override
+    public Path<V, E> shortestPath(V origin, V target) {
+        assert (containsVertex(origin) && containsVertex(target)) : "Vertex must be in this Graph";
+        // only the reached vertices get a label, the search stops when target is settled
+        HashMap<Integer, Label> labels = new HashMap<>();
+        PQueue<Label> pq = new PQueue<>();
+        label(pq, labels, m_vList.get(origin), 0.0, null, null, null, null);
+        while (!pq.isEmpty()) {
+            Label u = pq.removeMin();
+            if (u.m_vertex.m_key_V.equals(target))
+                return toPath(u, null);
+            for (Edge e : u.m_vertex.outgoingList) {
+                label(pq, labels, e.m_to, u.m_dist + e.m_weight, e, u, null, null);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Path<V, E> astar(V origin, V target, ToDoubleBiFunction<? super V, ? super V> heuristic) {
+        assert (containsVertex(origin) && containsVertex(target)) : "Vertex must be in this Graph";
+        HashMap<Integer, Label> labels = new HashMap<>();
+        PQueue<Label> pq = new PQueue<>();
+        label(pq, labels, m_vList.get(origin), 0.0, null, null, heuristic, target);
+        while (!pq.isEmpty()) {
+            Label u = pq.removeMin();
+            if (u.m_vertex.m_key_V.equals(target))
+                return toPath(u, null);
+            for (Edge e : u.m_vertex.outgoingList) {
+                label(pq, labels, e.m_to, u.m_dist + e.m_weight, e, u, heuristic, target);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Path<V, E> bidirectionalShortestPath(V origin, V target) {
+        assert (containsVertex(origin) && containsVertex(target)) : "Vertex must be in this Graph";
+        HashMap<Integer, Label> forward = new HashMap<>();
+        HashMap<Integer, Label> backward = new HashMap<>();
+        PQueue<Label> fq = new PQueue<>();
+        PQueue<Label> bq = new PQueue<>();
+        label(fq, forward, m_vList.get(origin), 0.0, null, null, null, null);
+        label(bq, backward, m_vList.get(target), 0.0, null, null, null, null);
+        // mu is the length of the shortest path seen so far, it passes through meet
+        double mu = origin.equals(target) ? 0.0 : Double.POSITIVE_INFINITY;
+        Vertex meet = origin.equals(target) ? m_vList.get(origin) : null;
+
+        while (!fq.isEmpty() && !bq.isEmpty()) {
+            double fmin = fq.getPriority(fq.getFirstItem());
+            double bmin = bq.getPriority(bq.getFirstItem());
+            // every path not seen yet is at least fmin + bmin long
+            if (fmin + bmin >= mu)
+                break;
+            if (fmin <= bmin) {
+                Label u = fq.removeMin();
+                for (Edge e : u.m_vertex.outgoingList) {
+                    Label w = label(fq, forward, e.m_to, u.m_dist + e.m_weight, e, u, null, null);
+                    Label b = backward.get(e.m_to.m_id);
+                    if (b != null && w.m_dist + b.m_dist < mu) {
+                        mu = w.m_dist + b.m_dist;
+                        meet = e.m_to;
+                    }
                 }
-                E edge = getEdgesBetween(u, v).iterator().next();
-                if (test(edge, d, a)) {
-                    PQItem tmp = pq.getFirstItem();
-                    pq.updateData(tmp, v);
+            } else {
+                Label u = bq.removeMin();
+                for (Edge e : u.m_vertex.incomingList) {
+                    Label w = label(bq, backward, e.m_from, u.m_dist + e.m_weight, e, u, null, null);
+                    Label f = forward.get(e.m_from.m_id);
+                    if (f != null && f.m_dist + w.m_dist < mu) {
+                        mu = f.m_dist + w.m_dist;
+                        meet = e.m_from;
+                    }
                 }
             }
-            perm.add(u);
         }
-        for (V v : a.keySet()) {
-			System.out.println(a.get(v) +" => " +v);
-		}
-        return d;
+        return (meet == null) ? null : toPath(forward.get(meet.m_id), backward.get(meet.m_id));
+    }
 
+    /**
+     * Creates an array of an inner class, which cannot be done with new because of the type
+     * parameters of the Digraph.
+     *
+     * @param type the raw inner class, e.g. Digraph.Vertex.class
+     * @param length
+     * @return a new array of the given length
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArray(Class<?> type, int length) {
+        return (T[]) Array.newInstance(type, length);
     }
 
     /**
-     * 
-     * @param e Edge which should be tested for shortest path
-     * @param d actual Values of shortest path from origin to all Vertices with key V
-     * @param a actual Vertices sequence of shortest path
-     * @return
-     */
-    private boolean test(E e, HashMap<V, Double> d, HashMap<V, V> a) {
-        V u = m_eList.get(e).origin;
-        V v = m_eList.get(e).destination;
-        Edge edge = m_eList.get(e);
-        // prueft ob aktuelle strecke groesser ist als start-vertex und kantengewicht und ersetzt
-        if (d.get(v) > d.get(u) + edge.m_weight) {
-            d.put(v, (d.get(u) + edge.m_weight));
-            a.put(v, u); // enthaelt den Nachbarknoten ueber den der kuerzeste Pfad geht
-            return true;
+     * Relaxes the label of vertex to distance d over edge pred. The label is queued with the
+     * priority d + heuristic(vertex, target) and queued again if it was already removed, so an
+     * admissible but inconsistent heuristic still yields shortest paths.
+     * @param prev label at the other end of pred
+     * @param heuristic null for Dijkstra's algorithm
+     * @return the label of vertex
+     */
+    private Label label(PQueue<Label> pq, HashMap<Integer, Label> labels, Vertex vertex, double d, Edge pred,
+            Label prev, ToDoubleBiFunction<? super V, ? super V> heuristic, V target) {
+        Label l = labels.get(vertex.m_id);
+        if (l == null) {
+            l = new Label(vertex, d, pred, prev);
+            if (heuristic != null)
+                l.m_estimate = heuristic.applyAsDouble(vertex.m_key_V, target);
+            l.m_item = pq.add(l, d + l.m_estimate);
+            labels.put(vertex.m_id, l);
+        } else if (d < l.m_dist) {
+            l.m_dist = d;
+            l.m_pred = pred;
+            l.m_prev = prev;
+            if (!pq.decreaseKey(l.m_item, d + l.m_estimate))
+                l.m_item = pq.add(l, d + l.m_estimate);
         }
-        return false;
+        return l;
+    }
 
+    /**
+     * Follows the labels of the forward search back to the origin and those of the backward
+     * search on to the target.
+     * @param f label of the forward search
+     * @param b label of the backward search at the same vertex, null for a unidirectional search
+     */
+    private Path<V, E> toPath(Label f, Label b) {
+        ArrayList<V> vertices = new ArrayList<>();
+        ArrayList<E> edges = new ArrayList<>();
+        for (Label l = f; l != null; l = l.m_prev) {
+            vertices.add(l.m_vertex.m_key_V);
+            if (l.m_pred != null)
+                edges.add(l.m_pred.m_key_E);
+        }
+        Collections.reverse(vertices);
+        Collections.reverse(edges);
+        double weight = f.m_dist;
+        if (b != null) {
+            weight += b.m_dist;
+            for (Label l = b; l.m_prev != null; l = l.m_prev) {
+                edges.add(l.m_pred.m_key_E);
+                vertices.add(l.m_prev.m_vertex.m_key_V);
+            }
+        }
+        return new Path<>(vertices, edges, weight);
     }
-    
-    public void depthFirstSearch(){
-    	HashMap<V, V> a = new HashMap<>();
-    	for (V v : m_vList.keySet()) {
-			m_vList.get(v).color = dfsColor.white;
-			a.put(v, null);
-		}
-    	for (V v : m_vList.keySet()) {
-			if(m_vList.get(v).color == dfsColor.white){
-				dfsVisit(v, a);
-			}
-		}
-    	
-    	for (V v : a.keySet()) {
-			System.out.println(v +"==>"+m_vList.get(v));
-		}
+
+    /**
+     * Iterative depthFirstSearch with an explicit stack, works on arbitrarily deep graphs.
+     * The colors are encoded in the discovery and finish times: white vertices have no discovery
+     * time, grey vertices have no finish time yet. The state is indexed by vertex id.
+     */
+    @Override
+    public DfsResult<V, E> depthFirstSearch() {
+        final int n = m_vertexIds.bound();
+        Object[] keys = new Object[n];
+        int[] disc = new int[n];
+        int[] fin = new int[n];
+        int[] pred = new int[n];
+        int[] pre = new int[n];
+        int[] post = new int[n];
+        int preSize = 0, postSize = 0, time = 0;
+        List<E> back = new ArrayList<>();
+
+        // next item of the outgoing list to visit for each vertex on the stack
+        DLinkedList.ListItem[] next = new DLinkedList.ListItem[n];
+        int[] stack = new int[n];
+        int top = 0;
+
+        for (int s = 0; s < n; s++) {
+            Vertex root = m_vertexIds.get(s);
+            if (root == null)
+                continue;
+            keys[s] = root.m_key_V;
+            if (disc[s] != 0)
+                continue;
+            disc[s] = ++time;
+            pred[s] = -1;
+            pre[preSize++] = s;
+            next[s] = root.outgoingList.head();
+            stack[top++] = s;
+            while (top > 0) {
+                int v = stack[top - 1];
+                DLinkedList.ListItem item = next[v];
+                if (item != null) {
+                    Edge e = m_vertexIds.get(v).outgoingList.get(item);
+                    next[v] = item.getNext();
+                    int w = e.m_to.m_id;
+                    if (disc[w] == 0) {
+                        // white: tree edge
+                        disc[w] = ++time;
+                        pred[w] = v;
+                        pre[preSize++] = w;
+                        next[w] = e.m_to.outgoingList.head();
+                        stack[top++] = w;
+                    } else if (fin[w] == 0) {
+                        // grey: back edge
+                        back.add(e.m_key_E);
+                    }
+                } else {
+                    fin[v] = ++time;
+                    post[postSize++] = v;
+                    top--;
+                }
+            }
+        }
+        if (preSize < n) {
+            // free ids are in neither order
+            pre = Arrays.copyOf(pre, preSize);
+            post = Arrays.copyOf(post, postSize);
+        }
+        return new DfsResult<>(keys, disc, fin, pred, pre, post, back);
     }
-    
+
     /**
-     * visit for backtracking depthFirstSearch
-     * 
-     * @param vertex to go deep inside
-     * @param HashMap with vertex v as key and forerunner vertex v as value 
-     */
-    private void dfsVisit(V v, HashMap<V, V> a) {
-    	m_vList.get(v).color = dfsColor.grey;
-    	for (E e : m_vList.get(v).outgoingList) {
-    		V w = getEdgeDestination(e);
-    		if (m_vList.get(w).color == dfsColor.white) {
-				a.put(w, v);
-				dfsVisit(w, a);
-			}
-		}
-    	m_vList.get(v).color = dfsColor.black;
-    	//Here insert Vertex operation
-    	System.out.println(m_vList.get(v));
-	}
+     * Ids are assigned on insertion and reused after the vertex is removed, they are always
+     * smaller than getVertexIdBound().
+     * @param vertex
+     * @return the id of vertex, -1 if vertex is not in the Graph
+     */
+    public int idOf(V vertex) {
+        Vertex v = m_vList.get(vertex);
+        return (v == null) ? -1 : v.m_id;
+    }
+
+    /**
+     * @param id
+     * @return the vertex with the given id, null if the id is not in use
+     */
+    public V vertexOf(int id) {
+        Vertex v = m_vertexIds.get(id);
+        return (v == null) ? null : v.m_key_V;
+    }
+
+    /**
+     * @param edge
+     * @return the id of edge, -1 if edge is not in the Graph
+     */
+    public int edgeIdOf(E edge) {
+        Edge e = m_eList.get(edge);
+        return (e == null) ? -1 : e.m_id;
+    }
+
+    /**
+     * @param id
+     * @return the edge with the given id, null if the id is not in use
+     */
+    public E edgeOf(int id) {
+        Edge e = m_edgeIds.get(id);
+        return (e == null) ? null : e.m_key_E;
+    }
+
+    /**
+     * @return length of an array indexed by vertex id
+     */
+    public int getVertexIdBound() {
+        return m_vertexIds.bound();
+    }
+
+    /**
+     * @return length of an array indexed by edge id
+     */
+    public int getEdgeIdBound() {
+        return m_edgeIds.bound();
+    }
+
+    @Override
+    public CompactDigraph<V, E> toCompact() {
+        final int n = m_vList.size();
+        final int m = m_eList.size();
+        // the compact graph numbers the vertices without gaps, remap[id] is the new number
+        final int bound = m_vertexIds.bound();
+        Object[] vertices = new Object[n];
+        Vertex[] verts = newArray(Digraph.Vertex.class, n);
+        int[] remap = new int[bound];
+        int next = 0;
+        for (int id = 0; id < bound; id++) {
+            Vertex v = m_vertexIds.get(id);
+            if (v != null) {
+                vertices[next] = v.m_key_V;
+                verts[next] = v;
+                remap[id] = next++;
+            }
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        Object[] edges = new Object[m];
+        int pos = 0;
+        for (int v = 0; v < n; v++) {
+            offsets[v] = pos;
+            for (Edge edge : verts[v].outgoingList) {
+                targets[pos] = remap[edge.m_to.m_id];
+                weights[pos] = edge.m_weight;
+                edges[pos++] = edge.m_key_E;
+            }
+        }
+        offsets[n] = pos;
+        return new CompactDigraph<>(vertices, offsets, targets, weights, edges);
+    }
 
 	@Override
     public String toString() {
@@ -448,8 +1205,8 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
 
         for (Vertex v : m_vList.values()) {
             sb.append(v.toString());
-            for (E e : v.outgoingList) {
-                sb.append(m_eList.get(e).toString());
+            for (Edge e : v.outgoingList) {
+                sb.append(e.toString());
             }
             sb.append("\n");
         }
@@ -472,24 +1229,29 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
      */
     private class Vertex {
     	
-    	
-    	/**
-    	 * Color from Vertex. Needed at depthFirstSearch to create Spanning trees
-    	 */
-    	private dfsColor color;
+
+        /**
+         * Dense id, index of the vertex in m_vertexIds.
+         */
+        private int m_id;
 
 		/**
          * Unique Identifier
          */
         private V m_key_V;
         /**
-         * Index of vList in with the adjacency list is stored
+         * Index of vList in with the adjacency list is stored. Holds the Edge objects, so
+         * traversals need no lookup in m_eList.
          */
-        private List<E> outgoingList;
+        private DLinkedList<Edge> outgoingList;
         /**
          * Used to efficiently delete Vertices from the Graph.
          */
-        private List<E> incomingList;
+        private DLinkedList<Edge> incomingList;
+        /**
+         * Number of edges from this vertex to itself. Those are in both lists.
+         */
+        private int m_selfLoops;
 
         private Vertex(V key) {
             m_key_V = key;
@@ -527,6 +1289,24 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
         private V destination;
 
         private E m_key_E;
+
+        /**
+         * Dense id, index of the edge in m_edgeIds.
+         */
+        private int m_id;
+
+        /**
+         * Vertices of origin and destination, traversals follow them without a lookup in m_vList.
+         */
+        private final Vertex m_from;
+        private final Vertex m_to;
+
+        /**
+         * List items of this edge in the outgoing list of origin and the incoming list of
+         * destination. Used to unlink the edge in O(1).
+         */
+        private DLinkedList.ListItem m_outItem;
+        private DLinkedList.ListItem m_inItem;
         
         private static final int DEFAULT_WEIGHT = 1;
         
@@ -538,10 +1318,12 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
          * @param origin * Vertex from which the Edge comes. Can be same as destination.
          * @param destination Vertex to which the Edge goes. Can be same as origin.
          */
-        private Edge(E key, double weight, V origin, V destination) {
+        private Edge(E key, double weight, Vertex origin, Vertex destination) {
             m_key_E = key;
-            this.origin = origin;
-            this.destination = destination;
+            this.origin = origin.m_key_V;
+            this.destination = destination.m_key_V;
+            m_from = origin;
+            m_to = destination;
             m_weight = weight;
         }
         
@@ -551,11 +1333,8 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
          * @param origin
          * @param destination
          */
-        private Edge(E key, V origin, V destination) {
-            m_key_E = key;
-            this.origin = origin;
-            this.destination = destination;
-            m_weight = DEFAULT_WEIGHT;
+        private Edge(E key, Vertex origin, Vertex destination) {
+            this(key, DEFAULT_WEIGHT, origin, destination);
         }
 
         /**
@@ -574,16 +1353,269 @@ public class Digraph<V, E> implements IDigraph<V, E>, Serializable {
 
         @Override
         public String toString() {
-            return "---" + m_weight + "--->" + m_vList.get(destination).toString();
+            return "---" + m_weight + "--->" + m_to.toString();
         }
 
     }
     
     /**
-     * 
-     * Enum for depthFirstSearch to create Spanning Trees
+     * State of a vertex reached by a point to point search.
+     */
+    private class Label {
+        private final Vertex m_vertex;
+        private double m_dist;
+        /**
+         * Edge over which the vertex was reached, null for the start of the search.
+         */
+        private Edge m_pred;
+        /**
+         * Label at the other end of m_pred.
+         */
+        private Label m_prev;
+        /**
+         * Value of the heuristic of an A* search, 0 for Dijkstra's algorithm.
+         */
+        private double m_estimate;
+        private PQItem m_item;
+
+        private Label(Vertex vertex, double dist, Edge pred, Label prev) {
+            m_vertex = vertex;
+            m_dist = dist;
+            m_pred = pred;
+            m_prev = prev;
+        }
+    }
+
+    /**
+     * Read-only set view over the outgoing and incoming list of a vertex. Self-loops are in both
+     * lists, they are only visited in the outgoing list.
+     */
+    private class IncidentEdges extends AbstractSet<E> {
+        private final Vertex m_vertex;
+
+        private IncidentEdges(Vertex vertex) {
+            m_vertex = vertex;
+        }
+
+        @Override
+        public int size() {
+            return m_vertex.outgoingList.size() + m_vertex.incomingList.size() - m_vertex.m_selfLoops;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Edge e = m_eList.get(o);
+            return e != null && (e.m_from == m_vertex || e.m_to == m_vertex);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private DLinkedList<Edge> m_list = m_vertex.outgoingList;
+                private DLinkedList.ListItem m_next = advance(m_list.head());
+
+                /**
+                 * @return item, or the next item after it that is not a self-loop in the incoming list
+                 */
+                private DLinkedList.ListItem advance(DLinkedList.ListItem item) {
+                    while (true) {
+                        if (item == null) {
+                            if (m_list == m_vertex.incomingList)
+                                return null;
+                            m_list = m_vertex.incomingList;
+                            item = m_list.head();
+                        } else if (m_list == m_vertex.incomingList && m_list.get(item).m_from == m_vertex) {
+                            item = item.getNext();
+                        } else {
+                            return item;
+                        }
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return m_next != null;
+                }
+
+                @Override
+                public E next() {
+                    if (m_next == null)
+                        throw new NoSuchElementException();
+                    E key = m_list.get(m_next).m_key_E;
+                    m_next = advance(m_next.getNext());
+                    return key;
+                }
+            };
+        }
+    }
+
+    /**
+     * EdgeCursor walking the list items of an adjacency list.
+     */
+    private class AdjacencyCursor implements EdgeCursor<V, E> {
+        private DLinkedList<Edge> m_list;
+        private DLinkedList.ListItem m_next; // item of the next edge
+        private Edge m_current;
+
+        @Override
+        public EdgeCursor<V, E> resetOutgoing(V vertex) {
+            assert (containsVertex(vertex)) : "Vertex must be in list";
+            return reset(m_vList.get(vertex).outgoingList);
+        }
+
+        @Override
+        public EdgeCursor<V, E> resetIncoming(V vertex) {
+            assert (containsVertex(vertex)) : "Vertex must be in list";
+            return reset(m_vList.get(vertex).incomingList);
+        }
+
+        private EdgeCursor<V, E> reset(DLinkedList<Edge> list) {
+            m_list = list;
+            m_next = list.head();
+            m_current = null;
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            if (m_next == null) {
+                m_current = null;
+                return false;
+            }
+            m_current = m_list.get(m_next);
+            m_next = m_next.getNext();
+            return true;
+        }
+
+        @Override
+        public E getEdge() {
+            return m_current.m_key_E;
+        }
+
+        @Override
+        public V getOrigin() {
+            return m_current.origin;
+        }
+
+        @Override
+        public V getDestination() {
+            return m_current.destination;
+        }
+
+        @Override
+        public double getWeight() {
+            return m_current.m_weight;
+        }
+    }
+
+
+    /**
+     * Counts the Graphs sharing their structures after lazyCopy(), also used as their lock.
+     */
+    private static class Share {
+        private int m_graphs = 1;
+    }
+
+    /**
+     * Assigns dense ids to the vertices or edges of the Graph. The id of a removed element is
+     * handed out again by the next add, so the ids stay below the largest number of elements
+     * the Graph held at a time.
      *
+     * @param <T> Vertex or Edge
      */
-    public enum dfsColor {white, black, grey};
+    private static class IdTable<T> {
+        private Object[] m_items = new Object[16]; // element by id, null for free ids
+        private int[] m_free = new int[16]; // stack of free ids
+        private int m_freeSize;
+        private int m_bound; // ids below are in use or free
+
+        private IdTable() {
+        }
+
+        /**
+         * Creates a table with the free ids of table and without elements, see put().
+         */
+        private IdTable(IdTable<?> table) {
+            m_items = new Object[table.m_items.length];
+            m_free = table.m_free.clone();
+            m_freeSize = table.m_freeSize;
+            m_bound = table.m_bound;
+        }
 
+        /**
+         * Creates a table with ids below bound and the given free ids, the elements are set by
+         * put().
+         */
+        private IdTable(int bound, int[] free) {
+            m_items = new Object[Math.max(16, bound)];
+            m_free = Arrays.copyOf(free, Math.max(16, free.length));
+            m_freeSize = free.length;
+            m_bound = bound;
+        }
+
+        /**
+         * @return true at the free ids below bound()
+         * @throws InvalidObjectException if a free id is out of range or twice on the stack
+         */
+        private boolean[] freeIds() throws InvalidObjectException {
+            boolean[] free = new boolean[m_bound];
+            for (int i = 0; i < m_freeSize; i++) {
+                int id = m_free[i];
+                if (id < 0 || id >= m_bound || free[id])
+                    throw new InvalidObjectException("invalid free id " + id);
+                free[id] = true;
+            }
+            return free;
+        }
+
+        /**
+         * @return the id of item
+         */
+        private int add(T item) {
+            int id;
+            if (m_freeSize > 0) {
+                id = m_free[--m_freeSize];
+            } else {
+                if (m_bound == m_items.length)
+                    m_items = Arrays.copyOf(m_items, 2*m_bound);
+                id = m_bound++;
+            }
+            m_items[id] = item;
+            return id;
+        }
+
+        /**
+         * Stores item under an id that is in use in the table this one was copied or read from.
+         */
+        private void put(int id, T item) {
+            m_items[id] = item;
+        }
+
+        private void remove(int id) {
+            assert (m_items[id] != null) : "id must be in use";
+            m_items[id] = null;
+            if (m_freeSize == m_free.length)
+                m_free = Arrays.copyOf(m_free, 2*m_freeSize);
+            m_free[m_freeSize++] = id;
+        }
+
+        /**
+         * @return the element with the given id, null if the id is free or out of range
+         */
+        @SuppressWarnings("unchecked")
+        private T get(int id) {
+            return (id >= 0 && id < m_bound) ? (T) m_items[id] : null;
+        }
+
+        private int bound() {
+            return m_bound;
+        }
+
+        private void clear() {
+            m_items = new Object[16];
+            m_free = new int[16];
+            m_freeSize = 0;
+            m_bound = 0;
+        }
+    }
 }
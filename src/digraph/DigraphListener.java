@@ -0,0 +1,60 @@
+package digraph;
+
+/**
+ * Observer of the changes of a Digraph, e.g. to keep an index up to date. All methods are called
+ * after the change and do nothing by default. removeVertex() reports vertexRemoved() only, the
+ * removed incident edges are implied.
+ *
+ * Listeners are not serialized and not copied by clone().
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public interface DigraphListener<V, E> {
+
+	/**
+	 * @param vertex the added vertex
+	 */
+	default void vertexAdded(V vertex) {
+	}
+
+	/**
+	 * @param vertex the removed vertex, its incident edges are removed as well
+	 */
+	default void vertexRemoved(V vertex) {
+	}
+
+	/**
+	 * @param edge
+	 * @param origin
+	 * @param destination
+	 * @param weight
+	 */
+	default void edgeAdded(E edge, V origin, V destination, double weight) {
+	}
+
+	/**
+	 * @param edge
+	 * @param origin
+	 * @param destination
+	 * @param weight
+	 */
+	default void edgeRemoved(E edge, V origin, V destination, double weight) {
+	}
+
+	/**
+	 * @param edge
+	 * @param origin
+	 * @param destination
+	 * @param oldWeight
+	 * @param newWeight
+	 */
+	default void edgeWeightChanged(E edge, V origin, V destination, double oldWeight, double newWeight) {
+	}
+
+	/**
+	 * Called after all vertices and edges were removed.
+	 */
+	default void cleared() {
+	}
+}
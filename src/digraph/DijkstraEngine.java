@@ -0,0 +1,392 @@
+package digraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Dijkstra's algorithm on the dense vertex ids of an IndexedDigraph. Distances and predecessors are
+ * stored in primitive arrays and the queue is an IndexedDoubleHeap with real decrease-key, so
+ * relaxing an edge allocates nothing. The buffers are reused by subsequent searches; only the
+ * entries touched by the previous search are reset.
+ *
+ * An engine is not thread safe. Use one engine per thread on a shared graph.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class DijkstraEngine<V, E> {
+
+    private final IndexedDigraph<V, E> m_graph;
+    private final double[] m_dist; // distance by vertex id
+    private final int[] m_pred; // edge id of the shortest path tree by vertex id
+    private final IndexedDoubleHeap m_heap;
+    private final int[] m_touched; // vertex ids with a finite distance
+    private int m_touchedSize;
+
+    // backward search of bidirectionalSearch(), allocated on first use
+    private double[] m_bdist; // distance to the target by vertex id
+    private int[] m_bpred; // edge id leaving the vertex towards the target by vertex id
+    private IndexedDoubleHeap m_bheap;
+    private int[] m_btouched;
+    private int m_btouchedSize;
+    private int m_meet; // vertex id on the shortest path found by the last bidirectional search
+
+    /**
+     * Creates an engine and allocates all buffers for the given graph.
+     * @param graph
+     */
+    public DijkstraEngine(IndexedDigraph<V, E> graph) {
+        final int n = graph.getNumberOfVerts();
+        m_graph = graph;
+        m_dist = new double[n];
+        m_pred = new int[n];
+        m_heap = new IndexedDoubleHeap(n);
+        m_touched = new int[n];
+        Arrays.fill(m_dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(m_pred, -1);
+    }
+
+    /**
+     *
+     * @return the graph this engine searches on
+     */
+    public IndexedDigraph<V, E> getGraph() {
+        return m_graph;
+    }
+
+    /**
+     * Computes the shortest paths from origin to all reachable vertices.
+     * Time complexity: O((n+m) log n)
+     * @param origin
+     * @return shortest path tree with its own copy of the distances and predecessors
+     */
+    public ShortestPathTree<V, E> shortestPathTree(V origin) {
+        return shortestPathTree(origin, null);
+    }
+
+    /**
+     * Like shortestPathTree(origin), reports the progress of the search to listener.
+     * @param origin
+     * @param listener may be null
+     * @return shortest path tree with its own copy of the distances and predecessors
+     */
+    public ShortestPathTree<V, E> shortestPathTree(V origin, DijkstraListener<? super V, ? super E> listener) {
+        assert (m_graph.containsVertex(origin)) : "Vertex must be in this Graph";
+        final int s = m_graph.idOf(origin);
+        search(s, listener);
+        return new CompactShortestPathTree<>(m_graph, s, m_dist.clone(), m_pred.clone());
+    }
+
+    /**
+     * Runs the search from the vertex with id source. Afterwards distance() and predecessor()
+     * return the result until the next search is started.
+     * @param source vertex id
+     */
+    public void search(int source) {
+        search(source, null);
+    }
+
+    /**
+     * Like search(source), reports the progress to listener. The vertex and edge keys are only
+     * looked up if a listener is given.
+     * @param source vertex id
+     * @param listener may be null
+     */
+    public void search(int source, DijkstraListener<? super V, ? super E> listener) {
+        run(source, -1, listener);
+    }
+
+    /**
+     * Runs the search from source until target is settled. Afterwards distance() and
+     * predecessor() are final for target and all vertices closer to source.
+     * @param source vertex id
+     * @param target vertex id
+     * @return distance of target, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double search(int source, int target) {
+        run(source, target, null);
+        return m_dist[target];
+    }
+
+    /**
+     * Dijkstra's algorithm from origin, stops as soon as target is settled.
+     * @param origin
+     * @param target
+     * @return a shortest path from origin to target, null if target is not reachable
+     */
+    public Path<V, E> shortestPath(V origin, V target) {
+        assert (m_graph.containsVertex(origin) && m_graph.containsVertex(target)) : "Vertex must be in this Graph";
+        final int t = m_graph.idOf(target);
+        if (search(m_graph.idOf(origin), t) == Double.POSITIVE_INFINITY)
+            return null;
+        return toPath(t, false);
+    }
+
+    /**
+     * A* search from source to target: vertices are taken from the queue in order of their
+     * distance plus heuristic(vertex). A vertex whose distance improves after it was removed is
+     * queued again, so an admissible heuristic suffices.
+     * @param source vertex id
+     * @param target vertex id
+     * @param heuristic lower bound of the distance from a vertex id to target
+     * @return distance of target, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double search(int source, int target, IntToDoubleFunction heuristic) {
+        reset();
+        final IndexedDigraph<V, E> g = m_graph;
+        final double[] dist = m_dist;
+        final int[] pred = m_pred;
+        final IndexedDoubleHeap heap = m_heap;
+
+        dist[source] = 0.0;
+        m_touched[m_touchedSize++] = source;
+        heap.insert(source, heuristic.applyAsDouble(source));
+        while (!heap.isEmpty()) {
+            final int u = heap.removeMin();
+            if (u == target)
+                break;
+            final double du = dist[u];
+            for (int e = g.outBegin(u), end = g.outEnd(u); e < end; e++) {
+                final int v = g.target(e);
+                final double dv = du + g.weight(e);
+                if (dv < dist[v]) {
+                    if (dist[v] == Double.POSITIVE_INFINITY)
+                        m_touched[m_touchedSize++] = v;
+                    heap.insertOrDecrease(v, dv + heuristic.applyAsDouble(v));
+                    dist[v] = dv;
+                    pred[v] = e;
+                }
+            }
+        }
+        return dist[target];
+    }
+
+    /**
+     * A* search from origin to target.
+     * @param origin
+     * @param target
+     * @param heuristic lower bound of the distance between two vertices, must never overestimate
+     * @return a shortest path from origin to target, null if target is not reachable
+     */
+    public Path<V, E> astar(V origin, final V target, final ToDoubleBiFunction<? super V, ? super V> heuristic) {
+        assert (m_graph.containsVertex(origin) && m_graph.containsVertex(target)) : "Vertex must be in this Graph";
+        final int t = m_graph.idOf(target);
+        if (search(m_graph.idOf(origin), t, v -> heuristic.applyAsDouble(m_graph.vertexOf(v), target))
+                == Double.POSITIVE_INFINITY)
+            return null;
+        return toPath(t, false);
+    }
+
+    /**
+     * Searches forward from source over the leaving edges and backward from target over the
+     * incoming edges, always expanding the side with the smaller queue minimum. Stops as soon as
+     * the sum of both minima reaches the shortest path seen so far.
+     * @param source vertex id
+     * @param target vertex id
+     * @return distance of target, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double bidirectionalSearch(int source, int target) {
+        reset();
+        resetBackward();
+        final IndexedDigraph<V, E> g = m_graph;
+        final double[] fdist = m_dist;
+        final double[] bdist = m_bdist;
+        final IndexedDoubleHeap fheap = m_heap;
+        final IndexedDoubleHeap bheap = m_bheap;
+
+        fdist[source] = 0.0;
+        m_touched[m_touchedSize++] = source;
+        fheap.insert(source, 0.0);
+        bdist[target] = 0.0;
+        m_btouched[m_btouchedSize++] = target;
+        bheap.insert(target, 0.0);
+        double mu = (source == target) ? 0.0 : Double.POSITIVE_INFINITY;
+        m_meet = (source == target) ? source : -1;
+
+        while (!fheap.isEmpty() && !bheap.isEmpty()) {
+            // every path not seen yet is at least fmin + bmin long
+            if (fheap.minKey() + bheap.minKey() >= mu)
+                break;
+            if (fheap.minKey() <= bheap.minKey()) {
+                final int u = fheap.removeMin();
+                final double du = fdist[u];
+                for (int e = g.outBegin(u), end = g.outEnd(u); e < end; e++) {
+                    final int v = g.target(e);
+                    final double dv = du + g.weight(e);
+                    if (dv < fdist[v]) {
+                        if (fdist[v] == Double.POSITIVE_INFINITY) {
+                            m_touched[m_touchedSize++] = v;
+                            fheap.insert(v, dv);
+                        } else {
+                            fheap.decreaseKey(v, dv);
+                        }
+                        fdist[v] = dv;
+                        m_pred[v] = e;
+                    }
+                    if (fdist[v] + bdist[v] < mu) {
+                        mu = fdist[v] + bdist[v];
+                        m_meet = v;
+                    }
+                }
+            } else {
+                final int u = bheap.removeMin();
+                final double du = bdist[u];
+                for (int i = g.inBegin(u), end = g.inEnd(u); i < end; i++) {
+                    final int v = g.inSource(i);
+                    final double dv = du + g.inWeight(i);
+                    if (dv < bdist[v]) {
+                        if (bdist[v] == Double.POSITIVE_INFINITY) {
+                            m_btouched[m_btouchedSize++] = v;
+                            bheap.insert(v, dv);
+                        } else {
+                            bheap.decreaseKey(v, dv);
+                        }
+                        bdist[v] = dv;
+                        m_bpred[v] = g.inEdge(i);
+                    }
+                    if (fdist[v] + bdist[v] < mu) {
+                        mu = fdist[v] + bdist[v];
+                        m_meet = v;
+                    }
+                }
+            }
+        }
+        return mu;
+    }
+
+    /**
+     * Bidirectional variant of shortestPath(origin, target).
+     * @param origin
+     * @param target
+     * @return a shortest path from origin to target, null if target is not reachable
+     */
+    public Path<V, E> bidirectionalShortestPath(V origin, V target) {
+        assert (m_graph.containsVertex(origin) && m_graph.containsVertex(target)) : "Vertex must be in this Graph";
+        if (bidirectionalSearch(m_graph.idOf(origin), m_graph.idOf(target)) == Double.POSITIVE_INFINITY)
+            return null;
+        return toPath(m_meet, true);
+    }
+
+    /**
+     * Runs the search from source, stops when target is settled. target -1 settles all vertices.
+     */
+    private void run(int source, int target, DijkstraListener<? super V, ? super E> listener) {
+        reset();
+        final IndexedDigraph<V, E> g = m_graph;
+        final double[] dist = m_dist;
+        final int[] pred = m_pred;
+        final IndexedDoubleHeap heap = m_heap;
+
+        dist[source] = 0.0;
+        m_touched[m_touchedSize++] = source;
+        heap.insert(source, 0.0);
+        while (!heap.isEmpty()) {
+            final int u = heap.removeMin();
+            final double du = dist[u];
+            if (listener != null)
+                listener.vertexSettled(g.vertexOf(u), du);
+            if (u == target)
+                break;
+            for (int e = g.outBegin(u), end = g.outEnd(u); e < end; e++) {
+                final int v = g.target(e);
+                final double dv = du + g.weight(e);
+                if (dv < dist[v]) {
+                    if (dist[v] == Double.POSITIVE_INFINITY) {
+                        m_touched[m_touchedSize++] = v;
+                        heap.insert(v, dv);
+                    } else {
+                        heap.decreaseKey(v, dv);
+                    }
+                    dist[v] = dv;
+                    pred[v] = e;
+                    if (listener != null)
+                        listener.edgeRelaxed(g.edgeOf(e), g.vertexOf(u), g.vertexOf(v), dv);
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @param v vertex id
+     * @return distance of v found by the last search, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double distance(int v) {
+        return m_dist[v];
+    }
+
+    /**
+     *
+     * @param v vertex id
+     * @return edge id of the last edge on the shortest path to v, -1 if there is none
+     */
+    public int predecessor(int v) {
+        return m_pred[v];
+    }
+
+    /**
+     * Follows the forward predecessors from v back to the source and, after a bidirectional
+     * search, the backward predecessors from v on to the target.
+     */
+    private Path<V, E> toPath(int v, boolean bidirectional) {
+        final IndexedDigraph<V, E> g = m_graph;
+        ArrayList<V> vertices = new ArrayList<>();
+        ArrayList<E> edges = new ArrayList<>();
+        double weight = m_dist[v];
+        vertices.add(g.vertexOf(v));
+        for (int u = v; m_pred[u] >= 0; u = g.source(m_pred[u])) {
+            edges.add(g.edgeOf(m_pred[u]));
+            vertices.add(g.vertexOf(g.source(m_pred[u])));
+        }
+        Collections.reverse(vertices);
+        Collections.reverse(edges);
+        if (bidirectional) {
+            weight += m_bdist[v];
+            for (int u = v; m_bpred[u] >= 0; u = g.target(m_bpred[u])) {
+                edges.add(g.edgeOf(m_bpred[u]));
+                vertices.add(g.vertexOf(g.target(m_bpred[u])));
+            }
+        }
+        return new Path<>(vertices, edges, weight);
+    }
+
+    /**
+     * Resets the entries changed by the last search in O(number of reached vertices).
+     */
+    private void reset() {
+        for (int i = 0; i < m_touchedSize; i++) {
+            m_dist[m_touched[i]] = Double.POSITIVE_INFINITY;
+            m_pred[m_touched[i]] = -1;
+        }
+        m_touchedSize = 0;
+        m_heap.clear();
+    }
+
+    /**
+     * Allocates the buffers of the backward search on first use, afterwards resets the entries
+     * changed by the last bidirectional search.
+     */
+    private void resetBackward() {
+        if (m_bdist == null) {
+            final int n = m_dist.length;
+            m_bdist = new double[n];
+            m_bpred = new int[n];
+            m_bheap = new IndexedDoubleHeap(n);
+            m_btouched = new int[n];
+            Arrays.fill(m_bdist, Double.POSITIVE_INFINITY);
+            Arrays.fill(m_bpred, -1);
+            return;
+        }
+        for (int i = 0; i < m_btouchedSize; i++) {
+            m_bdist[m_btouched[i]] = Double.POSITIVE_INFINITY;
+            m_bpred[m_btouched[i]] = -1;
+        }
+        m_btouchedSize = 0;
+        m_bheap.clear();
+    }
+}
@@ -0,0 +1,46 @@
+package digraph;
+
+import java.io.PrintStream;
+
+/**
+ * Observer of a shortest path search, e.g. for logging or visualisation. Both methods do nothing
+ * by default.
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public interface DijkstraListener<V, E> {
+
+	/**
+	 * Called when the shortest path to vertex is final.
+	 * @param vertex
+	 * @param distance length of the shortest path from the origin to vertex
+	 */
+	default void vertexSettled(V vertex, double distance) {
+	}
+
+	/**
+	 * Called when edge shortens the path to its destination.
+	 * @param edge
+	 * @param origin
+	 * @param destination
+	 * @param distance new distance of destination
+	 */
+	default void edgeRelaxed(E edge, V origin, V destination, double distance) {
+	}
+
+	/**
+	 * Creates a listener printing every settled vertex with its distance.
+	 * @param out
+	 * @return listener writing to out
+	 */
+	static <V, E> DijkstraListener<V, E> printTo(final PrintStream out) {
+		return new DijkstraListener<V, E>() {
+			@Override
+			public void vertexSettled(V vertex, double distance) {
+				out.println(vertex + " => " + distance);
+			}
+		};
+	}
+
+}
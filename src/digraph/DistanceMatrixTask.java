@@ -0,0 +1,83 @@
+package digraph;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task computing the distances from a range of sources to all targets. The range is
+ * split in halves until it is small enough; every leaf runs its single source searches with its
+ * own DijkstraEngine on the shared, immutable CompactDigraph, so the workers share no mutable
+ * state besides disjoint rows of the result.
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+class DistanceMatrixTask<V, E> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CompactDigraph<V, E> m_graph;
+    private final int[] m_sources; // vertex ids
+    private final int[] m_targets; // vertex ids
+    private final double[] m_matrix;
+    private final int m_begin;
+    private final int m_end;
+    private final int m_leafSize;
+
+    private DistanceMatrixTask(CompactDigraph<V, E> graph, int[] sources, int[] targets, double[] matrix, int begin,
+            int end, int leafSize) {
+        m_graph = graph;
+        m_sources = sources;
+        m_targets = targets;
+        m_matrix = matrix;
+        m_begin = begin;
+        m_end = end;
+        m_leafSize = leafSize;
+    }
+
+    /**
+     * Computes the distance matrix on pool.
+     * @return row-major matrix, the distance from the i-th source to the j-th target is at
+     *         i*targets.size() + j, Double.POSITIVE_INFINITY if unreachable
+     */
+    static <V, E> double[] compute(CompactDigraph<V, E> graph, Collection<V> sources, Collection<V> targets,
+            ForkJoinPool pool) {
+        int[] s = ids(graph, sources);
+        int[] t = ids(graph, targets);
+        double[] matrix = new double[s.length*t.length];
+        // about four leaves per worker to balance searches of different sizes
+        int leafSize = Math.max(1, s.length/(4*pool.getParallelism()));
+        pool.invoke(new DistanceMatrixTask<>(graph, s, t, matrix, 0, s.length, leafSize));
+        return matrix;
+    }
+
+    private static <V> int[] ids(CompactDigraph<V, ?> graph, Collection<V> vertices) {
+        int[] ids = new int[vertices.size()];
+        int i = 0;
+        for (V v : vertices) {
+            ids[i] = graph.idOf(v);
+            if (ids[i++] < 0)
+                throw new IllegalArgumentException("Vertex " + v + " is not in this Graph.");
+        }
+        return ids;
+    }
+
+    @Override
+    protected void compute() {
+        if (m_end - m_begin > m_leafSize) {
+            int mid = (m_begin + m_end) >>> 1;
+            invokeAll(new DistanceMatrixTask<>(m_graph, m_sources, m_targets, m_matrix, m_begin, mid, m_leafSize),
+                    new DistanceMatrixTask<>(m_graph, m_sources, m_targets, m_matrix, mid, m_end, m_leafSize));
+            return;
+        }
+        final int columns = m_targets.length;
+        DijkstraEngine<V, E> engine = new DijkstraEngine<>(m_graph);
+        for (int i = m_begin; i < m_end; i++) {
+            engine.search(m_sources[i]);
+            for (int j = 0; j < columns; j++) {
+                m_matrix[i*columns + j] = engine.distance(m_targets[j]);
+            }
+        }
+    }
+}
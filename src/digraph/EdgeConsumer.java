@@ -0,0 +1,21 @@
+package digraph;
+
+/**
+ * Callback for the adjacency iteration of IReadOnlyDigraph.forEachOutgoing() and forEachIncoming().
+ * The edge is passed together with its endpoints and weight, so no further lookups are needed.
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public interface EdgeConsumer<V, E> {
+
+	/**
+	 * Called once per visited edge.
+	 * @param edge key of the edge
+	 * @param origin
+	 * @param destination
+	 * @param weight
+	 */
+	void accept(E edge, V origin, V destination, double weight);
+
+}
@@ -0,0 +1,68 @@
+package digraph;
+
+/**
+ * Reusable cursor over the outgoing or incoming edges of a vertex. A cursor walks the adjacency of
+ * its Graph directly and allocates nothing, so one cursor can be used for any number of vertices:
+ * 
+ * <pre>
+ * EdgeCursor&lt;V, E&gt; c = graph.newEdgeCursor();
+ * for (V v : vertices) {
+ *     c.resetOutgoing(v);
+ *     while (c.next()) {
+ *         ... c.getDestination(), c.getWeight() ...
+ *     }
+ * }
+ * </pre>
+ * 
+ * The Graph must not be changed while a cursor is used, except for removing the current edge.
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public interface EdgeCursor<V, E> {
+
+	/**
+	 * Positions the cursor before the first edge leaving vertex.
+	 * @param vertex
+	 * @return this cursor
+	 */
+	EdgeCursor<V, E> resetOutgoing(V vertex);
+
+	/**
+	 * Positions the cursor before the first edge ending on vertex.
+	 * @param vertex
+	 * @return this cursor
+	 */
+	EdgeCursor<V, E> resetIncoming(V vertex);
+
+	/**
+	 * Moves the cursor to the next edge.
+	 * @return false if there are no more edges
+	 */
+	boolean next();
+
+	/**
+	 * 
+	 * @return key of the current edge
+	 */
+	E getEdge();
+
+	/**
+	 * 
+	 * @return origin of the current edge
+	 */
+	V getOrigin();
+
+	/**
+	 * 
+	 * @return destination of the current edge
+	 */
+	V getDestination();
+
+	/**
+	 * 
+	 * @return weight of the current edge
+	 */
+	double getWeight();
+
+}
@@ -0,0 +1,491 @@
+package digraph;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Streams a text file of edges into a Graph with Integer vertices and Integer edges. The file is
+ * read in blocks of a few MB into reused byte buffers and parsed without creating a String per
+ * line, the edges of a block are inserted by one GraphBuilder batch. Memory use is bounded by the
+ * blocks in flight, not by the size of the file. With a ForkJoinPool the blocks are parsed in
+ * parallel and inserted in file order.
+ *
+ * The vertex keys are the numbers in the file, the edges get the keys 0, 1, 2, ... in file order.
+ * Edges without a weight get the weight 1.
+ *
+ * <pre>
+ * EdgeListImporter.Result r = new EdgeListImporter(Format.DIMACS).importFile(file, graph);
+ * System.out.println(r.getEdgesPerSecond());
+ * </pre>
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ */
+public class EdgeListImporter {
+
+    public enum Format {
+        /**
+         * "origin destination [weight]" per line, lines starting with # or % are comments
+         */
+        EDGE_LIST,
+        /**
+         * DIMACS shortest path format: "p sp n m" and "a origin destination weight" lines,
+         * vertices 1 to n
+         */
+        DIMACS,
+        /**
+         * Matrix Market coordinate format: entry (i, j) is an edge from i to j, vertices 1 to
+         * max(rows, columns). Symmetric matrices give an edge in both directions, pattern
+         * matrices weight 1.
+         */
+        MATRIX_MARKET
+    }
+
+    private static final int BLOCK_SIZE = 1 << 22; // bytes, also the maximal line length
+    private static final int INTERNED = 1 << 24; // vertex keys below are interned
+
+    private final Format m_format;
+    private final ForkJoinPool m_pool;
+
+    /**
+     * Creates an importer parsing on the calling thread.
+     * @param format
+     */
+    public EdgeListImporter(Format format) {
+        this(format, null);
+    }
+
+    /**
+     * Creates an importer parsing blocks in parallel on pool.
+     * @param format
+     * @param pool null to parse on the calling thread
+     */
+    public EdgeListImporter(Format format, ForkJoinPool pool) {
+        m_format = format;
+        m_pool = pool;
+    }
+
+    /**
+     * Imports the edges of file into graph.
+     * @return number of edges and throughput
+     * @throws IOException if file cannot be read or contains a malformed line
+     */
+    public Result importFile(File file, IDigraph<Integer, Integer> graph) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return importStream(in, graph);
+        }
+    }
+
+    /**
+     * Imports the edges read from in into graph. The stream is not closed.
+     * @return number of edges and throughput
+     * @throws IOException if in cannot be read or contains a malformed line
+     */
+    public Result importStream(InputStream in, IDigraph<Integer, Integer> graph) throws IOException {
+        return new Run(in, graph).run();
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static class Result {
+        private final long m_edges;
+        private final long m_bytes;
+        private final long m_nanos;
+
+        private Result(long edges, long bytes, long nanos) {
+            m_edges = edges;
+            m_bytes = bytes;
+            m_nanos = nanos;
+        }
+
+        /**
+         *
+         * @return number of edges added to the Graph
+         */
+        public long getEdges() {
+            return m_edges;
+        }
+
+        /**
+         *
+         * @return number of bytes read
+         */
+        public long getBytes() {
+            return m_bytes;
+        }
+
+        /**
+         *
+         * @return duration of the import in nanoseconds
+         */
+        public long getNanos() {
+            return m_nanos;
+        }
+
+        /**
+         *
+         * @return edges added per second
+         */
+        public double getEdgesPerSecond() {
+            return (m_nanos == 0) ? 0.0 : m_edges*1e9/m_nanos;
+        }
+
+        @Override
+        public String toString() {
+            return m_edges + " edges, " + m_bytes + " bytes in " + m_nanos/1000000 + " ms ("
+                    + (long) getEdgesPerSecond() + " edges/s)";
+        }
+    }
+
+    /**
+     * State of one import.
+     */
+    private class Run {
+        private final InputStream m_in;
+        private final IDigraph<Integer, Integer> m_graph;
+        private final List<Block> m_blocks = new ArrayList<>();
+        private Integer[] m_keys = new Integer[1024]; // interned vertex keys, null if not added yet
+        private boolean m_symmetric; // Matrix Market: add the mirrored edges
+        private boolean m_header; // the header of the file was read
+        private int m_nextEdge;
+        private long m_edges;
+        private long m_bytes;
+
+        private Run(InputStream in, IDigraph<Integer, Integer> graph) {
+            m_in = in;
+            m_graph = graph;
+            final int blocks = (m_pool == null) ? 1 : m_pool.getParallelism();
+            for (int i = 0; i < blocks; i++) {
+                m_blocks.add(new Block());
+            }
+        }
+
+        private Result run() throws IOException {
+            final long start = System.nanoTime();
+            byte[] carry = new byte[0]; // incomplete last line of the previous block
+            int carrySize = 0;
+            boolean eof = false;
+            while (!eof) {
+                int filled = 0;
+                for (; filled < m_blocks.size() && !eof; filled++) {
+                    Block b = m_blocks.get(filled);
+                    System.arraycopy(carry, 0, b.m_buffer, 0, carrySize);
+                    int size = carrySize;
+                    int r;
+                    while (size < b.m_buffer.length && (r = m_in.read(b.m_buffer, size, b.m_buffer.length - size)) > 0) {
+                        size += r;
+                    }
+                    m_bytes += size - carrySize;
+                    eof = size < b.m_buffer.length;
+                    // the block ends after its last complete line
+                    int end = size;
+                    if (!eof) {
+                        while (end > 0 && b.m_buffer[end - 1] != '\n') {
+                            end--;
+                        }
+                        if (end == 0)
+                            throw new IOException("Line longer than " + BLOCK_SIZE + " bytes.");
+                    }
+                    carrySize = size - end;
+                    if (carry.length < carrySize)
+                        carry = new byte[BLOCK_SIZE];
+                    System.arraycopy(b.m_buffer, end, carry, 0, carrySize);
+                    b.m_begin = m_header ? 0 : header(b.m_buffer, end);
+                    b.m_end = end;
+                }
+                parse(m_blocks.subList(0, filled));
+                for (int i = 0; i < filled; i++) {
+                    insert(m_blocks.get(i));
+                }
+            }
+            if (!m_header)
+                throw new IOException("Missing header.");
+            return new Result(m_edges, m_bytes, System.nanoTime() - start);
+        }
+
+        /**
+         * Parses the header lines at the start of the file, adds the vertices the header
+         * declares.
+         * @return position of the first line after the header
+         */
+        private int header(byte[] buffer, int end) throws IOException {
+            m_header = true;
+            int pos = 0;
+            if (m_format == Format.EDGE_LIST)
+                return pos;
+            boolean banner = false;
+            while (pos < end) {
+                int eol = lineEnd(buffer, pos, end);
+                int p = skipBlanks(buffer, pos, eol);
+                if (m_format == Format.DIMACS) {
+                    if (p < eol && buffer[p] == 'p') {
+                        // p sp n m
+                        p = skipBlanks(buffer, skipWord(buffer, skipBlanks(buffer, p + 1, eol), eol), eol);
+                        addVertices(parseInt(buffer, p, eol, pos));
+                        return eol;
+                    }
+                    if (p < eol && buffer[p] == 'a')
+                        return pos;
+                } else if (!banner) {
+                    String line = new String(buffer, p, eol - p, StandardCharsets.US_ASCII).toLowerCase();
+                    if (!line.startsWith("%%matrixmarket matrix coordinate"))
+                        throw new IOException("Not a Matrix Market coordinate file: " + line);
+                    if (line.contains("complex"))
+                        throw new IOException("Complex matrices are not supported.");
+                    m_symmetric = line.contains("symmetric") || line.contains("hermitian");
+                    banner = true;
+                } else if (p < eol && buffer[p] != '%') {
+                    // rows columns entries
+                    int rows = parseInt(buffer, p, eol, pos);
+                    int columns = parseInt(buffer, skipBlanks(buffer, skipWord(buffer, p, eol), eol), eol, pos);
+                    addVertices(Math.max(rows, columns));
+                    return eol;
+                }
+                pos = eol;
+            }
+            if (m_format == Format.MATRIX_MARKET)
+                throw new IOException("Missing size line.");
+            return pos;
+        }
+
+        /**
+         * Adds the vertices 1 to n.
+         */
+        private void addVertices(int n) {
+            GraphBuilder<Integer, Integer> batch = m_graph.batch();
+            for (int v = 1; v <= n; v++) {
+                batch.addVertex(intern(v));
+            }
+            batch.apply();
+        }
+
+        /**
+         * @return the Integer of key, the same object for every call with a small key
+         */
+        private Integer intern(int key) {
+            if (key < 0 || key >= INTERNED)
+                return key;
+            if (key >= m_keys.length)
+                m_keys = Arrays.copyOf(m_keys, Math.max(key + 1, 2*m_keys.length));
+            Integer k = m_keys[key];
+            if (k == null) {
+                k = key;
+                m_keys[key] = k;
+            }
+            return k;
+        }
+
+        private void parse(List<Block> blocks) {
+            if (m_pool == null || blocks.size() == 1) {
+                for (Block b : blocks) {
+                    b.reinitialize();
+                    b.invoke();
+                }
+            } else {
+                m_pool.invoke(new RecursiveAction() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                        for (Block b : blocks) {
+                            b.reinitialize();
+                        }
+                        invokeAll(blocks);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Adds the new vertices and the edges of block in one batch.
+         */
+        private void insert(Block block) throws IOException {
+            if (block.m_error != null)
+                throw block.m_error;
+            GraphBuilder<Integer, Integer> batch = m_graph.batch();
+            for (int i = 0; i < block.m_count; i++) {
+                addVertex(batch, block.m_origins[i]);
+                addVertex(batch, block.m_destinations[i]);
+            }
+            for (int i = 0; i < block.m_count; i++) {
+                Integer o = intern(block.m_origins[i]);
+                Integer d = intern(block.m_destinations[i]);
+                batch.addEdge(m_nextEdge++, block.m_weights[i], o, d);
+                if (m_symmetric && !o.equals(d))
+                    batch.addEdge(m_nextEdge++, block.m_weights[i], d, o);
+            }
+            m_edges += batch.apply();
+        }
+
+        private void addVertex(GraphBuilder<Integer, Integer> batch, int key) {
+            // interned keys are added once, others are ignored by the Graph if present
+            if (key < 0 || key >= INTERNED)
+                batch.addVertex(key);
+            else if (key >= m_keys.length || m_keys[key] == null)
+                batch.addVertex(intern(key));
+        }
+    }
+
+    /**
+     * Buffer of one block of the file and the edges parsed from it, reused for the next blocks.
+     */
+    private class Block extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] m_buffer = new byte[BLOCK_SIZE];
+        private int m_begin;
+        private int m_end;
+        private int[] m_origins = new int[1024];
+        private int[] m_destinations = new int[1024];
+        private double[] m_weights = new double[1024];
+        private int m_count;
+        private IOException m_error;
+
+        @Override
+        protected void compute() {
+            m_count = 0;
+            m_error = null;
+            try {
+                for (int pos = m_begin; pos < m_end;) {
+                    int eol = lineEnd(m_buffer, pos, m_end);
+                    parseLine(pos, eol);
+                    pos = eol;
+                }
+            } catch (IOException e) {
+                m_error = e;
+            }
+        }
+
+        private void parseLine(int line, int eol) throws IOException {
+            int p = skipBlanks(m_buffer, line, eol);
+            if (p == eol)
+                return;
+            byte first = m_buffer[p];
+            if (m_format == Format.DIMACS) {
+                if (first != 'a')
+                    return; // comment or problem line
+                p = skipBlanks(m_buffer, p + 1, eol);
+            } else if (first == '%' || first == '#') {
+                return;
+            }
+            int origin = parseInt(m_buffer, p, eol, line);
+            p = skipBlanks(m_buffer, skipWord(m_buffer, p, eol), eol);
+            int destination = parseInt(m_buffer, p, eol, line);
+            p = skipBlanks(m_buffer, skipWord(m_buffer, p, eol), eol);
+            double weight = (p < eol) ? parseDouble(m_buffer, p, skipWord(m_buffer, p, eol), line) : 1.0;
+            if (!(weight >= 0))
+                throw new IOException("Negative weight: " + text(m_buffer, line, eol));
+            if (m_count == m_origins.length) {
+                m_origins = Arrays.copyOf(m_origins, 2*m_count);
+                m_destinations = Arrays.copyOf(m_destinations, 2*m_count);
+                m_weights = Arrays.copyOf(m_weights, 2*m_count);
+            }
+            m_origins[m_count] = origin;
+            m_destinations[m_count] = destination;
+            m_weights[m_count++] = weight;
+        }
+    }
+
+    /**
+     * @return position after the line starting at pos, including its line break
+     */
+    private static int lineEnd(byte[] buffer, int pos, int end) {
+        while (pos < end && buffer[pos++] != '\n') {
+        }
+        return pos;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == ',';
+    }
+
+    private static int skipBlanks(byte[] buffer, int pos, int end) {
+        while (pos < end && isBlank(buffer[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipWord(byte[] buffer, int pos, int end) {
+        while (pos < end && !isBlank(buffer[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Parses the decimal integer at pos.
+     * @param line start of the line, for the error message
+     */
+    private static int parseInt(byte[] buffer, int pos, int end, int line) throws IOException {
+        boolean negative = pos < end && buffer[pos] == '-';
+        if (negative || (pos < end && buffer[pos] == '+'))
+            pos++;
+        long value = 0;
+        int digits = 0;
+        for (; pos < end && buffer[pos] >= '0' && buffer[pos] <= '9'; pos++, digits++) {
+            value = 10*value + (buffer[pos] - '0');
+            if (value > Integer.MAX_VALUE + 1L)
+                throw new IOException("Number too large: " + text(buffer, line, end));
+        }
+        if (digits == 0 || (pos < end && !isBlank(buffer[pos])) || (!negative && value > Integer.MAX_VALUE))
+            throw new IOException("Malformed line: " + text(buffer, line, end));
+        return (int) (negative ? -value : value);
+    }
+
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * Parses the number in [pos, end). Numbers with at most 15 digits and at most 22 decimals
+     * are computed from two exact doubles, so the result is correctly rounded. Other numbers go
+     * through Double.parseDouble().
+     * @param line start of the line, for the error message
+     */
+    private static double parseDouble(byte[] buffer, int pos, int end, int line) throws IOException {
+        int p = pos;
+        boolean negative = buffer[p] == '-';
+        if (negative || buffer[p] == '+')
+            p++;
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; p < end; p++) {
+            byte b = buffer[p];
+            if (b >= '0' && b <= '9') {
+                mantissa = 10*mantissa + (b - '0');
+                digits++;
+                if (decimals >= 0)
+                    decimals++;
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+        if (p == end && digits > 0 && digits <= 15 && decimals <= 22) {
+            double value = (decimals > 0) ? mantissa/POWERS_OF_TEN[decimals] : mantissa;
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(buffer, pos, end - pos, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed line: " + text(buffer, line, end));
+        }
+    }
+
+    /**
+     * @return the line starting at line, for error messages
+     */
+    private static String text(byte[] buffer, int line, int end) {
+        return new String(buffer, line, lineEnd(buffer, line, buffer.length) - line, StandardCharsets.US_ASCII).trim();
+    }
+}
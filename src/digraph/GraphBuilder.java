@@ -0,0 +1,188 @@
+package digraph;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Collects vertices and edges and inserts them in bulk. Digraph and VersionedDigraph insert a
+ * batch in one pass: the hash maps are grown once, each endpoint is resolved once per run of edges
+ * with the same endpoint and a VersionedDigraph publishes a single generation. Other Graphs get
+ * the usual addVertex and addEdge calls.
+ *
+ * <pre>
+ * Digraph&lt;Integer, Integer&gt; g = new GraphBuilder&lt;Integer, Integer&gt;().addVertices(vertices)
+ *         .addEdges(keys, weights, origins, destinations).build();
+ * graph.batch().addEdge(key, weight, origin, destination).apply();
+ * </pre>
+ *
+ * As with addEdge, an edge with an unknown endpoint is skipped and an edge with a key that is
+ * already present replaces the old edge.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class GraphBuilder<V, E> {
+
+    /**
+     * Graph the batch is applied to, null to build a new Digraph.
+     */
+    private final IDigraph<V, E> m_target;
+
+    private Object[] m_vertices = new Object[16];
+    private int m_nv;
+
+    private Object[] m_keys = new Object[16];
+    private double[] m_weights = new double[16];
+    private Object[] m_origins = new Object[16];
+    private Object[] m_destinations = new Object[16];
+    private int m_ne;
+
+    /**
+     * Creates a builder for a new Digraph, see build().
+     */
+    public GraphBuilder() {
+        this(null);
+    }
+
+    /**
+     * Creates a builder for the given Graph, see apply().
+     * @param target
+     */
+    GraphBuilder(IDigraph<V, E> target) {
+        m_target = target;
+    }
+
+    public GraphBuilder<V, E> addVertex(V vertex) {
+        if (m_nv == m_vertices.length)
+            m_vertices = Arrays.copyOf(m_vertices, 2*m_nv);
+        m_vertices[m_nv++] = vertex;
+        return this;
+    }
+
+    public GraphBuilder<V, E> addVertices(Collection<? extends V> vertices) {
+        reserveVertices(vertices.size());
+        for (V v : vertices) {
+            m_vertices[m_nv++] = v;
+        }
+        return this;
+    }
+
+    public GraphBuilder<V, E> addVertices(V[] vertices) {
+        reserveVertices(vertices.length);
+        System.arraycopy(vertices, 0, m_vertices, m_nv, vertices.length);
+        m_nv += vertices.length;
+        return this;
+    }
+
+    /**
+     * @param weight ONLY POSITIVE ALLOWED
+     */
+    public GraphBuilder<V, E> addEdge(E key, double weight, V origin, V destination) {
+        assert (weight >= 0) : "weight must be >= 0";
+        reserveEdges(1);
+        m_keys[m_ne] = key;
+        m_weights[m_ne] = weight;
+        m_origins[m_ne] = origin;
+        m_destinations[m_ne++] = destination;
+        return this;
+    }
+
+    /**
+     * Adds the edges keys[i] with weights[i] from origins[i] to destinations[i]. Edges sorted by
+     * origin are inserted fastest.
+     * @param weights ONLY POSITIVE ALLOWED
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public GraphBuilder<V, E> addEdges(E[] keys, double[] weights, V[] origins, V[] destinations) {
+        final int n = keys.length;
+        if (weights.length != n || origins.length != n || destinations.length != n)
+            throw new IllegalArgumentException("keys, weights, origins and destinations must have the same length.");
+        assert (nonNegative(weights)) : "weight must be >= 0";
+        reserveEdges(n);
+        System.arraycopy(keys, 0, m_keys, m_ne, n);
+        System.arraycopy(weights, 0, m_weights, m_ne, n);
+        System.arraycopy(origins, 0, m_origins, m_ne, n);
+        System.arraycopy(destinations, 0, m_destinations, m_ne, n);
+        m_ne += n;
+        return this;
+    }
+
+    /**
+     * @return true if no weight is negative or NaN
+     */
+    private static boolean nonNegative(double[] weights) {
+        for (double w : weights) {
+            if (!(w >= 0))
+                return false;
+        }
+        return true;
+    }
+
+    private void reserveVertices(int n) {
+        if (m_nv + n > m_vertices.length)
+            m_vertices = Arrays.copyOf(m_vertices, Math.max(m_nv + n, 2*m_vertices.length));
+    }
+
+    private void reserveEdges(int n) {
+        if (m_ne + n > m_keys.length) {
+            final int capacity = Math.max(m_ne + n, 2*m_keys.length);
+            m_keys = Arrays.copyOf(m_keys, capacity);
+            m_weights = Arrays.copyOf(m_weights, capacity);
+            m_origins = Arrays.copyOf(m_origins, capacity);
+            m_destinations = Arrays.copyOf(m_destinations, capacity);
+        }
+    }
+
+    /**
+     * Inserts the collected vertices, then the collected edges into the Graph this builder was
+     * created for by IDigraph.batch(). The builder is empty afterwards.
+     * @return the number of edges added
+     * @throws IllegalStateException if the builder was not created by IDigraph.batch()
+     */
+    public int apply() {
+        if (m_target == null)
+            throw new IllegalStateException("Builder of a new Graph, use build().");
+        int added = apply(m_target);
+        m_vertices = new Object[16];
+        m_keys = new Object[16];
+        m_weights = new double[16];
+        m_origins = new Object[16];
+        m_destinations = new Object[16];
+        m_nv = 0;
+        m_ne = 0;
+        return added;
+    }
+
+    /**
+     * Creates a Digraph with hash maps sized for the collected vertices and edges.
+     * @return the new Graph
+     * @throws IllegalStateException if the builder was created by IDigraph.batch()
+     */
+    public Digraph<V, E> build() {
+        if (m_target != null)
+            throw new IllegalStateException("Builder of an existing Graph, use apply().");
+        Digraph<V, E> graph = new Digraph<>((int) (m_nv / 0.75f) + 1, (int) (m_ne / 0.75f) + 1);
+        apply(graph);
+        return graph;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int apply(IDigraph<V, E> graph) {
+        if (graph instanceof Digraph)
+            return ((Digraph<V, E>) graph).addAll(m_vertices, m_nv, m_keys, m_weights, m_origins, m_destinations, m_ne);
+        if (graph instanceof VersionedDigraph)
+            return ((VersionedDigraph<V, E>) graph).addAll(m_vertices, m_nv, m_keys, m_weights, m_origins,
+                    m_destinations, m_ne);
+        for (int i = 0; i < m_nv; i++) {
+            graph.addVertex((V) m_vertices[i]);
+        }
+        int added = 0;
+        for (int i = 0; i < m_ne; i++) {
+            if (graph.addEdge((E) m_keys[i], m_weights[i], (V) m_origins[i], (V) m_destinations[i]))
+                added++;
+        }
+        return added;
+    }
+}
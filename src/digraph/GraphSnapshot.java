@@ -0,0 +1,685 @@
+package digraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Immutable generation of a VersionedDigraph. A snapshot never changes, so any number of threads
+ * can traverse it without locks while the Graph receives updates.
+ *
+ * Vertices and edges have dense ids. The vertex and edge states are stored in pages of
+ * PAGE entries; a new generation copies the page directory and only the pages it changes and
+ * shares all others with its predecessor. Each vertex keeps its adjacency as immutable arrays of
+ * edge ids. A generation is garbage collected as soon as no reader holds it.
+ *
+ * The searches run directly on the adjacency arrays. A point to point search only labels the
+ * vertices it reaches, so its cost follows the search space rather than the size of the Graph.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class GraphSnapshot<V, E> implements IReadOnlyDigraph<V, E> {
+
+    static final int PAGE_BITS = 8;
+    static final int PAGE = 1 << PAGE_BITS;
+    static final int MASK = PAGE - 1;
+
+    private final long m_version;
+
+    /**
+     * Ids of all keys ever added to the Graph, shared by all generations. A key whose slot in this
+     * generation is empty is not contained.
+     */
+    private final Map<V, Integer> m_vertexIds;
+    private final Map<E, Integer> m_edgeIds;
+
+    /**
+     * Node by vertex id and EdgeState by edge id, in pages. Missing pages are empty.
+     */
+    final Object[][] m_vertexPages;
+    final Object[][] m_edgePages;
+
+    private final int m_numberOfVerts;
+    private final int m_numberOfEdges;
+
+    private volatile Set<V> m_verts;
+    private volatile Set<E> m_edges;
+
+    GraphSnapshot(long version, Map<V, Integer> vertexIds, Map<E, Integer> edgeIds, Object[][] vertexPages,
+            Object[][] edgePages, int numberOfVerts, int numberOfEdges) {
+        m_version = version;
+        m_vertexIds = vertexIds;
+        m_edgeIds = edgeIds;
+        m_vertexPages = vertexPages;
+        m_edgePages = edgePages;
+        m_numberOfVerts = numberOfVerts;
+        m_numberOfEdges = numberOfEdges;
+    }
+
+    /**
+     *
+     * @return number of the generation, incremented by every change of the Graph
+     */
+    public long getVersion() {
+        return m_version;
+    }
+
+    /**
+     * @return the node with id, null if the vertex is not contained
+     */
+    @SuppressWarnings("unchecked")
+    Node<V> node(int id) {
+        final int p = id >>> PAGE_BITS;
+        if (p >= m_vertexPages.length || m_vertexPages[p] == null)
+            return null;
+        return (Node<V>) m_vertexPages[p][id & MASK];
+    }
+
+    /**
+     * @return the edge with id, null if it is not contained
+     */
+    @SuppressWarnings("unchecked")
+    EdgeState<E> edge(int id) {
+        final int p = id >>> PAGE_BITS;
+        if (p >= m_edgePages.length || m_edgePages[p] == null)
+            return null;
+        return (EdgeState<E>) m_edgePages[p][id & MASK];
+    }
+
+    private Node<V> node(V vertex) {
+        Integer id = m_vertexIds.get(vertex);
+        return (id == null) ? null : node(id);
+    }
+
+    private EdgeState<E> edge(E edge) {
+        Integer id = m_edgeIds.get(edge);
+        return (id == null) ? null : edge(id);
+    }
+
+    private V key(int vertexId) {
+        return node(vertexId).m_key;
+    }
+
+    @Override
+    public boolean containsEdge(E edge) {
+        return edge(edge) != null;
+    }
+
+    @Override
+    public boolean containsEdge(V origin, V destination) {
+        Node<V> o = node(origin);
+        Integer d = m_vertexIds.get(destination);
+        if (o == null || d == null)
+            return false;
+        for (int e : o.m_out) {
+            if (edge(e).m_destination == d)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsVertex(V vertex) {
+        return node(vertex) != null;
+    }
+
+    @Override
+    public int indegOf(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in this Graph";
+        return node(vertex).m_in.length;
+    }
+
+    @Override
+    public int outdegOf(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in this Graph";
+        return node(vertex).m_out.length;
+    }
+
+    /**
+     * Collected on first use.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<V> getVertsOfGraph() {
+        Set<V> verts = m_verts;
+        if (verts == null) {
+            HashSet<V> set = new HashSet<>();
+            for (Object[] page : m_vertexPages) {
+                for (int i = 0; page != null && i < PAGE; i++) {
+                    if (page[i] != null)
+                        set.add(((Node<V>) page[i]).m_key);
+                }
+            }
+            m_verts = verts = Collections.unmodifiableSet(set);
+        }
+        return verts;
+    }
+
+    /**
+     * Collected on first use.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<E> getEdgesOfGraph() {
+        Set<E> edges = m_edges;
+        if (edges == null) {
+            HashSet<E> set = new HashSet<>();
+            for (Object[] page : m_edgePages) {
+                for (int i = 0; page != null && i < PAGE; i++) {
+                    if (page[i] != null)
+                        set.add(((EdgeState<E>) page[i]).m_key);
+                }
+            }
+            m_edges = edges = Collections.unmodifiableSet(set);
+        }
+        return edges;
+    }
+
+    @Override
+    public Set<E> getAllEdgesOfVertex(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in this Graph";
+        Node<V> v = node(vertex);
+        return addKeys(v.m_in, addKeys(v.m_out, new HashSet<E>()));
+    }
+
+    @Override
+    public Set<E> getLeavingEdgesOfVertex(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        return addKeys(node(vertex).m_out, new HashSet<E>());
+    }
+
+    @Override
+    public Set<E> getIncomingEdgesOfVertex(V vertex) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        return addKeys(node(vertex).m_in, new HashSet<E>());
+    }
+
+    private Set<E> addKeys(int[] edges, Set<E> keys) {
+        for (int e : edges) {
+            keys.add(edge(e).m_key);
+        }
+        return keys;
+    }
+
+    @Override
+    public Set<E> getEdgesBetween(V source, V destination) {
+        assert (containsVertex(source)) : "Vertex must be in list";
+        HashSet<E> keys = new HashSet<>();
+        Integer d = m_vertexIds.get(destination);
+        for (int e : node(source).m_out) {
+            EdgeState<E> edge = edge(e);
+            if (d != null && edge.m_destination == d)
+                keys.add(edge.m_key);
+        }
+        return keys;
+    }
+
+    @Override
+    public V getEdgeSource(E edge) {
+        assert (containsEdge(edge)) : "Edge must be in list";
+        return key(edge(edge).m_origin);
+    }
+
+    @Override
+    public V getEdgeDestination(E edge) {
+        assert (containsEdge(edge)) : "Edge must be in list";
+        return key(edge(edge).m_destination);
+    }
+
+    @Override
+    public double getEdgeWeight(E edge) {
+        assert (containsEdge(edge)) : "Edge must be in list";
+        return edge(edge).m_weight;
+    }
+
+    @Override
+    public int getNumberOfVerts() {
+        return m_numberOfVerts;
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return m_numberOfEdges;
+    }
+
+    @Override
+    public void forEachOutgoing(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        forEach(node(vertex).m_out, consumer);
+    }
+
+    @Override
+    public void forEachIncoming(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        assert (containsVertex(vertex)) : "Vertex must be in list";
+        forEach(node(vertex).m_in, consumer);
+    }
+
+    private void forEach(int[] edges, EdgeConsumer<? super V, ? super E> consumer) {
+        for (int e : edges) {
+            EdgeState<E> edge = edge(e);
+            consumer.accept(edge.m_key, key(edge.m_origin), key(edge.m_destination), edge.m_weight);
+        }
+    }
+
+    @Override
+    public EdgeCursor<V, E> newEdgeCursor() {
+        return new Cursor<>(() -> this);
+    }
+
+    @Override
+    public ShortestPathTree<V, E> shortestPathTree(V origin, DijkstraListener<? super V, ? super E> listener) {
+        assert (containsVertex(origin)) : "Vertex must be in this Graph";
+        final int s = m_vertexIds.get(origin);
+        HashMap<Integer, Label> labels = new HashMap<>();
+        PQueue<Label> pq = new PQueue<>();
+        label(pq, labels, s, 0.0, -1, null, null, null);
+        while (!pq.isEmpty()) {
+            Label u = pq.removeMin();
+            if (listener != null)
+                listener.vertexSettled(key(u.m_vertex), u.m_dist);
+            for (int e : node(u.m_vertex).m_out) {
+                EdgeState<E> edge = edge(e);
+                double d = u.m_dist + edge.m_weight;
+                Label w = labels.get(edge.m_destination);
+                if (w != null && w.m_dist <= d)
+                    continue;
+                label(pq, labels, edge.m_destination, d, e, u, null, null);
+                if (listener != null)
+                    listener.edgeRelaxed(edge.m_key, key(edge.m_origin), key(edge.m_destination), d);
+            }
+        }
+
+        // indexed by vertex id, ids without a vertex are skipped by the tree
+        final int n = m_vertexPages.length << PAGE_BITS;
+        Object[] keys = new Object[n];
+        double[] d = new double[n];
+        int[] pred = new int[n];
+        Object[] predEdges = new Object[n];
+        for (int v = 0; v < n; v++) {
+            Node<V> node = node(v);
+            keys[v] = (node == null) ? null : node.m_key;
+            d[v] = Double.POSITIVE_INFINITY;
+            pred[v] = -1;
+        }
+        for (Label l : labels.values()) {
+            d[l.m_vertex] = l.m_dist;
+            if (l.m_prev != null) {
+                pred[l.m_vertex] = l.m_prev.m_vertex;
+                predEdges[l.m_vertex] = edge(l.m_pred).m_key;
+            }
+        }
+        return new IndexedShortestPathTree<>(keys, s, d, pred, predEdges);
+    }
+
+    @Override
+    public Path<V, E> shortestPath(V origin, V target) {
+        return astar(origin, target, null);
+    }
+
+    @Override
+    public Path<V, E> astar(V origin, V target, ToDoubleBiFunction<? super V, ? super V> heuristic) {
+        assert (containsVertex(origin) && containsVertex(target)) : "Vertex must be in this Graph";
+        // only the reached vertices get a label, the search stops when target is settled
+        final int t = m_vertexIds.get(target);
+        HashMap<Integer, Label> labels = new HashMap<>();
+        PQueue<Label> pq = new PQueue<>();
+        label(pq, labels, m_vertexIds.get(origin), 0.0, -1, null, heuristic, target);
+        while (!pq.isEmpty()) {
+            Label u = pq.removeMin();
+            if (u.m_vertex == t)
+                return toPath(u, null);
+            for (int e : node(u.m_vertex).m_out) {
+                EdgeState<E> edge = edge(e);
+                label(pq, labels, edge.m_destination, u.m_dist + edge.m_weight, e, u, heuristic, target);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Path<V, E> bidirectionalShortestPath(V origin, V target) {
+        assert (containsVertex(origin) && containsVertex(target)) : "Vertex must be in this Graph";
+        final int s = m_vertexIds.get(origin);
+        final int t = m_vertexIds.get(target);
+        HashMap<Integer, Label> forward = new HashMap<>();
+        HashMap<Integer, Label> backward = new HashMap<>();
+        PQueue<Label> fq = new PQueue<>();
+        PQueue<Label> bq = new PQueue<>();
+        label(fq, forward, s, 0.0, -1, null, null, null);
+        label(bq, backward, t, 0.0, -1, null, null, null);
+        // mu is the length of the shortest path seen so far, it passes through meet
+        double mu = (s == t) ? 0.0 : Double.POSITIVE_INFINITY;
+        int meet = (s == t) ? s : -1;
+
+        while (!fq.isEmpty() && !bq.isEmpty()) {
+            double fmin = fq.getPriority(fq.getFirstItem());
+            double bmin = bq.getPriority(bq.getFirstItem());
+            // every path not seen yet is at least fmin + bmin long
+            if (fmin + bmin >= mu)
+                break;
+            if (fmin <= bmin) {
+                Label u = fq.removeMin();
+                for (int e : node(u.m_vertex).m_out) {
+                    EdgeState<E> edge = edge(e);
+                    Label w = label(fq, forward, edge.m_destination, u.m_dist + edge.m_weight, e, u, null, null);
+                    Label b = backward.get(edge.m_destination);
+                    if (b != null && w.m_dist + b.m_dist < mu) {
+                        mu = w.m_dist + b.m_dist;
+                        meet = edge.m_destination;
+                    }
+                }
+            } else {
+                Label u = bq.removeMin();
+                for (int e : node(u.m_vertex).m_in) {
+                    EdgeState<E> edge = edge(e);
+                    Label w = label(bq, backward, edge.m_origin, u.m_dist + edge.m_weight, e, u, null, null);
+                    Label f = forward.get(edge.m_origin);
+                    if (f != null && f.m_dist + w.m_dist < mu) {
+                        mu = f.m_dist + w.m_dist;
+                        meet = edge.m_origin;
+                    }
+                }
+            }
+        }
+        return (meet < 0) ? null : toPath(forward.get(meet), backward.get(meet));
+    }
+
+    /**
+     * Relaxes the label of vertex to distance d over edge pred. The label is queued with the
+     * priority d + heuristic(vertex, target) and queued again if it was already removed, so an
+     * admissible but inconsistent heuristic still yields shortest paths.
+     * @param pred edge id, -1 for the start of the search
+     * @param prev label at the other end of pred
+     * @param heuristic null for Dijkstra's algorithm
+     * @return the label of vertex
+     */
+    private Label label(PQueue<Label> pq, HashMap<Integer, Label> labels, int vertex, double d, int pred,
+            Label prev, ToDoubleBiFunction<? super V, ? super V> heuristic, V target) {
+        Label l = labels.get(vertex);
+        if (l == null) {
+            l = new Label(vertex, d, pred, prev);
+            if (heuristic != null)
+                l.m_estimate = heuristic.applyAsDouble(key(vertex), target);
+            l.m_item = pq.add(l, d + l.m_estimate);
+            labels.put(vertex, l);
+        } else if (d < l.m_dist) {
+            l.m_dist = d;
+            l.m_pred = pred;
+            l.m_prev = prev;
+            if (!pq.decreaseKey(l.m_item, d + l.m_estimate))
+                l.m_item = pq.add(l, d + l.m_estimate);
+        }
+        return l;
+    }
+
+    /**
+     * Follows the labels of the forward search back to the origin and those of the backward
+     * search on to the target.
+     * @param f label of the forward search
+     * @param b label of the backward search at the same vertex, null for a unidirectional search
+     */
+    private Path<V, E> toPath(Label f, Label b) {
+        ArrayList<V> vertices = new ArrayList<>();
+        ArrayList<E> edges = new ArrayList<>();
+        for (Label l = f; l != null; l = l.m_prev) {
+            vertices.add(key(l.m_vertex));
+            if (l.m_pred >= 0)
+                edges.add(edge(l.m_pred).m_key);
+        }
+        Collections.reverse(vertices);
+        Collections.reverse(edges);
+        double weight = f.m_dist;
+        if (b != null) {
+            weight += b.m_dist;
+            for (Label l = b; l.m_prev != null; l = l.m_prev) {
+                edges.add(edge(l.m_pred).m_key);
+                vertices.add(key(l.m_prev.m_vertex));
+            }
+        }
+        return new Path<>(vertices, edges, weight);
+    }
+
+    /**
+     * Iterative depthFirstSearch with an explicit stack, the state is indexed by vertex id.
+     */
+    @Override
+    public DfsResult<V, E> depthFirstSearch() {
+        final int n = m_vertexPages.length << PAGE_BITS;
+        Object[] keys = new Object[n];
+        int[] disc = new int[n];
+        int[] fin = new int[n];
+        int[] pred = new int[n];
+        int[] pre = new int[m_numberOfVerts];
+        int[] post = new int[m_numberOfVerts];
+        int preSize = 0, postSize = 0, time = 0;
+        List<E> back = new ArrayList<>();
+
+        // position of the next edge to visit in m_out for each vertex on the stack
+        int[] next = new int[n];
+        int[] stack = new int[m_numberOfVerts];
+        int top = 0;
+
+        for (int s = 0; s < n; s++) {
+            Node<V> root = node(s);
+            if (root == null || disc[s] != 0)
+                continue;
+            keys[s] = root.m_key;
+            disc[s] = ++time;
+            pred[s] = -1;
+            pre[preSize++] = s;
+            stack[top++] = s;
+            while (top > 0) {
+                int v = stack[top - 1];
+                int[] out = node(v).m_out;
+                if (next[v] < out.length) {
+                    EdgeState<E> edge = edge(out[next[v]++]);
+                    int w = edge.m_destination;
+                    if (disc[w] == 0) {
+                        keys[w] = key(w);
+                        disc[w] = ++time;
+                        pred[w] = v;
+                        pre[preSize++] = w;
+                        stack[top++] = w;
+                    } else if (fin[w] == 0) {
+                        back.add(edge.m_key);
+                    }
+                } else {
+                    fin[v] = ++time;
+                    post[postSize++] = v;
+                    top--;
+                }
+            }
+        }
+        return new DfsResult<>(keys, disc, fin, pred, pre, post, back);
+    }
+
+    /**
+     * Creates a new CompactDigraph on every call, keep it to run many searches on it.
+     */
+    @Override
+    public CompactDigraph<V, E> toCompact() {
+        final int n = m_numberOfVerts;
+        final int m = m_numberOfEdges;
+        // dense ids of the snapshot by vertex id of the Graph
+        int[] ids = new int[m_vertexPages.length << PAGE_BITS];
+        Object[] vertices = new Object[n];
+        int id = 0;
+        for (int v = 0; v < ids.length; v++) {
+            Node<V> node = node(v);
+            if (node != null) {
+                vertices[id] = node.m_key;
+                ids[v] = id++;
+            }
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        Object[] edges = new Object[m];
+        int pos = 0;
+        id = 0;
+        for (int v = 0; v < ids.length; v++) {
+            Node<V> node = node(v);
+            if (node == null)
+                continue;
+            offsets[id++] = pos;
+            for (int e : node.m_out) {
+                EdgeState<E> edge = edge(e);
+                targets[pos] = ids[edge.m_destination];
+                weights[pos] = edge.m_weight;
+                edges[pos++] = edge.m_key;
+            }
+        }
+        offsets[n] = pos;
+        return new CompactDigraph<>(vertices, offsets, targets, weights, edges);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int v = 0; v < m_vertexPages.length << PAGE_BITS; v++) {
+            Node<V> node = node(v);
+            if (node == null)
+                continue;
+            sb.append("(" + node.m_key + ")");
+            for (int e : node.m_out) {
+                sb.append("---" + edge(e).m_weight + "--->(" + key(edge(e).m_destination) + ")");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * State of a vertex reached by a point to point search.
+     */
+    private static final class Label {
+        private final int m_vertex;
+        private double m_dist;
+        /**
+         * Id of the edge over which the vertex was reached, -1 for the start of the search.
+         */
+        private int m_pred;
+        /**
+         * Label at the other end of m_pred.
+         */
+        private Label m_prev;
+        /**
+         * Value of the heuristic of an A* search, 0 for Dijkstra's algorithm.
+         */
+        private double m_estimate;
+        private PQItem m_item;
+
+        private Label(int vertex, double dist, int pred, Label prev) {
+            m_vertex = vertex;
+            m_dist = dist;
+            m_pred = pred;
+            m_prev = prev;
+        }
+    }
+
+    /**
+     * Immutable state of a vertex: its key and the ids of its leaving and incoming edges.
+     * Self-loops are in both arrays.
+     */
+    static final class Node<V> {
+        final V m_key;
+        final int[] m_out;
+        final int[] m_in;
+
+        Node(V key, int[] out, int[] in) {
+            m_key = key;
+            m_out = out;
+            m_in = in;
+        }
+    }
+
+    /**
+     * Immutable state of an edge, the endpoints are vertex ids.
+     */
+    static final class EdgeState<E> {
+        final E m_key;
+        final int m_origin;
+        final int m_destination;
+        final double m_weight;
+
+        EdgeState(E key, int origin, int destination, double weight) {
+            m_key = key;
+            m_origin = origin;
+            m_destination = destination;
+            m_weight = weight;
+        }
+    }
+
+    /**
+     * EdgeCursor over the adjacency arrays of a snapshot. Every reset asks snapshot for the
+     * generation to traverse.
+     */
+    static final class Cursor<V, E> implements EdgeCursor<V, E> {
+        private final Supplier<GraphSnapshot<V, E>> m_source;
+        private GraphSnapshot<V, E> m_snapshot;
+        private int[] m_edges;
+        private int m_next;
+        private EdgeState<E> m_current;
+
+        Cursor(Supplier<GraphSnapshot<V, E>> source) {
+            m_source = source;
+        }
+
+        @Override
+        public EdgeCursor<V, E> resetOutgoing(V vertex) {
+            m_snapshot = m_source.get();
+            assert (m_snapshot.containsVertex(vertex)) : "Vertex must be in list";
+            return reset(m_snapshot.node(vertex).m_out);
+        }
+
+        @Override
+        public EdgeCursor<V, E> resetIncoming(V vertex) {
+            m_snapshot = m_source.get();
+            assert (m_snapshot.containsVertex(vertex)) : "Vertex must be in list";
+            return reset(m_snapshot.node(vertex).m_in);
+        }
+
+        private EdgeCursor<V, E> reset(int[] edges) {
+            m_edges = edges;
+            m_next = 0;
+            m_current = null;
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            m_current = (m_next < m_edges.length) ? m_snapshot.edge(m_edges[m_next++]) : null;
+            return m_current != null;
+        }
+
+        @Override
+        public E getEdge() {
+            return m_current.m_key;
+        }
+
+        @Override
+        public V getOrigin() {
+            return m_snapshot.key(m_current.m_origin);
+        }
+
+        @Override
+        public V getDestination() {
+            return m_snapshot.key(m_current.m_destination);
+        }
+
+        @Override
+        public double getWeight() {
+            return m_current.m_weight;
+        }
+    }
+}
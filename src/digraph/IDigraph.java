@@ -1,13 +1,10 @@
 package digraph;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Set;
 
-public interface IDigraph<V, E> {
+public interface IDigraph<V, E> extends IReadOnlyDigraph<V, E> {
 	
-
 	/**
 	 * Creates a new Edge into the Graph.
 	 * @param weigth ONLY POSITIVE ALLOWED
@@ -18,118 +15,27 @@ public interface IDigraph<V, E> {
 	 */
 	boolean addEdge(E key, double weight, V origin, V destination);
 	
-	
 	/**
 	 * Adds a Vertex into the Graph
 	 * @param vertex
 	 * @return true if Vert was added.
 	 */
 	boolean addVertex(V vertex);
-	
-	/**
-	 * Clone the Graph using serializing (possible loops and cycles will cloned valid)
-	 * @return serialized clone from Digraph.
-	 */
-	Object clone();
-	
-	/**
-	 * 
-	 * @param edge
-	 * @return true if the graph contains the given Edge
-	 */
-	boolean containsEdge(E edge);
-	
-	/**
-	 * 
-	 * @param origin
-	 * @param destination
-	 * @return true if the graph contains an Edge from origin to destination
-	 */
-	boolean containsEdge(V origin, V destination);
-	
-	/**
-	 * 
-	 * @param vertex
-	 * @return true if vertex is contained
-	 */
-	boolean containsVertex(V vertex);
-	
-	/**
-	 * 
-	 * @param vertex
-	 * @return indegree of given vertex.
-	 */
-	int indegOf(V vertex);
-	
-	/**
-	 * 
-	 * @param vertex
-	 * @return outdegree of given vertex
-	 */
-	int outdegOf(V vertex);
-	
-	/**
-	 * 
-	 * @return a set of the verts in the Graph
-	 */
-	Set<V> getVertsOfGraph();
-	
-	/**
-	 * 
-	 * @param vertex
-	 * @return a set of the edges contained in the Graph
-	 */
-	Set<E> getEdgesOfGraph();
-	
-	/**
-	 * 
-	 * @param vertex
-	 * @return a set of all edges leaving and coming into the given vertex
-	 */
-	Set<E> getAllEdgesOfVertex(V vertex);
-	
-	/**
-	 * 
-	 * @param vertex
-	 * @return returns a set of all edges leaving this Vertex
-	 */
-	Set<E> getLeavingEdgesOfVertex(V vertex);
-	
-	/**
-	 * 
-	 * @param vertex
-	 * @return a Set of edges ending on the given Vertex
-	 */
-	Set<E> getIncomingEdgesOfVertex(V vertex);
-	
-	/**
-	 * 
-	 * @param source
-	 * @param destination
-	 * @return a set of all edges connecting source and destination
-	 */
-	Set<E> getEdgesBetween(V source, V destination);
-	
-	/**
-	 * 
-	 * @param edge
-	 * @return returns the source vertex of the edge given.
-	 */
-	V getEdgeSource(E edge);
-	
+
 	/**
-	 * 
-	 * @param edge
-	 * @return the destination vertex of the edge given.
+	 * Collects vertices and edges that are inserted together by GraphBuilder.apply(), much faster
+	 * than single addVertex and addEdge calls for bulk loads.
+	 * @return a new builder for this Graph
 	 */
-	V getEdgeDestination(E edge);
-	
+	default GraphBuilder<V, E> batch() {
+		return new GraphBuilder<>(this);
+	}
+
 	/**
-	 * 
-	 * @param edge
-	 * @return the weight of a given edge 
+	 * Clone the Graph, the clone shares no structure with this Graph (possible loops and cycles will cloned valid)
+	 * @return clone of this Graph.
 	 */
-	double getEdgeWeight(E edge);
+	Object clone();
 	
 	/**
 	 * removes the given Edge from the Graph
@@ -211,33 +117,16 @@ public interface IDigraph<V, E> {
 	boolean removeAllVertices(Collection<? extends V> vertices);
 	
 	String toString();
+
 	/**
-	 * 
-	 * @return number of Vertices in the Graph
-	 */
-	int getNumberOfVerts();
-	
-	/**
-	 * 
-	 * @return number of Vertices in the Graph
+	 * Registers listener to be notified of every change of this Graph.
+	 * @param listener
 	 */
-	int getNumberOfEdges();
-	
+	void addDigraphListener(DigraphListener<? super V, ? super E> listener);
 
-	
 	/**
-	 * 
-	 * @param vertex
-	 * @return a set of Vertices representing the shortest Path from origin to destination
+	 * @param listener
+	 * @return true if listener was registered
 	 */
-	HashMap<V, Double> dijkstra(V origin);
-	
-	/**
-     * depthFirstSearch to traverse through graph and create spanning tree.
-     * Time complexity: O(n+m)
-     * @return HashMap with vertex v as key and forerunner vertex v as value
-     */
-    void depthFirstSearch();
-	
-	
+	boolean removeDigraphListener(DigraphListener<? super V, ? super E> listener);
 }
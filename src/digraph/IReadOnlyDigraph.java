@@ -0,0 +1,271 @@
+package digraph;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * The read side of a directed, weighted Graph. Implemented by the mutable Digraph as well as by
+ * immutable views like CompactDigraph.
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public interface IReadOnlyDigraph<V, E> {
+
+	/**
+	 *
+	 * @param edge
+	 * @return true if the graph contains the given Edge
+	 */
+	boolean containsEdge(E edge);
+
+	/**
+	 *
+	 * @param origin
+	 * @param destination
+	 * @return true if the graph contains an Edge from origin to destination
+	 */
+	boolean containsEdge(V origin, V destination);
+
+	/**
+	 *
+	 * @param vertex
+	 * @return true if vertex is contained
+	 */
+	boolean containsVertex(V vertex);
+
+	/**
+	 *
+	 * @param vertex
+	 * @return indegree of given vertex.
+	 */
+	int indegOf(V vertex);
+
+	/**
+	 *
+	 * @param vertex
+	 * @return outdegree of given vertex
+	 */
+	int outdegOf(V vertex);
+
+	/**
+	 *
+	 * @return a set of the verts in the Graph
+	 */
+	Set<V> getVertsOfGraph();
+
+	/**
+	 *
+	 * @param vertex
+	 * @return a set of the edges contained in the Graph
+	 */
+	Set<E> getEdgesOfGraph();
+
+	/**
+	 *
+	 * @param vertex
+	 * @return a set of all edges leaving and coming into the given vertex
+	 */
+	Set<E> getAllEdgesOfVertex(V vertex);
+
+	/**
+	 *
+	 * @param vertex
+	 * @return returns a set of all edges leaving this Vertex
+	 */
+	Set<E> getLeavingEdgesOfVertex(V vertex);
+
+	/**
+	 *
+	 * @param vertex
+	 * @return a Set of edges ending on the given Vertex
+	 */
+	Set<E> getIncomingEdgesOfVertex(V vertex);
+
+	/**
+	 *
+	 * @param source
+	 * @param destination
+	 * @return a set of all edges connecting source and destination
+	 */
+	Set<E> getEdgesBetween(V source, V destination);
+
+	/**
+	 *
+	 * @param edge
+	 * @return returns the source vertex of the edge given.
+	 */
+	V getEdgeSource(E edge);
+
+	/**
+	 *
+	 * @param edge
+	 * @return the destination vertex of the edge given.
+	 */
+	V getEdgeDestination(E edge);
+
+	/**
+	 *
+	 * @param edge
+	 * @return the weight of a given edge
+	 */
+	double getEdgeWeight(E edge);
+
+	/**
+	 *
+	 * @return number of Vertices in the Graph
+	 */
+	int getNumberOfVerts();
+
+	/**
+	 *
+	 * @return number of Edges in the Graph
+	 */
+	int getNumberOfEdges();
+
+	/**
+	 * Passes every edge leaving vertex to consumer without creating a collection.
+	 * @param vertex
+	 * @param consumer
+	 */
+	void forEachOutgoing(V vertex, EdgeConsumer<? super V, ? super E> consumer);
+
+	/**
+	 * Passes every edge ending on vertex to consumer without creating a collection.
+	 * @param vertex
+	 * @param consumer
+	 */
+	void forEachIncoming(V vertex, EdgeConsumer<? super V, ? super E> consumer);
+
+	/**
+	 *
+	 * @return a new cursor to iterate over the adjacency of the vertices of this Graph
+	 */
+	EdgeCursor<V, E> newEdgeCursor();
+
+	/**
+	 * Computes the distances of all vertices from origin. Does not print anything.
+	 * @param origin
+	 * @return HashMap with vertex v as key and the length of the shortest path from origin to v as
+	 *         value, Double.MAX_VALUE if v is unreachable
+	 */
+	default HashMap<V, Double> dijkstra(V origin) {
+		return shortestPathTree(origin).getDistances();
+	}
+
+	/**
+	 * Computes the shortest paths from origin to all reachable vertices with Dijkstra's algorithm.
+	 * The edge weights must not be negative.
+	 * @param origin
+	 * @return distances and predecessors, paths can be reconstructed without searching again
+	 */
+	default ShortestPathTree<V, E> shortestPathTree(V origin) {
+		return shortestPathTree(origin, null);
+	}
+
+	/**
+	 * Like shortestPathTree(origin), reports the progress of the search to listener.
+	 * @param origin
+	 * @param listener may be null
+	 * @return distances and predecessors
+	 */
+	ShortestPathTree<V, E> shortestPathTree(V origin, DijkstraListener<? super V, ? super E> listener);
+
+	/**
+	 * Computes the shortest paths from origin with parallel delta-stepping on pool against a
+	 * CompactDigraph snapshot. Pays off for single searches on very large graphs.
+	 * @param origin
+	 * @param pool
+	 * @return distances and predecessors
+	 */
+	default ShortestPathTree<V, E> parallelShortestPathTree(V origin, ForkJoinPool pool) {
+		return new DeltaStepping<>(toCompact(), pool).shortestPathTree(origin);
+	}
+
+	/**
+	 * Computes the distances from every source to every target on the common ForkJoinPool.
+	 * @param sources
+	 * @param targets
+	 * @return row-major matrix, the distance from the i-th source to the j-th target is at
+	 *         i*targets.size() + j, Double.POSITIVE_INFINITY if unreachable
+	 */
+	default double[] distanceMatrix(Collection<V> sources, Collection<V> targets) {
+		return distanceMatrix(sources, targets, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes the distances from every source to every target. The single source searches run
+	 * in parallel on pool against a CompactDigraph snapshot, each worker with its own buffers.
+	 * Time complexity: O(|sources| (n+m) log n / parallelism)
+	 * @param sources
+	 * @param targets
+	 * @param pool
+	 * @return row-major matrix, the distance from the i-th source to the j-th target is at
+	 *         i*targets.size() + j, Double.POSITIVE_INFINITY if unreachable
+	 */
+	default double[] distanceMatrix(Collection<V> sources, Collection<V> targets, ForkJoinPool pool) {
+		return DistanceMatrixTask.compute(toCompact(), sources, targets, pool);
+	}
+
+	/**
+	 * Dijkstra's algorithm from origin, stops as soon as target is settled.
+	 * @param origin
+	 * @param target
+	 * @return a shortest path from origin to target, null if target is not reachable
+	 */
+	Path<V, E> shortestPath(V origin, V target);
+
+	/**
+	 * A* search from origin to target. Vertices are expanded in order of their distance plus the
+	 * estimated remaining distance heuristic(vertex, target), so goal-directed queries settle far
+	 * fewer vertices than shortestPath(origin, target).
+	 * @param origin
+	 * @param target
+	 * @param heuristic lower bound of the distance between two vertices, must never overestimate
+	 * @return a shortest path from origin to target, null if target is not reachable
+	 */
+	Path<V, E> astar(V origin, V target, ToDoubleBiFunction<? super V, ? super V> heuristic);
+
+	/**
+	 * Searches forward from origin over the leaving edges and backward from target over the
+	 * incoming edges at the same time, until the two searches meet. Settles far fewer vertices
+	 * than shortestPath(origin, target) on large graphs.
+	 * @param origin
+	 * @param target
+	 * @return a shortest path from origin to target, null if target is not reachable
+	 */
+	Path<V, E> bidirectionalShortestPath(V origin, V target);
+
+	/**
+     * depthFirstSearch to traverse through graph and create spanning tree.
+     * Time complexity: O(n+m)
+     * @return discovery and finish times, predecessors, vertex orders and back edges
+     */
+    DfsResult<V, E> depthFirstSearch();
+
+    /**
+     * Orders the vertices such that every edge leads from an earlier to a later vertex.
+     * Time complexity: O(n+m)
+     * @return the vertices in topological order
+     * @throws IllegalStateException if the Graph contains a cycle
+     */
+    default List<V> topologicalSort() {
+        DfsResult<V, E> dfs = depthFirstSearch();
+        if (dfs.hasCycle())
+            throw new IllegalStateException("Graph contains a cycle.");
+        return dfs.getReversePostorder();
+    }
+
+    /**
+     * Creates an immutable snapshot of this Graph in compressed sparse row layout. Later changes
+     * of this Graph are not reflected by the snapshot.
+     * Time complexity: O(n+m)
+     * @return compact read-only copy of this Graph
+     */
+    CompactDigraph<V, E> toCompact();
+
+}
@@ -0,0 +1,111 @@
+package digraph;
+
+/**
+ * Read-only Graph with dense vertex and edge ids and its adjacency in compressed sparse row
+ * layout. The outgoing edges of vertex v are the edge ids outBegin(v) until outEnd(v) - 1, the
+ * incoming edges are the positions inBegin(v) until inEnd(v) - 1 of the reverse CSR.
+ * DijkstraEngine runs on every implementation.
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public interface IndexedDigraph<V, E> extends IReadOnlyDigraph<V, E> {
+
+	/**
+	 *
+	 * @param vertex
+	 * @return dense id of the given vertex or -1 if it is not in this Graph
+	 */
+	int idOf(V vertex);
+
+	/**
+	 *
+	 * @param id vertex id in [0, getNumberOfVerts())
+	 * @return the vertex with the given id
+	 */
+	V vertexOf(int id);
+
+	/**
+	 *
+	 * @param edge
+	 * @return dense id of the given edge or -1 if it is not in this Graph
+	 */
+	int edgeIdOf(E edge);
+
+	/**
+	 *
+	 * @param id edge id in [0, getNumberOfEdges())
+	 * @return the edge with the given id
+	 */
+	E edgeOf(int id);
+
+	/**
+	 *
+	 * @param v vertex id
+	 * @return id of the first edge leaving v
+	 */
+	int outBegin(int v);
+
+	/**
+	 *
+	 * @param v vertex id
+	 * @return id after the last edge leaving v
+	 */
+	int outEnd(int v);
+
+	/**
+	 *
+	 * @param e edge id
+	 * @return vertex id of the origin of e
+	 */
+	int source(int e);
+
+	/**
+	 *
+	 * @param e edge id
+	 * @return vertex id of the destination of e
+	 */
+	int target(int e);
+
+	/**
+	 *
+	 * @param e edge id
+	 * @return weight of e
+	 */
+	double weight(int e);
+
+	/**
+	 *
+	 * @param v vertex id
+	 * @return position of the first edge ending on v in the reverse CSR
+	 */
+	int inBegin(int v);
+
+	/**
+	 *
+	 * @param v vertex id
+	 * @return position after the last edge ending on v in the reverse CSR
+	 */
+	int inEnd(int v);
+
+	/**
+	 *
+	 * @param i position in the reverse CSR
+	 * @return vertex id of the origin of the incoming edge at i
+	 */
+	int inSource(int i);
+
+	/**
+	 *
+	 * @param i position in the reverse CSR
+	 * @return weight of the incoming edge at i
+	 */
+	double inWeight(int i);
+
+	/**
+	 *
+	 * @param i position in the reverse CSR
+	 * @return edge id of the incoming edge at i
+	 */
+	int inEdge(int i);
+}
@@ -0,0 +1,196 @@
+package digraph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of the int ids 0..capacity-1 with primitive double keys. The heap position of
+ * every id is stored, so decreaseKey() runs in O(log n) without searching. No objects are allocated
+ * after construction.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ */
+public class IndexedDoubleHeap {
+
+    private final int[] m_heap; // ids by heap position
+    private final int[] m_pos; // heap position by id, -1 if the id is not in the heap
+    private final double[] m_keys; // key by id
+    private int m_size;
+
+    /**
+     * Creates an empty heap for the ids 0..capacity-1.
+     * @param capacity number of ids
+     */
+    public IndexedDoubleHeap(int capacity) {
+        m_heap = new int[capacity];
+        m_pos = new int[capacity];
+        m_keys = new double[capacity];
+        Arrays.fill(m_pos, -1);
+    }
+
+    /**
+     *
+     * @return number of ids in this heap
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     *
+     * @return true if this heap is empty
+     */
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /**
+     *
+     * @param id
+     * @return true if id is in this heap
+     */
+    public boolean contains(int id) {
+        return m_pos[id] >= 0;
+    }
+
+    /**
+     *
+     * @param id id in this heap
+     * @return current key of id
+     */
+    public double getKey(int id) {
+        assert contains(id) : "id must be in the heap";
+        return m_keys[id];
+    }
+
+    /**
+     * Adds id with the given key in O(log n) time.
+     * @param id id not yet in this heap
+     * @param key
+     */
+    public void insert(int id, double key) {
+        assert !contains(id) : "id must not be in the heap";
+        m_keys[id] = key;
+        m_heap[m_size] = id;
+        m_pos[id] = m_size;
+        siftUp(m_size++);
+    }
+
+    /**
+     * Lowers the key of id in O(log n) time.
+     * @param id id in this heap
+     * @param key new key, must not be greater than the current key
+     */
+    public void decreaseKey(int id, double key) {
+        assert contains(id) : "id must be in the heap";
+        assert key <= m_keys[id] : "key must not increase";
+        m_keys[id] = key;
+        siftUp(m_pos[id]);
+    }
+
+    /**
+     * Sets the key of id to any value in O(log n) time.
+     * @param id id in this heap
+     * @param key new key, may be greater or smaller than the current key
+     */
+    public void changeKey(int id, double key) {
+        assert contains(id) : "id must be in the heap";
+        final double old = m_keys[id];
+        m_keys[id] = key;
+        if (key < old) {
+            siftUp(m_pos[id]);
+        } else {
+            siftDown(m_pos[id]);
+        }
+    }
+
+    /**
+     * Inserts id or lowers its key if it is already in this heap.
+     * @param id
+     * @param key
+     */
+    public void insertOrDecrease(int id, double key) {
+        if (contains(id)) {
+            decreaseKey(id, key);
+        } else {
+            insert(id, key);
+        }
+    }
+
+    /**
+     *
+     * @return id with the smallest key, -1 if the heap is empty
+     */
+    public int peekMin() {
+        return (m_size == 0) ? -1 : m_heap[0];
+    }
+
+    /**
+     *
+     * @return smallest key, Double.POSITIVE_INFINITY if the heap is empty
+     */
+    public double minKey() {
+        return (m_size == 0) ? Double.POSITIVE_INFINITY : m_keys[m_heap[0]];
+    }
+
+    /**
+     * Removes the id with the smallest key in O(log n) time.
+     * @return the removed id, -1 if the heap is empty
+     */
+    public int removeMin() {
+        if (m_size == 0) return -1;
+        final int min = m_heap[0];
+        final int last = m_heap[--m_size];
+        m_pos[min] = -1;
+        if (m_size > 0) {
+            m_heap[0] = last;
+            m_pos[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes all ids in O(size) time.
+     */
+    public void clear() {
+        for (int i = 0; i < m_size; i++) {
+            m_pos[m_heap[i]] = -1;
+        }
+        m_size = 0;
+    }
+
+    private void siftUp(int pos) {
+        final int id = m_heap[pos];
+        final double key = m_keys[id];
+        while (pos > 0) {
+            int par = (pos - 1) >>> 1;
+            int parId = m_heap[par];
+            if (m_keys[parId] <= key) break;
+            // move parent down
+            m_heap[pos] = parId;
+            m_pos[parId] = pos;
+            pos = par;
+        }
+        m_heap[pos] = id;
+        m_pos[id] = pos;
+    }
+
+    private void siftDown(int pos) {
+        final int id = m_heap[pos];
+        final double key = m_keys[id];
+        int son = 2*pos + 1;
+        while (son < m_size) {
+            // son is the smaller son
+            if (son + 1 < m_size && m_keys[m_heap[son + 1]] < m_keys[m_heap[son]]) son++;
+            int sonId = m_heap[son];
+            if (key <= m_keys[sonId]) break;
+            // move son up
+            m_heap[pos] = sonId;
+            m_pos[sonId] = pos;
+            pos = son;
+            son = 2*pos + 1;
+        }
+        m_heap[pos] = id;
+        m_pos[id] = pos;
+    }
+}
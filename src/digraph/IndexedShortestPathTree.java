@@ -0,0 +1,107 @@
+package digraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ShortestPathTree over numbered vertices. Distances and predecessors are kept in arrays, the
+ * lookup table from vertex to number is only created on the first request. Numbers without a
+ * vertex are skipped.
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+class IndexedShortestPathTree<V, E> implements ShortestPathTree<V, E> {
+
+    private final Object[] m_vertices; // vertex by index, null for unused indices
+    private final int m_origin;
+    private final double[] m_dist; // distance by index, infinite if unreachable
+    private final int[] m_pred; // index of the predecessor by index, -1 if none
+    private final Object[] m_predEdges; // last edge of the shortest path by index
+
+    private HashMap<V, Integer> m_index; // created on first request
+
+    IndexedShortestPathTree(Object[] vertices, int origin, double[] dist, int[] pred, Object[] predEdges) {
+        m_vertices = vertices;
+        m_origin = origin;
+        m_dist = dist;
+        m_pred = pred;
+        m_predEdges = predEdges;
+    }
+
+    @Override
+    public V getOrigin() {
+        return vertexAt(m_origin);
+    }
+
+    @Override
+    public boolean hasPathTo(V vertex) {
+        int v = indexOf(vertex);
+        return v >= 0 && m_dist[v] != Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public double distanceTo(V vertex) {
+        int v = indexOf(vertex);
+        return (v < 0) ? Double.POSITIVE_INFINITY : m_dist[v];
+    }
+
+    @Override
+    public V predecessorOf(V vertex) {
+        int v = indexOf(vertex);
+        return (v < 0 || m_pred[v] < 0) ? null : vertexAt(m_pred[v]);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E predecessorEdgeOf(V vertex) {
+        int v = indexOf(vertex);
+        return (v < 0) ? null : (E) m_predEdges[v];
+    }
+
+    @Override
+    public List<V> pathTo(V vertex) {
+        if (!hasPathTo(vertex))
+            return new ArrayList<>();
+        ArrayList<V> path = new ArrayList<>();
+        for (int v = indexOf(vertex); v >= 0; v = m_pred[v]) {
+            path.add(vertexAt(v));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    @Override
+    public HashMap<V, Double> getDistances() {
+        final int n = m_dist.length;
+        HashMap<V, Double> d = new HashMap<>(Math.max(16, (int) (n / 0.75f) + 1));
+        for (int v = 0; v < n; v++) {
+            if (m_vertices[v] != null)
+                d.put(vertexAt(v), (m_dist[v] == Double.POSITIVE_INFINITY) ? Double.MAX_VALUE : m_dist[v]);
+        }
+        return d;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V vertexAt(int i) {
+        return (V) m_vertices[i];
+    }
+
+    /**
+     *
+     * @return index of vertex, -1 if the vertex was not in the Graph
+     */
+    private int indexOf(V vertex) {
+        if (m_index == null) {
+            m_index = new HashMap<>(Math.max(16, (int) (m_vertices.length / 0.75f) + 1));
+            for (int i = 0; i < m_vertices.length; i++) {
+                if (m_vertices[i] != null)
+                    m_index.put(vertexAt(i), i);
+            }
+        }
+        Integer i = m_index.get(vertex);
+        return (i == null) ? -1 : i;
+    }
+}
@@ -0,0 +1,107 @@
+package digraph;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts vertex or edge keys to bytes and back for the graph file of MappedDigraph. The hash of
+ * a key is stored in the file, so it must not change between runs: the default uses hashCode(),
+ * which is fixed for Integer, Long and String.
+ *
+ * @param <K> The Type of the Keys
+ */
+public interface KeyCodec<K> {
+
+	/**
+	 * Keys as 4 bytes.
+	 */
+	KeyCodec<Integer> INTEGER = new KeyCodec<Integer>() {
+		@Override
+		public int width() {
+			return 4;
+		}
+
+		@Override
+		public byte[] encode(Integer key) {
+			return ByteBuffer.allocate(4).putInt(key).array();
+		}
+
+		@Override
+		public Integer decode(ByteBuffer buffer, int offset, int length) {
+			return buffer.getInt(offset);
+		}
+	};
+
+	/**
+	 * Keys as 8 bytes.
+	 */
+	KeyCodec<Long> LONG = new KeyCodec<Long>() {
+		@Override
+		public int width() {
+			return 8;
+		}
+
+		@Override
+		public byte[] encode(Long key) {
+			return ByteBuffer.allocate(8).putLong(key).array();
+		}
+
+		@Override
+		public Long decode(ByteBuffer buffer, int offset, int length) {
+			return buffer.getLong(offset);
+		}
+	};
+
+	/**
+	 * Keys in UTF-8.
+	 */
+	KeyCodec<String> STRING = new KeyCodec<String>() {
+		@Override
+		public byte[] encode(String key) {
+			return key.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String decode(ByteBuffer buffer, int offset, int length) {
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = buffer.get(offset + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	/**
+	 *
+	 * @return number of bytes of every key, -1 if the length differs from key to key
+	 */
+	default int width() {
+		return -1;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return the bytes of key, width() many if the width is fixed
+	 */
+	byte[] encode(K key);
+
+	/**
+	 * Reads a key with absolute gets only, the buffer may be used by other threads at the same
+	 * time. The buffer is in big-endian order.
+	 * @param buffer
+	 * @param offset position of the first byte of the key
+	 * @param length number of bytes of the key
+	 * @return the key
+	 */
+	K decode(ByteBuffer buffer, int offset, int length);
+
+	/**
+	 *
+	 * @param key
+	 * @return hash of key that is the same in every run
+	 */
+	default int hash(K key) {
+		return key.hashCode();
+	}
+}
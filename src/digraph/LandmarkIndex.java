@@ -0,0 +1,292 @@
+package digraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ALT index (A*, landmarks, triangle inequality) for repeated point to point queries on a
+ * changing Graph. For k landmarks L the distances d(L, v) and d(v, L) to every vertex are stored,
+ * by the triangle inequality
+ *
+ * d(u, t) >= d(L, t) - d(L, u) and d(u, t) >= d(u, L) - d(t, L)
+ *
+ * and the maximum of these bounds is used as heuristic of an A* search. The landmarks are chosen
+ * by farthest point selection, so they lie at the border of the Graph.
+ *
+ * The index listens to the changes of the Graph. Added edges, added vertices and lower weights
+ * can only shorten distances; they are repaired incrementally by a Dijkstra search starting at
+ * the changed edge. Removed edges and vertices and higher weights invalidate the index, it is
+ * rebuilt before the next query.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class LandmarkIndex<V, E> {
+
+    private final IDigraph<V, E> m_graph;
+    private final int m_k;
+    private final DigraphListener<V, E> m_listener = new Listener();
+    private final EdgeCursor<V, E> m_cursor;
+
+    private HashMap<V, Integer> m_ids; // dense id by vertex
+    private ArrayList<V> m_vertices; // vertex by id
+    private int[] m_landmarks; // ids of the landmarks
+    private double[][] m_from; // distance from landmark i to vertex v: m_from[i][v]
+    private double[][] m_to; // distance from vertex v to landmark i: m_to[i][v]
+    private IndexedDoubleHeap m_heap;
+    private boolean m_valid;
+
+    /**
+     * Chooses the landmarks, computes their distances and registers the index as listener of
+     * graph.
+     * Time complexity: O(k (n+m) log n)
+     * @param graph
+     * @param landmarks number of landmarks k
+     */
+    public LandmarkIndex(IDigraph<V, E> graph, int landmarks) {
+        assert (landmarks > 0) : "at least one landmark is needed";
+        m_graph = graph;
+        m_k = landmarks;
+        m_cursor = graph.newEdgeCursor();
+        build();
+        graph.addDigraphListener(m_listener);
+    }
+
+    /**
+     * Stops listening to the Graph. The index must not be used afterwards.
+     */
+    public void detach() {
+        m_graph.removeDigraphListener(m_listener);
+    }
+
+    /**
+     *
+     * @return false if the Graph changed such that the index is rebuilt before the next query
+     */
+    public boolean isValid() {
+        return m_valid;
+    }
+
+    /**
+     *
+     * @return the landmark vertices
+     */
+    public List<V> getLandmarks() {
+        ensureValid();
+        List<V> landmarks = new ArrayList<>();
+        for (int l : m_landmarks) {
+            landmarks.add(m_vertices.get(l));
+        }
+        return landmarks;
+    }
+
+    /**
+     *
+     * @param vertex
+     * @param target
+     * @return lower bound of the distance from vertex to target, Double.POSITIVE_INFINITY if
+     *         target is certainly not reachable
+     */
+    public double lowerBound(V vertex, V target) {
+        ensureValid();
+        return bound(vertex, target);
+    }
+
+    /**
+     * A* search with the landmark bounds as heuristic.
+     * @param origin
+     * @param target
+     * @return a shortest path from origin to target, null if target is not reachable
+     */
+    public Path<V, E> shortestPath(V origin, V target) {
+        ensureValid();
+        return m_graph.astar(origin, target, this::bound);
+    }
+
+    private double bound(V vertex, V target) {
+        final int u = m_ids.get(vertex);
+        final int t = m_ids.get(target);
+        double h = 0.0;
+        for (int i = 0; i < m_landmarks.length; i++) {
+            // infinite minus infinite is NaN and never greater than h
+            final double a = m_from[i][t] - m_from[i][u];
+            final double b = m_to[i][u] - m_to[i][t];
+            if (a > h)
+                h = a;
+            if (b > h)
+                h = b;
+        }
+        return h;
+    }
+
+    private void ensureValid() {
+        if (!m_valid)
+            build();
+    }
+
+    /**
+     * Numbers the vertices, selects the landmarks and computes their distances. The next
+     * landmark is the vertex farthest from all landmarks chosen so far, where the distance of a
+     * vertex to a landmark is d(L, v) + d(v, L).
+     */
+    private void build() {
+        m_vertices = new ArrayList<>(m_graph.getVertsOfGraph());
+        final int n = m_vertices.size();
+        m_ids = new HashMap<>(Math.max(16, (int) (n / 0.75f) + 1));
+        for (int i = 0; i < n; i++) {
+            m_ids.put(m_vertices.get(i), i);
+        }
+        final int capacity = Math.max(16, n);
+        m_heap = new IndexedDoubleHeap(capacity);
+
+        final int k = Math.min(m_k, n);
+        m_landmarks = new int[k];
+        m_from = new double[k][];
+        m_to = new double[k][];
+        double[] closest = new double[n];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        int next = 0;
+        for (int i = 0; i < k; i++) {
+            m_landmarks[i] = next;
+            m_from[i] = new double[capacity];
+            m_to[i] = new double[capacity];
+            Arrays.fill(m_from[i], Double.POSITIVE_INFINITY);
+            Arrays.fill(m_to[i], Double.POSITIVE_INFINITY);
+            m_from[i][next] = 0.0;
+            m_to[i][next] = 0.0;
+            m_heap.insert(next, 0.0);
+            propagate(m_from[i], true);
+            m_heap.insert(next, 0.0);
+            propagate(m_to[i], false);
+
+            double farthest = -1.0;
+            for (int v = 0; v < n; v++) {
+                closest[v] = Math.min(closest[v], m_from[i][v] + m_to[i][v]);
+                if (closest[v] > farthest) {
+                    farthest = closest[v];
+                    next = v;
+                }
+            }
+        }
+        m_valid = true;
+    }
+
+    /**
+     * Dijkstra search starting with the vertices in the heap, only shorter distances are
+     * written.
+     * @param forward true to follow the leaving edges, false for the incoming edges
+     */
+    private void propagate(double[] dist, boolean forward) {
+        while (!m_heap.isEmpty()) {
+            final int u = m_heap.removeMin();
+            final double du = dist[u];
+            V vertex = m_vertices.get(u);
+            EdgeCursor<V, E> c = forward ? m_cursor.resetOutgoing(vertex) : m_cursor.resetIncoming(vertex);
+            while (c.next()) {
+                final int w = m_ids.get(forward ? c.getDestination() : c.getOrigin());
+                final double d = du + c.getWeight();
+                if (d < dist[w]) {
+                    dist[w] = d;
+                    m_heap.insertOrDecrease(w, d);
+                }
+            }
+        }
+    }
+
+    /**
+     * The edge from origin to destination got weight: repairs the distances of all landmarks
+     * that get shorter over this edge.
+     */
+    private void repair(V origin, V destination, double weight) {
+        final int o = m_ids.get(origin);
+        final int d = m_ids.get(destination);
+        for (int i = 0; i < m_landmarks.length; i++) {
+            if (m_from[i][o] + weight < m_from[i][d]) {
+                m_from[i][d] = m_from[i][o] + weight;
+                m_heap.insert(d, m_from[i][d]);
+                propagate(m_from[i], true);
+            }
+            if (m_to[i][d] + weight < m_to[i][o]) {
+                m_to[i][o] = m_to[i][d] + weight;
+                m_heap.insert(o, m_to[i][o]);
+                propagate(m_to[i], false);
+            }
+        }
+    }
+
+    /**
+     * Gives a new vertex an id. It has no edges yet, so it is unreachable from and to all
+     * landmarks.
+     */
+    private void add(V vertex) {
+        final int id = m_vertices.size();
+        m_vertices.add(vertex);
+        m_ids.put(vertex, id);
+        if (id == m_from[0].length) {
+            final int capacity = 2*id;
+            for (int i = 0; i < m_landmarks.length; i++) {
+                m_from[i] = grow(m_from[i], capacity);
+                m_to[i] = grow(m_to[i], capacity);
+            }
+            m_heap = new IndexedDoubleHeap(capacity);
+        }
+    }
+
+    private static double[] grow(double[] a, int capacity) {
+        double[] b = Arrays.copyOf(a, capacity);
+        Arrays.fill(b, a.length, capacity, Double.POSITIVE_INFINITY);
+        return b;
+    }
+
+    /**
+     * Keeps the index up to date. Changes that can only shorten distances are repaired, all
+     * others invalidate the index.
+     */
+    private class Listener implements DigraphListener<V, E> {
+        @Override
+        public void vertexAdded(V vertex) {
+            if (m_valid) {
+                if (m_landmarks.length < m_k) {
+                    // too few vertices for k landmarks so far
+                    m_valid = false;
+                } else {
+                    add(vertex);
+                }
+            }
+        }
+
+        @Override
+        public void vertexRemoved(V vertex) {
+            m_valid = false;
+        }
+
+        @Override
+        public void edgeAdded(E edge, V origin, V destination, double weight) {
+            if (m_valid)
+                repair(origin, destination, weight);
+        }
+
+        @Override
+        public void edgeRemoved(E edge, V origin, V destination, double weight) {
+            m_valid = false;
+        }
+
+        @Override
+        public void edgeWeightChanged(E edge, V origin, V destination, double oldWeight, double newWeight) {
+            if (newWeight > oldWeight) {
+                m_valid = false;
+            } else if (m_valid && newWeight < oldWeight) {
+                repair(origin, destination, newWeight);
+            }
+        }
+
+        @Override
+        public void cleared() {
+            m_valid = false;
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package digraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Read-only Graph working directly on a graph file mapped into memory. Opening a file maps its
+ * sections and reads nothing else, so even a graph with 100 million edges is queryable within
+ * milliseconds and the adjacency never occupies the Java heap. The operating system pages the file
+ * in on access and may share it between processes.
+ *
+ * The file is written by write(). After a header it holds the forward and the reverse CSR of
+ * CompactDigraph, then the vertex and the edge keys encoded by a KeyCodec, each with an open
+ * addressing hash table from key to id. All numbers are little-endian, every section is aligned to
+ * 8 bytes and at most 2 GB long.
+ *
+ * <pre>
+ * MappedDigraph.write(graph, file, KeyCodec.INTEGER, KeyCodec.INTEGER);
+ * MappedDigraph&lt;Integer, Integer&gt; mapped = MappedDigraph.open(file, KeyCodec.INTEGER, KeyCodec.INTEGER);
+ * </pre>
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class MappedDigraph<V, E> extends AbstractIndexedDigraph<V, E> {
+
+    private static final int MAGIC = 0x44474246; // "DGBF"
+    private static final int VERSION = 1;
+
+    // sections of the file in this order
+    private static final int OUT_OFFSETS = 0;
+    private static final int TARGETS = 1;
+    private static final int WEIGHTS = 2;
+    private static final int SOURCES = 3;
+    private static final int IN_OFFSETS = 4;
+    private static final int IN_SOURCES = 5;
+    private static final int IN_WEIGHTS = 6;
+    private static final int IN_EDGES = 7;
+    private static final int VERTEX_KEYS = 8; // bytes, offsets and hash table of the vertex keys
+    private static final int EDGE_KEYS = 11; // bytes, offsets and hash table of the edge keys
+    private static final int SECTIONS = 14;
+
+    /**
+     * magic, version, number of vertices, number of edges, width of the vertex and edge keys,
+     * capacity of the vertex and edge hash tables, then the start of every section and the end of
+     * the file
+     */
+    private static final int HEADER = 8*4 + (SECTIONS + 1)*8;
+
+    private final int m_n;
+    private final int m_m;
+
+    private final IntBuffer m_outOffsets;
+    private final IntBuffer m_targets;
+    private final DoubleBuffer m_weights;
+    private final IntBuffer m_sources;
+    private final IntBuffer m_inOffsets;
+    private final IntBuffer m_inSources;
+    private final DoubleBuffer m_inWeights;
+    private final IntBuffer m_inEdges;
+
+    private final Keys<V> m_vertexKeys;
+    private final Keys<E> m_edgeKeys;
+
+    private volatile CompactDigraph<V, E> m_compact; // created on first request
+
+    private MappedDigraph(int n, int m, ByteBuffer[] sections, KeyCodec<V> vertexCodec, KeyCodec<E> edgeCodec) {
+        m_n = n;
+        m_m = m;
+        m_outOffsets = sections[OUT_OFFSETS].asIntBuffer();
+        m_targets = sections[TARGETS].asIntBuffer();
+        m_weights = sections[WEIGHTS].asDoubleBuffer();
+        m_sources = sections[SOURCES].asIntBuffer();
+        m_inOffsets = sections[IN_OFFSETS].asIntBuffer();
+        m_inSources = sections[IN_SOURCES].asIntBuffer();
+        m_inWeights = sections[IN_WEIGHTS].asDoubleBuffer();
+        m_inEdges = sections[IN_EDGES].asIntBuffer();
+        m_vertexKeys = new Keys<>(vertexCodec, n, sections, VERTEX_KEYS);
+        m_edgeKeys = new Keys<>(edgeCodec, m, sections, EDGE_KEYS);
+    }
+
+    /**
+     * Maps the graph file into memory. The file must not be changed while the Graph is in use.
+     * @param file written by write()
+     * @param vertexCodec the codec the vertex keys were written with
+     * @param edgeCodec the codec the edge keys were written with
+     * @return the Graph in the file
+     * @throws IOException if the file cannot be read or is not a graph file
+     * @throws IllegalArgumentException if a codec does not match the file
+     */
+    public static <V, E> MappedDigraph<V, E> open(File file, KeyCodec<V> vertexCodec, KeyCodec<E> edgeCodec)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC)
+                throw new IOException("Not a graph file: " + file);
+            if (header.getInt(4) != VERSION)
+                throw new IOException("Unsupported graph file version " + header.getInt(4) + ": " + file);
+            if (header.getInt(16) != vertexCodec.width() || header.getInt(20) != edgeCodec.width())
+                throw new IllegalArgumentException("The key codecs do not match the graph file.");
+            long[] starts = new long[SECTIONS + 1];
+            for (int s = 0; s <= SECTIONS; s++) {
+                starts[s] = header.getLong(32 + 8*s);
+            }
+            if (starts[SECTIONS] > channel.size())
+                throw new IOException("Truncated graph file: " + file);
+
+            // the mappings stay valid after the channel is closed
+            ByteBuffer[] sections = new ByteBuffer[SECTIONS];
+            for (int s = 0; s < SECTIONS; s++) {
+                sections[s] = channel.map(FileChannel.MapMode.READ_ONLY, starts[s], starts[s + 1] - starts[s])
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new MappedDigraph<>(header.getInt(8), header.getInt(12), sections, vertexCodec, edgeCodec);
+        }
+    }
+
+    /**
+     * Writes graph to file in the format read by open(). An existing file is overwritten.
+     * Time complexity: O(n+m)
+     * @param graph
+     * @param file
+     * @param vertexCodec encodes the vertex keys
+     * @param edgeCodec encodes the edge keys
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a section of the file would exceed 2 GB
+     */
+    public static <V, E> void write(IReadOnlyDigraph<V, E> graph, File file, KeyCodec<? super V> vertexCodec,
+            KeyCodec<? super E> edgeCodec) throws IOException {
+        final CompactDigraph<V, E> g = graph.toCompact();
+        final int n = g.getNumberOfVerts();
+        final int m = g.getNumberOfEdges();
+        long[] starts = new long[SECTIONS + 1];
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel, HEADER);
+            out.section(starts, OUT_OFFSETS);
+            for (int v = 0; v < n; v++) {
+                out.putInt(g.outBegin(v));
+            }
+            out.putInt(m);
+            out.section(starts, TARGETS);
+            for (int e = 0; e < m; e++) {
+                out.putInt(g.target(e));
+            }
+            out.section(starts, WEIGHTS);
+            for (int e = 0; e < m; e++) {
+                out.putDouble(g.weight(e));
+            }
+            out.section(starts, SOURCES);
+            for (int e = 0; e < m; e++) {
+                out.putInt(g.source(e));
+            }
+            out.section(starts, IN_OFFSETS);
+            for (int v = 0; v < n; v++) {
+                out.putInt(g.inBegin(v));
+            }
+            out.putInt(m);
+            out.section(starts, IN_SOURCES);
+            for (int i = 0; i < m; i++) {
+                out.putInt(g.inSource(i));
+            }
+            out.section(starts, IN_WEIGHTS);
+            for (int i = 0; i < m; i++) {
+                out.putDouble(g.inWeight(i));
+            }
+            out.section(starts, IN_EDGES);
+            for (int i = 0; i < m; i++) {
+                out.putInt(g.inEdge(i));
+            }
+            int vertexSlots = writeKeys(out, starts, VERTEX_KEYS, vertexCodec, n, g::vertexOf);
+            int edgeSlots = writeKeys(out, starts, EDGE_KEYS, edgeCodec, m, g::edgeOf);
+            out.section(starts, SECTIONS);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m);
+            header.putInt(vertexCodec.width()).putInt(edgeCodec.width()).putInt(vertexSlots).putInt(edgeSlots);
+            for (long start : starts) {
+                header.putLong(start);
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Writes the key bytes, the offsets of the keys if their width varies and the hash table.
+     * @return number of slots of the hash table
+     */
+    private static <K> int writeKeys(Output out, long[] starts, int first, KeyCodec<? super K> codec, int count,
+            IntFunction<K> keys) throws IOException {
+        int slots = 2;
+        while (slots < 2L*count) {
+            slots <<= 1;
+            if (slots > 1 << 30)
+                throw new IllegalArgumentException("Too many keys for a graph file.");
+        }
+        final int shift = 32 - Integer.numberOfTrailingZeros(slots);
+        final int width = codec.width();
+        int[] table = new int[slots];
+        int[] offsets = (width < 0) ? new int[count + 1] : null;
+
+        out.section(starts, first);
+        final long begin = out.position();
+        for (int id = 0; id < count; id++) {
+            K key = keys.apply(id);
+            byte[] bytes = codec.encode(key);
+            if (width >= 0 && bytes.length != width)
+                throw new IllegalArgumentException("Key " + key + " is not " + width + " bytes long.");
+            if (offsets != null)
+                offsets[id] = (int) (out.position() - begin);
+            out.put(bytes);
+            int slot = slot(codec.hash(key), shift);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            table[slot] = id + 1;
+        }
+        if (offsets != null)
+            offsets[count] = (int) (out.position() - begin);
+        out.section(starts, first + 1);
+        if (offsets != null) {
+            for (int offset : offsets) {
+                out.putInt(offset);
+            }
+        }
+        out.section(starts, first + 2);
+        for (int id : table) {
+            out.putInt(id);
+        }
+        return slots;
+    }
+
+    /**
+     * @return the first slot of a key with the given hash in a table with 2^(32-shift) slots
+     */
+    private static int slot(int hash, int shift) {
+        return (hash * 0x9E3779B9) >>> shift;
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+    // INDEX BASED ACCESS
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public int idOf(V vertex) {
+        return m_vertexKeys.find(vertex);
+    }
+
+    @Override
+    public V vertexOf(int id) {
+        return m_vertexKeys.get(id);
+    }
+
+    @Override
+    public int edgeIdOf(E edge) {
+        return m_edgeKeys.find(edge);
+    }
+
+    @Override
+    public E edgeOf(int id) {
+        return m_edgeKeys.get(id);
+    }
+
+    @Override
+    public int outBegin(int v) {
+        return m_outOffsets.get(v);
+    }
+
+    @Override
+    public int outEnd(int v) {
+        return m_outOffsets.get(v + 1);
+    }
+
+    @Override
+    public int source(int e) {
+        return m_sources.get(e);
+    }
+
+    @Override
+    public int target(int e) {
+        return m_targets.get(e);
+    }
+
+    @Override
+    public double weight(int e) {
+        return m_weights.get(e);
+    }
+
+    @Override
+    public int inBegin(int v) {
+        return m_inOffsets.get(v);
+    }
+
+    @Override
+    public int inEnd(int v) {
+        return m_inOffsets.get(v + 1);
+    }
+
+    @Override
+    public int inSource(int i) {
+        return m_inSources.get(i);
+    }
+
+    @Override
+    public double inWeight(int i) {
+        return m_inWeights.get(i);
+    }
+
+    @Override
+    public int inEdge(int i) {
+        return m_inEdges.get(i);
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+    // IReadOnlyDigraph
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns a read-only view that decodes the keys on iteration.
+     */
+    @Override
+    public Set<V> getVertsOfGraph() {
+        return m_vertexKeys.asSet();
+    }
+
+    /**
+     * Returns a read-only view that decodes the keys on iteration.
+     */
+    @Override
+    public Set<E> getEdgesOfGraph() {
+        return m_edgeKeys.asSet();
+    }
+
+    @Override
+    public int getNumberOfVerts() {
+        return m_n;
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return m_m;
+    }
+
+    /**
+     * Copies the Graph onto the heap on the first call, the ids stay the same.
+     * Time complexity: O(n+m)
+     */
+    @Override
+    public CompactDigraph<V, E> toCompact() {
+        CompactDigraph<V, E> compact = m_compact;
+        if (compact == null) {
+            Object[] vertices = new Object[m_n];
+            for (int v = 0; v < m_n; v++) {
+                vertices[v] = vertexOf(v);
+            }
+            Object[] edges = new Object[m_m];
+            for (int e = 0; e < m_m; e++) {
+                edges[e] = edgeOf(e);
+            }
+            int[] offsets = new int[m_n + 1];
+            int[] targets = new int[m_m];
+            double[] weights = new double[m_m];
+            // duplicates have their own position, so concurrent calls do not interfere
+            m_outOffsets.duplicate().get(offsets);
+            m_targets.duplicate().get(targets);
+            m_weights.duplicate().get(weights);
+            compact = new CompactDigraph<>(vertices, offsets, targets, weights, edges);
+            m_compact = compact;
+        }
+        return compact;
+    }
+
+    /**
+     * Keys of the vertices or the edges in the mapped file: the encoded keys, their offsets if the
+     * width varies and the hash table from key to id.
+     *
+     * @param <K> Type of the Keys
+     */
+    private static class Keys<K> {
+        private final KeyCodec<K> m_codec;
+        private final int m_count;
+        private final int m_width;
+        private final ByteBuffer m_bytes; // big-endian, the order of KeyCodec
+        private final IntBuffer m_offsets; // offset by id and the end of the last key
+        private final IntBuffer m_slots; // id + 1 by slot, 0 for an empty slot
+        private final int m_shift;
+
+        private Keys(KeyCodec<K> codec, int count, ByteBuffer[] sections, int first) {
+            m_codec = codec;
+            m_count = count;
+            m_width = codec.width();
+            m_bytes = sections[first].duplicate().order(ByteOrder.BIG_ENDIAN);
+            m_offsets = sections[first + 1].asIntBuffer();
+            m_slots = sections[first + 2].asIntBuffer();
+            m_shift = 32 - Integer.numberOfTrailingZeros(m_slots.limit());
+        }
+
+        private K get(int id) {
+            if (id < 0 || id >= m_count)
+                throw new IndexOutOfBoundsException("No key with id " + id);
+            if (m_width >= 0)
+                return m_codec.decode(m_bytes, id*m_width, m_width);
+            int begin = m_offsets.get(id);
+            return m_codec.decode(m_bytes, begin, m_offsets.get(id + 1) - begin);
+        }
+
+        /**
+         * @return id of key, -1 if the file does not contain it
+         */
+        private int find(K key) {
+            if (key == null)
+                return -1;
+            final int mask = m_slots.limit() - 1;
+            for (int slot = slot(m_codec.hash(key), m_shift);; slot = (slot + 1) & mask) {
+                int id = m_slots.get(slot) - 1;
+                if (id < 0)
+                    return -1;
+                if (key.equals(get(id)))
+                    return id;
+            }
+        }
+
+        /**
+         * @return read-only view over all keys in the order of their ids
+         */
+        private Set<K> asSet() {
+            return new AbstractSet<K>() {
+                @Override
+                public int size() {
+                    return m_count;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public boolean contains(Object o) {
+                    return find((K) o) >= 0;
+                }
+
+                @Override
+                public Iterator<K> iterator() {
+                    return new Iterator<K>() {
+                        private int m_next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return m_next < m_count;
+                        }
+
+                        @Override
+                        public K next() {
+                            if (m_next >= m_count)
+                                throw new NoSuchElementException();
+                            return get(m_next++);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Buffered writer of the graph file.
+     */
+    private static class Output {
+        private final FileChannel m_channel;
+        private final ByteBuffer m_buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long m_position; // file position of the start of m_buffer
+
+        private Output(FileChannel channel, long position) {
+            m_channel = channel;
+            m_position = position;
+        }
+
+        private long position() {
+            return m_position + m_buffer.position();
+        }
+
+        /**
+         * Pads to 8 bytes and starts section s.
+         * @throws IllegalArgumentException if section s-1 exceeds 2 GB
+         */
+        private void section(long[] starts, int s) throws IOException {
+            while (position() % 8 != 0) {
+                put((byte) 0);
+            }
+            starts[s] = position();
+            if (s > 0 && starts[s] - starts[s - 1] > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("A section of the graph file exceeds 2 GB.");
+        }
+
+        private void putInt(int value) throws IOException {
+            if (m_buffer.remaining() < 4)
+                flush();
+            m_buffer.putInt(value);
+        }
+
+        private void putDouble(double value) throws IOException {
+            if (m_buffer.remaining() < 8)
+                flush();
+            m_buffer.putDouble(value);
+        }
+
+        private void put(byte value) throws IOException {
+            if (!m_buffer.hasRemaining())
+                flush();
+            m_buffer.put(value);
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            for (int i = 0; i < bytes.length;) {
+                if (!m_buffer.hasRemaining())
+                    flush();
+                int length = Math.min(bytes.length - i, m_buffer.remaining());
+                m_buffer.put(bytes, i, length);
+                i += length;
+            }
+        }
+
+        private void flush() throws IOException {
+            m_buffer.flip();
+            while (m_buffer.hasRemaining()) {
+                m_position += m_channel.write(m_buffer, m_position);
+            }
+            m_buffer.clear();
+        }
+    }
+}
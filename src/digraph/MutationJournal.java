@@ -0,0 +1,645 @@
+package digraph;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log that makes a Graph durable at a cost proportional to its changes. The journal is
+ * a listener of the Graph and appends every change as a small binary record. commit() writes the
+ * pending records and forces them to disk with a single fsync, concurrent commits share one
+ * fsync. checkpoint() writes the whole Graph to a snapshot file and starts an empty journal.
+ * open() restores the Graph from the snapshot and the journal after a restart or a crash.
+ *
+ * <pre>
+ * MutationJournal&lt;Integer, Integer&gt; journal = MutationJournal.open(dir, graph, KeyCodec.INTEGER, KeyCodec.INTEGER);
+ * graph.addEdge(1, 2.0, 3, 4);
+ * journal.commit(); // the edge survives a crash from here on
+ * </pre>
+ *
+ * The directory holds the files "snapshot" and "journal". Both start with a header of magic,
+ * version and generation, followed by frames of length, CRC32 and records. A record is a type byte
+ * and the keys, encoded by the KeyCodecs, and weights of the change. A frame that was not written
+ * completely before a crash fails its CRC and is dropped on open together with everything after
+ * it. A checkpoint increments the generation, a journal of an older generation than the snapshot
+ * is already contained in it. All numbers are big-endian.
+ *
+ * Besides commit(), pending records are committed when they exceed the group size or the oldest
+ * of them is older than the group delay, see setGroupCommit(). Changes that were not committed
+ * may be lost in a crash. The Graph must not change while checkpoint() runs.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class MutationJournal<V, E> implements DigraphListener<V, E>, Closeable {
+
+    private static final int MAGIC = 0x44474A4C; // "DGJL"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16; // magic, version and generation
+    private static final int FRAME_HEADER = 8; // length and CRC32 of the records
+    private static final int SNAPSHOT_FRAME = 1 << 20; // bytes of records per snapshot frame
+
+    private static final String SNAPSHOT = "snapshot";
+    private static final String JOURNAL = "journal";
+    private static final String TEMP = ".tmp";
+
+    // record types
+    private static final byte ADD_VERTEX = 1;
+    private static final byte REMOVE_VERTEX = 2;
+    private static final byte ADD_EDGE = 3;
+    private static final byte REMOVE_EDGE = 4;
+    private static final byte SET_WEIGHT = 5;
+    private static final byte CLEAR = 6;
+
+    private final File m_dir;
+    private final IDigraph<V, E> m_graph;
+    private final KeyCodec<V> m_vertexCodec;
+    private final KeyCodec<E> m_edgeCodec;
+
+    /**
+     * Guards the records that are not written yet. Taken after m_io.
+     */
+    private final Object m_lock = new Object();
+    private Records m_pending = new Records();
+    private long m_appended; // number of records appended so far
+    private long m_firstPending; // System.nanoTime() of the oldest pending record
+    private int m_groupBytes = 1 << 20;
+    private long m_groupDelay = 10000000; // nanoseconds
+
+    /**
+     * Guards the journal file.
+     */
+    private final Object m_io = new Object();
+    private FileChannel m_channel;
+    private Records m_spare = new Records(); // records being written
+    private long m_durable; // number of records on disk
+    private long m_generation;
+    private long m_checkpointBytes = Long.MAX_VALUE;
+
+    /**
+     * First failed write, the journal refuses further records afterwards.
+     */
+    private volatile IOException m_failure;
+
+    private MutationJournal(File dir, IDigraph<V, E> graph, KeyCodec<V> vertexCodec, KeyCodec<E> edgeCodec) {
+        m_dir = dir;
+        m_graph = graph;
+        m_vertexCodec = vertexCodec;
+        m_edgeCodec = edgeCodec;
+    }
+
+    /**
+     * Restores graph from the snapshot and the journal in dir and records its further changes.
+     * An empty or missing directory starts a new journal.
+     * @param dir directory of the journal, created if missing
+     * @param graph empty Graph
+     * @param vertexCodec
+     * @param edgeCodec
+     * @return the journal, registered as listener of graph
+     * @throws IOException if the files cannot be read or are corrupt
+     * @throws IllegalArgumentException if graph is not empty
+     */
+    public static <V, E> MutationJournal<V, E> open(File dir, IDigraph<V, E> graph, KeyCodec<V> vertexCodec,
+            KeyCodec<E> edgeCodec) throws IOException {
+        if (graph.getNumberOfVerts() != 0)
+            throw new IllegalArgumentException("Graph must be empty.");
+        MutationJournal<V, E> journal = new MutationJournal<>(dir, graph, vertexCodec, edgeCodec);
+        journal.recover();
+        graph.addDigraphListener(journal);
+        return journal;
+    }
+
+    /**
+     * Sets when pending records are committed without a call to commit(). The delay is checked
+     * when a change is recorded.
+     * @param maxBytes size of the pending records
+     * @param maxDelayMillis age of the oldest pending record
+     */
+    public void setGroupCommit(int maxBytes, long maxDelayMillis) {
+        assert (maxBytes > 0 && maxDelayMillis >= 0) : "limits must not be negative";
+        synchronized (m_lock) {
+            m_groupBytes = maxBytes;
+            m_groupDelay = maxDelayMillis*1000000;
+        }
+    }
+
+    /**
+     * Lets commit() write a checkpoint once the journal is larger than the given size.
+     * @param journalBytes Long.MAX_VALUE to checkpoint only on request
+     */
+    public void setCheckpointThreshold(long journalBytes) {
+        synchronized (m_io) {
+            m_checkpointBytes = journalBytes;
+        }
+    }
+
+    /**
+     *
+     * @return size of the journal file in bytes
+     */
+    public long getJournalSize() throws IOException {
+        synchronized (m_io) {
+            checkOpen();
+            return m_channel.size();
+        }
+    }
+
+    /**
+     * Writes the pending records and forces them to disk. Calls from several threads are served
+     * by one write and fsync. Writes a checkpoint if the journal exceeds the checkpoint threshold.
+     * @throws IOException if the journal cannot be written, the journal is unusable afterwards
+     */
+    public void commit() throws IOException {
+        sync();
+        synchronized (m_io) {
+            checkOpen();
+            if (m_channel.size() > m_checkpointBytes)
+                checkpoint();
+        }
+    }
+
+    /**
+     * Writes the Graph to a new snapshot and empties the journal. The snapshot is written to a
+     * temporary file and renamed, so a crash leaves either the old or the new snapshot.
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void checkpoint() throws IOException {
+        synchronized (m_io) {
+            synchronized (m_lock) {
+                checkOpen();
+                final long generation = m_generation + 1;
+                File temp = new File(m_dir, SNAPSHOT + TEMP);
+                try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    writeHeader(channel, generation);
+                    Records records = new Records();
+                    for (V v : m_graph.getVertsOfGraph()) {
+                        records.put(ADD_VERTEX).key(m_vertexCodec, v);
+                        if (records.m_size >= SNAPSHOT_FRAME) {
+                            writeFrame(channel, records);
+                            records.reset();
+                        }
+                    }
+                    for (V v : m_graph.getVertsOfGraph()) {
+                        m_graph.forEachOutgoing(v, (e, origin, destination, weight) -> records.put(ADD_EDGE)
+                                .key(m_edgeCodec, e).key(m_vertexCodec, origin).key(m_vertexCodec, destination)
+                                .putDouble(weight));
+                        if (records.m_size >= SNAPSHOT_FRAME) {
+                            writeFrame(channel, records);
+                            records.reset();
+                        }
+                    }
+                    if (records.m_size > 0)
+                        writeFrame(channel, records);
+                    channel.force(true);
+                }
+                move(temp, SNAPSHOT);
+                // the snapshot holds all changes so far, including the pending ones
+                try {
+                    m_channel.close();
+                    m_generation = generation;
+                    newJournal();
+                } catch (IOException e) {
+                    m_failure = e;
+                    throw e;
+                }
+                m_pending.reset();
+                m_durable = m_appended;
+            }
+        }
+    }
+
+    /**
+     * Commits the pending records and stops recording the changes of the Graph.
+     */
+    @Override
+    public void close() throws IOException {
+        m_graph.removeDigraphListener(this);
+        synchronized (m_io) {
+            if (m_channel == null)
+                return;
+            try {
+                if (m_failure == null)
+                    sync();
+            } finally {
+                m_channel.close();
+                m_channel = null;
+            }
+        }
+    }
+
+    @Override
+    public void vertexAdded(V vertex) {
+        boolean due;
+        synchronized (m_lock) {
+            record(ADD_VERTEX).key(m_vertexCodec, vertex);
+            due = isDue();
+        }
+        if (due)
+            autoCommit();
+    }
+
+    @Override
+    public void vertexRemoved(V vertex) {
+        boolean due;
+        synchronized (m_lock) {
+            record(REMOVE_VERTEX).key(m_vertexCodec, vertex);
+            due = isDue();
+        }
+        if (due)
+            autoCommit();
+    }
+
+    @Override
+    public void edgeAdded(E edge, V origin, V destination, double weight) {
+        boolean due;
+        synchronized (m_lock) {
+            record(ADD_EDGE).key(m_edgeCodec, edge).key(m_vertexCodec, origin).key(m_vertexCodec, destination)
+                    .putDouble(weight);
+            due = isDue();
+        }
+        if (due)
+            autoCommit();
+    }
+
+    @Override
+    public void edgeRemoved(E edge, V origin, V destination, double weight) {
+        boolean due;
+        synchronized (m_lock) {
+            record(REMOVE_EDGE).key(m_edgeCodec, edge);
+            due = isDue();
+        }
+        if (due)
+            autoCommit();
+    }
+
+    @Override
+    public void edgeWeightChanged(E edge, V origin, V destination, double oldWeight, double newWeight) {
+        boolean due;
+        synchronized (m_lock) {
+            record(SET_WEIGHT).key(m_edgeCodec, edge).putDouble(newWeight);
+            due = isDue();
+        }
+        if (due)
+            autoCommit();
+    }
+
+    @Override
+    public void cleared() {
+        boolean due;
+        synchronized (m_lock) {
+            record(CLEAR);
+            due = isDue();
+        }
+        if (due)
+            autoCommit();
+    }
+
+    /**
+     * Starts a record in the pending records, called with m_lock held.
+     */
+    private Records record(byte type) {
+        if (m_failure != null)
+            throw new IllegalStateException("Journal failed.", m_failure);
+        if (m_pending.m_size == 0)
+            m_firstPending = System.nanoTime();
+        m_appended++;
+        return m_pending.put(type);
+    }
+
+    /**
+     * @return true if the pending records are to be committed, called with m_lock held
+     */
+    private boolean isDue() {
+        return m_pending.m_size >= m_groupBytes || System.nanoTime() - m_firstPending >= m_groupDelay;
+    }
+
+    private void autoCommit() {
+        try {
+            sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes and forces the records appended before the call, unless a concurrent call did so.
+     */
+    private void sync() throws IOException {
+        long target;
+        synchronized (m_lock) {
+            target = m_appended;
+        }
+        synchronized (m_io) {
+            checkOpen();
+            if (m_durable >= target)
+                return;
+            Records records;
+            long count;
+            synchronized (m_lock) {
+                // take all pending records, the appenders continue in the spare buffer
+                records = m_pending;
+                m_pending = m_spare;
+                m_spare = records;
+                count = m_appended;
+            }
+            try {
+                writeFrame(m_channel, records);
+                m_channel.force(false);
+            } catch (IOException e) {
+                m_failure = e;
+                throw e;
+            }
+            records.reset();
+            m_durable = count;
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (m_failure != null)
+            throw new IOException("Journal failed.", m_failure);
+        if (m_channel == null)
+            throw new IllegalStateException("Journal is closed.");
+    }
+
+    /**
+     * Loads the snapshot, replays the journal of the same generation and opens the journal for
+     * appending after its last complete frame.
+     */
+    private void recover() throws IOException {
+        if (!m_dir.isDirectory() && !m_dir.mkdirs())
+            throw new IOException("Cannot create directory: " + m_dir);
+        Files.deleteIfExists(new File(m_dir, SNAPSHOT + TEMP).toPath());
+        Files.deleteIfExists(new File(m_dir, JOURNAL + TEMP).toPath());
+
+        File snapshot = new File(m_dir, SNAPSHOT);
+        if (snapshot.exists()) {
+            try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+                m_generation = readHeader(channel, snapshot);
+                if (replay(channel) != channel.size())
+                    throw new IOException("Corrupt snapshot: " + snapshot);
+            }
+        }
+
+        File journal = new File(m_dir, JOURNAL);
+        if (journal.exists()) {
+            FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                long generation = readHeader(channel, journal);
+                if (generation > m_generation)
+                    throw new IOException("Snapshot of generation " + generation + " missing: " + snapshot);
+                if (generation == m_generation) {
+                    // a frame that is cut off or fails its CRC was not committed
+                    long end = replay(channel);
+                    channel.truncate(end);
+                    channel.position(end);
+                    m_channel = channel;
+                    return;
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            // the checkpoint of a newer generation was interrupted after writing the snapshot
+            channel.close();
+        }
+        newJournal();
+    }
+
+    /**
+     * Replaces the journal by an empty one of the current generation and opens it.
+     */
+    private void newJournal() throws IOException {
+        File temp = new File(m_dir, JOURNAL + TEMP);
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(channel, m_generation);
+            channel.force(true);
+        }
+        move(temp, JOURNAL);
+        m_channel = FileChannel.open(new File(m_dir, JOURNAL).toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        m_channel.position(HEADER);
+    }
+
+    /**
+     * Renames file to name atomically and forces the directory entry to disk where the platform
+     * allows it.
+     */
+    private void move(File file, String name) throws IOException {
+        Files.move(file.toPath(), new File(m_dir, name).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel dir = FileChannel.open(m_dir.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // directories cannot be opened on every platform, the rename is durable there anyway
+        }
+    }
+
+    /**
+     * Writes the header at the position of the new file channel.
+     */
+    private static void writeHeader(FileChannel channel, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * @return the generation in the header of file
+     */
+    private static long readHeader(FileChannel channel, File file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC)
+            throw new IOException("Not a journal file: " + file);
+        if (header.getInt(4) != VERSION)
+            throw new IOException("Unsupported journal file version " + header.getInt(4) + ": " + file);
+        return header.getLong(8);
+    }
+
+    /**
+     * Appends records as one frame at the position of channel.
+     */
+    private static void writeFrame(FileChannel channel, Records records) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(records.m_bytes, 0, records.m_size);
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        header.putInt(records.m_size).putInt((int) crc.getValue()).flip();
+        ByteBuffer[] frame = { header, ByteBuffer.wrap(records.m_bytes, 0, records.m_size) };
+        while (frame[1].hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    /**
+     * Applies the frames after the header to the Graph until the end or the first incomplete or
+     * damaged frame.
+     * @return position after the last applied frame
+     */
+    private long replay(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        long pos = HEADER;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        byte[] bytes = new byte[0];
+        while (pos + FRAME_HEADER <= size) {
+            header.clear();
+            while (header.hasRemaining() && channel.read(header, pos + header.position()) > 0) {
+            }
+            int length = header.getInt(0);
+            if (length < 0 || pos + FRAME_HEADER + length > size)
+                break;
+            if (bytes.length < length)
+                bytes = new byte[Math.max(length, 2*bytes.length)];
+            ByteBuffer frame = ByteBuffer.wrap(bytes, 0, length);
+            while (frame.hasRemaining() && channel.read(frame, pos + FRAME_HEADER + frame.position()) > 0) {
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, length);
+            if ((int) crc.getValue() != header.getInt(4))
+                break;
+            frame.flip();
+            apply(frame);
+            pos += FRAME_HEADER + length;
+        }
+        return pos;
+    }
+
+    /**
+     * Applies the records of one frame. Runs of added vertices and edges are inserted by one
+     * batch, they only contain edges between vertices added before.
+     */
+    private void apply(ByteBuffer records) throws IOException {
+        GraphBuilder<V, E> batch = null;
+        while (records.hasRemaining()) {
+            byte type = records.get();
+            if (type != ADD_VERTEX && type != ADD_EDGE && batch != null) {
+                batch.apply();
+                batch = null;
+            }
+            switch (type) {
+            case ADD_VERTEX:
+                if (batch == null)
+                    batch = m_graph.batch();
+                batch.addVertex(readKey(records, m_vertexCodec));
+                break;
+            case ADD_EDGE: {
+                if (batch == null)
+                    batch = m_graph.batch();
+                E edge = readKey(records, m_edgeCodec);
+                V origin = readKey(records, m_vertexCodec);
+                V destination = readKey(records, m_vertexCodec);
+                batch.addEdge(edge, records.getDouble(), origin, destination);
+                break;
+            }
+            case REMOVE_VERTEX: {
+                V vertex = readKey(records, m_vertexCodec);
+                if (m_graph.containsVertex(vertex))
+                    m_graph.removeVertex(vertex);
+                break;
+            }
+            case REMOVE_EDGE: {
+                E edge = readKey(records, m_edgeCodec);
+                if (m_graph.containsEdge(edge))
+                    m_graph.removeEdge(edge);
+                break;
+            }
+            case SET_WEIGHT: {
+                E edge = readKey(records, m_edgeCodec);
+                double weight = records.getDouble();
+                if (m_graph.containsEdge(edge))
+                    m_graph.setEdgeWeight(edge, weight);
+                break;
+            }
+            case CLEAR:
+                m_graph.clear();
+                break;
+            default:
+                throw new IOException("Unknown record type " + type + ".");
+            }
+        }
+        if (batch != null)
+            batch.apply();
+    }
+
+    private static <K> K readKey(ByteBuffer records, KeyCodec<K> codec) {
+        int length = codec.width();
+        if (length < 0) {
+            // unsigned varint, 7 bits per byte
+            length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = records.get();
+                length |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    break;
+            }
+        }
+        K key = codec.decode(records, records.position(), length);
+        records.position(records.position() + length);
+        return key;
+    }
+
+    /**
+     * Growable buffer of encoded records.
+     */
+    private static class Records {
+        private byte[] m_bytes = new byte[4096];
+        private int m_size;
+
+        private Records put(byte b) {
+            ensure(1);
+            m_bytes[m_size++] = b;
+            return this;
+        }
+
+        private Records putDouble(double d) {
+            ensure(8);
+            long bits = Double.doubleToRawLongBits(d);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                m_bytes[m_size++] = (byte) (bits >>> shift);
+            }
+            return this;
+        }
+
+        /**
+         * Appends the encoded key, preceded by its length if the codec has no fixed width.
+         */
+        private <K> Records key(KeyCodec<K> codec, K key) {
+            byte[] bytes = codec.encode(key);
+            if (codec.width() < 0) {
+                ensure(5);
+                int length = bytes.length;
+                while ((length & ~0x7F) != 0) {
+                    m_bytes[m_size++] = (byte) ((length & 0x7F) | 0x80);
+                    length >>>= 7;
+                }
+                m_bytes[m_size++] = (byte) length;
+            }
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, m_bytes, m_size, bytes.length);
+            m_size += bytes.length;
+            return this;
+        }
+
+        private void ensure(int n) {
+            if (m_size + n > m_bytes.length)
+                m_bytes = Arrays.copyOf(m_bytes, Math.max(m_size + n, 2*m_bytes.length));
+        }
+
+        private void reset() {
+            m_size = 0;
+        }
+    }
+}
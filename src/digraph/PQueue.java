@@ -4,6 +4,10 @@ package digraph;
  * PriorityQueue with updateData() and item concept.
  * Makes use of a min heap stored in an ArrayList.
  * 
+ * The elements are either ordered by a comparator or, in keyed mode, by a primitive double
+ * priority stored in their item. In keyed mode the items returned by add() can be kept by the
+ * caller and passed to decreaseKey().
+ * 
  * @author Christoph Stamm 
   */
 
@@ -14,12 +18,19 @@ public class PQueue<E> {
     private class Item extends PQItem {
         private E m_data;						// data element
         private int m_index;					// heap position
+        private double m_priority;				// key in keyed mode
         
         private Item(E data, int index) {
             m_data = data;
             m_index = index;
         }
         
+        private Item(E data, int index, double priority) {
+            m_data = data;
+            m_index = index;
+            m_priority = priority;
+        }
+        
         private E getData() {
             return m_data;
         }
@@ -38,9 +49,17 @@ public class PQueue<E> {
     }
     
     //////////////////////////////////////////////////////////////////////
-    private Comparator<? super E> m_comp;	// comparator
+    private Comparator<? super E> m_comp;	// comparator, null in keyed mode
     private ArrayList<Item> m_array;		// internal data storage for the heap
     
+    /**
+     * Creates empty priority queue in keyed mode.
+     * The elements are ordered by the priorities given to add(E, double).
+     */
+    public PQueue() {
+        m_array = new ArrayList<Item>();
+    }
+    
     /**
      * Creates empty priority queue.
      * @param comp comparator
@@ -96,6 +115,7 @@ public class PQueue<E> {
      * @return item of the added data element
      */
     public PQItem add(E data) {
+    	assert m_comp != null : "keyed queue needs a priority";
         int s = size();
         Item item = new Item(data, s);
         m_array.add(item);
@@ -103,6 +123,64 @@ public class PQueue<E> {
         return item;
     }
     
+    /**
+     * Adds a data element with the given priority to this keyed queue in O(log n) time.
+     * @param data data element
+     * @param priority key of the element, smaller priorities are removed first
+     * @return item of the added data element, can be used for decreaseKey()
+     */
+    public PQItem add(E data, double priority) {
+    	assert m_comp == null : "only a keyed queue has priorities";
+        int s = size();
+        Item item = new Item(data, s, priority);
+        m_array.add(item);
+        siftUp(s);
+        return item;
+    }
+    
+    /**
+     * Lowers the priority of an element of this keyed queue in O(log n) time.
+     * @param item item of the element to be updated
+     * @param priority new priority, must not be greater than the current priority
+     * @return true if the priority could be decreased, false if the element is no longer in the
+     *         queue or priority is greater than the current priority
+     */
+    public boolean decreaseKey(PQItem item, double priority) {
+    	assert m_comp == null : "only a keyed queue has priorities";
+		assert checkMembership(item) : "wrong item";
+    	
+		@SuppressWarnings("unchecked")
+		Item pqitem = (Item)item;
+        int pos = pqitem.getIndex();
+        if (pos < 0 || pos >= m_array.size() || priority > pqitem.m_priority) return false;
+        
+        pqitem.m_priority = priority;
+        siftUp(pos);
+        return true;
+    }
+    
+    /**
+     * Gets the priority of an element of this keyed queue.
+     * @param item
+     * @return priority of given item
+     */
+	@SuppressWarnings("unchecked")
+	public double getPriority(PQItem item) {
+    	assert checkMembership(item) : "wrong item";
+    	return ((Item)item).m_priority;
+	}
+	
+	/**
+	 * 
+	 * @param item
+	 * @return true if the element of the given item has not been removed yet
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean contains(PQItem item) {
+    	assert checkMembership(item) : "wrong item";
+    	return ((Item)item).getIndex() >= 0;
+	}
+    
     /**
      * Removes the first element in the ordered sequence of queue elements in O(log n) time.
      * @return data of the removed element
@@ -110,7 +188,11 @@ public class PQueue<E> {
     public E removeMin() {
         int size = size();
         if (size == 0) return null;
-        if (size == 1) return m_array.remove(0).getData();
+        if (size == 1) {
+        	Item t = m_array.remove(0);
+        	t.m_index = -1; // set index of removed item to an invalid value
+        	return t.getData();
+        }
             
 		int last = size - 1;
 		// swap a[first] with a[last]
@@ -130,6 +212,9 @@ public class PQueue<E> {
      * Clears the queue and makes it the empty queue.
      */
     public void clear() {
+    	for (Item item: m_array) {
+    		item.m_index = -1;
+    	}
         m_array.clear();
     }
  
@@ -205,7 +290,7 @@ public class PQueue<E> {
         if (pos > 0) {
             // check heap condition at parent
             int par = (pos - 1)/2;
-    		if (m_comp.compare(m_array.get(par).m_data, m_array.get(pos).m_data) > 0) {
+    		if (compare(m_array.get(par), m_array.get(pos)) > 0) {
                 siftUp(pos);
                 return true;
             }
@@ -213,13 +298,20 @@ public class PQueue<E> {
         int son = pos*2 + 1;
         if (son < size()) {
             // check heap condition at son
-    		if (m_comp.compare(m_array.get(pos).m_data, m_array.get(son).m_data) > 0) {
+    		if (compare(m_array.get(pos), m_array.get(son)) > 0) {
                 siftDown(pos);
             }        
         }
         return true;
     }
     
+    /**
+     * Compares two items by comparator or by priority in keyed mode.
+     */
+    private int compare(Item a, Item b) {
+    	return (m_comp == null) ? Double.compare(a.m_priority, b.m_priority) : m_comp.compare(a.m_data, b.m_data);
+    }
+    
     private int set(int pos, Item item) {
         int oldIndex = item.getIndex();
         item.setIndex(pos);
@@ -239,10 +331,10 @@ public class PQueue<E> {
     		// son ist der linke Sohn
     		if (son < end) {
     			// pos hat auch einen rechten Sohn
-    			if (m_comp.compare(m_array.get(son).m_data, m_array.get(son + 1).m_data) > 0) son++;
+    			if (compare(m_array.get(son), m_array.get(son + 1)) > 0) son++;
     		}
     		// son ist der groessere Sohn
-    		if (m_comp.compare(m_array.get(pos).m_data, m_array.get(son).m_data) > 0) {
+    		if (compare(m_array.get(pos), m_array.get(son)) > 0) {
 	    		// swap a[pos] with a[son]
 				Item t = m_array.get(pos); 
 				set(pos, m_array.get(son)); 
@@ -262,7 +354,7 @@ public class PQueue<E> {
     private void siftUp(int pos) {
         int par = (pos - 1)/2; // parent
         
-        while(par >= 0 && m_comp.compare(m_array.get(par).m_data, m_array.get(pos).m_data) > 0) {
+        while(par >= 0 && compare(m_array.get(par), m_array.get(pos)) > 0) {
 	    	// swap a[par] with a[pos]
 			Item t = m_array.get(par); 
 			set(par, m_array.get(pos)); 
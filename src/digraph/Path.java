@@ -0,0 +1,77 @@
+package digraph;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A path through a Graph: the visited vertices, the traversed edges and the total weight. A path
+ * with k edges has k+1 vertices, the i-th edge leads from vertex i to vertex i+1.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class Path<V, E> {
+
+    private final List<V> m_vertices;
+    private final List<E> m_edges;
+    private final double m_weight;
+
+    Path(List<V> vertices, List<E> edges, double weight) {
+        assert (vertices.size() == edges.size() + 1) : "A path has one vertex more than edges";
+        m_vertices = Collections.unmodifiableList(vertices);
+        m_edges = Collections.unmodifiableList(edges);
+        m_weight = weight;
+    }
+
+    /**
+     *
+     * @return the first vertex of the path
+     */
+    public V getOrigin() {
+        return m_vertices.get(0);
+    }
+
+    /**
+     *
+     * @return the last vertex of the path
+     */
+    public V getDestination() {
+        return m_vertices.get(m_vertices.size() - 1);
+    }
+
+    /**
+     *
+     * @return the vertices from origin to destination
+     */
+    public List<V> getVertices() {
+        return m_vertices;
+    }
+
+    /**
+     *
+     * @return the edges from origin to destination
+     */
+    public List<E> getEdges() {
+        return m_edges;
+    }
+
+    /**
+     *
+     * @return sum of the edge weights
+     */
+    public double getWeight() {
+        return m_weight;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("(").append(m_vertices.get(0)).append(")");
+        for (int i = 0; i < m_edges.size(); i++) {
+            sb.append("---").append(m_edges.get(i)).append("--->(").append(m_vertices.get(i + 1)).append(")");
+        }
+        return sb.append(" ").append(m_weight).toString();
+    }
+}
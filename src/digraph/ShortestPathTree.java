@@ -0,0 +1,67 @@
+package digraph;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Result of a single source shortest path search. Holds the distance and the predecessor of every
+ * vertex reached from the origin, so paths can be reconstructed without searching again.
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public interface ShortestPathTree<V, E> {
+
+	/**
+	 *
+	 * @return the vertex the search started at
+	 */
+	V getOrigin();
+
+	/**
+	 *
+	 * @param vertex
+	 * @return true if vertex is reachable from the origin
+	 */
+	boolean hasPathTo(V vertex);
+
+	/**
+	 *
+	 * @param vertex
+	 * @return length of the shortest path from the origin to vertex, Double.POSITIVE_INFINITY if
+	 *         vertex is not reachable
+	 */
+	double distanceTo(V vertex);
+
+	/**
+	 *
+	 * @param vertex
+	 * @return the vertex before vertex on the shortest path, null for the origin and unreachable
+	 *         vertices
+	 */
+	V predecessorOf(V vertex);
+
+	/**
+	 *
+	 * @param vertex
+	 * @return the last edge of the shortest path to vertex, null for the origin and unreachable
+	 *         vertices
+	 */
+	E predecessorEdgeOf(V vertex);
+
+	/**
+	 *
+	 * @param vertex
+	 * @return the vertices of the shortest path from the origin to vertex (both included), an empty
+	 *         list if vertex is not reachable
+	 */
+	List<V> pathTo(V vertex);
+
+	/**
+	 *
+	 * @return the distances of all vertices in the format of IReadOnlyDigraph.dijkstra():
+	 *         unreachable vertices have the distance Double.MAX_VALUE
+	 */
+	HashMap<V, Double> getDistances();
+
+}
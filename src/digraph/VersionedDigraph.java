@@ -0,0 +1,692 @@
+package digraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleBiFunction;
+
+import digraph.GraphSnapshot.EdgeState;
+import digraph.GraphSnapshot.Node;
+
+/**
+ * Directed, weighted Graph with multiversion concurrency control. The state of the Graph is an
+ * immutable GraphSnapshot. Every change creates a new generation that shares all unchanged pages
+ * with the previous one and publishes it with a single volatile write.
+ *
+ * Readers call snapshot() once and traverse the returned generation without locks for as long as
+ * they like; they never see a partial change. Writers are serialized. Old generations are
+ * garbage collected when the last reader drops them.
+ *
+ * The read methods of this class work on the current generation at the time of the call, so two
+ * calls may see different generations. Take a snapshot for consistent multi-step reads.
+ *
+ * Every vertex and edge key gets an id on first use which is kept when it is removed, so the
+ * memory grows with the number of distinct keys ever added.
+ *
+ * The listeners are notified after the new generation is published.
+ *
+ * @author Roman Meier, Alex Melliger, Matthias Keller, Stefan Mettler
+ *
+ * @param <V> The Type of the Vertices
+ * @param <E> The Type of the Edges
+ */
+public class VersionedDigraph<V, E> implements IDigraph<V, E> {
+
+    private static final int[] NONE = new int[0];
+
+    private final ConcurrentHashMap<V, Integer> m_vertexIds;
+    private final ConcurrentHashMap<E, Integer> m_edgeIds;
+    private volatile GraphSnapshot<V, E> m_current;
+
+    /**
+     * Registered listeners, null if there are none. Guarded by the write lock.
+     */
+    private ArrayList<DigraphListener<? super V, ? super E>> m_listeners;
+
+    public VersionedDigraph() {
+        m_vertexIds = new ConcurrentHashMap<>();
+        m_edgeIds = new ConcurrentHashMap<>();
+        m_current = new GraphSnapshot<>(0, m_vertexIds, m_edgeIds, new Object[0][], new Object[0][], 0, 0);
+    }
+
+    private VersionedDigraph(GraphSnapshot<V, E> base, ConcurrentHashMap<V, Integer> vertexIds,
+            ConcurrentHashMap<E, Integer> edgeIds) {
+        m_vertexIds = vertexIds;
+        m_edgeIds = edgeIds;
+        m_current = new GraphSnapshot<>(base.getVersion(), vertexIds, edgeIds, base.m_vertexPages, base.m_edgePages,
+                base.getNumberOfVerts(), base.getNumberOfEdges());
+    }
+
+    /**
+     * The current generation, taken with a single volatile read.
+     * @return immutable state of the Graph
+     */
+    public GraphSnapshot<V, E> snapshot() {
+        return m_current;
+    }
+
+    /**
+     *
+     * @return version of the current generation
+     */
+    public long getVersion() {
+        return m_current.getVersion();
+    }
+
+    /**
+     * The copy shares all pages with this Graph, both copy them on their next changes.
+     * Time complexity: O(number of keys)
+     * @return a new VersionedDigraph with the current generation, without listeners
+     */
+    @Override
+    public synchronized Object clone() {
+        return new VersionedDigraph<>(m_current, new ConcurrentHashMap<>(m_vertexIds),
+                new ConcurrentHashMap<>(m_edgeIds));
+    }
+
+    @Override
+    public synchronized boolean addEdge(E key, double weight, V origin, V destination) {
+        assert (weight >= 0) : "weight must be >= 0";
+        Mutation m = new Mutation();
+        return m.publish(m.addEdge(key, weight, origin, destination));
+    }
+
+    /**
+     * Bulk insertion used by GraphBuilder, publishes a single generation. The adjacency arrays of
+     * every touched vertex are copied once for the whole batch. Edges with an unknown endpoint
+     * are skipped.
+     * @return the number of edges added
+     */
+    synchronized int addAll(Object[] vertices, int nv, Object[] keys, double[] weights, Object[] origins,
+            Object[] destinations, int ne) {
+        Mutation m = new Mutation();
+        for (int i = 0; i < nv; i++) {
+            @SuppressWarnings("unchecked")
+            V v = (V) vertices[i];
+            m.addVertex(v);
+        }
+        int added = m.addEdges(keys, weights, origins, destinations, ne);
+        m.publish(true);
+        return added;
+    }
+
+    @Override
+    public synchronized boolean addVertex(V vertex) {
+        Mutation m = new Mutation();
+        return m.publish(m.addVertex(vertex));
+    }
+
+    @Override
+    public synchronized boolean removeEdge(E edge) {
+        Mutation m = new Mutation();
+        return m.publish(m.removeEdge(edge));
+    }
+
+    @Override
+    public synchronized E removeEdge(double weight, V origin, V destination) {
+        assert (weight >= 0) : "not a valid weight";
+        GraphSnapshot<V, E> s = m_current;
+        Integer d = m_vertexIds.get(destination);
+        if (!s.containsVertex(origin) || d == null)
+            return null;
+        for (int e : s.node(m_vertexIds.get(origin)).m_out) {
+            EdgeState<E> edge = s.edge(e);
+            if (edge.m_destination == d && edge.m_weight == weight)
+                return removeEdge(edge.m_key) ? edge.m_key : null;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized boolean removeVertex(V vertex) {
+        Mutation m = new Mutation();
+        return m.publish(m.removeVertex(vertex));
+    }
+
+    @Override
+    public synchronized void setEdgeWeight(E edge, double weight) {
+        assert (weight >= 0) : "weight must be >=0";
+        assert (containsEdge(edge)) : "Edge must be in Graph";
+        Mutation m = new Mutation();
+        m.publish(weight >= 0 && m.setEdgeWeight(edge, weight));
+    }
+
+    /**
+     * All edges are removed in one generation.
+     */
+    @Override
+    public synchronized boolean removeAllEdges(Collection<? extends E> edges) {
+        Mutation m = new Mutation();
+        boolean all = true;
+        for (E e : edges) {
+            all &= m.removeEdge(e);
+        }
+        m.publish(true);
+        return all;
+    }
+
+    /**
+     * All edges are removed in one generation.
+     */
+    @Override
+    public synchronized boolean removeAllEdges(E[] edges) {
+        return removeAllEdges(Arrays.asList(edges));
+    }
+
+    @Override
+    public synchronized boolean removeAllEdges() {
+        Mutation m = new Mutation();
+        m.removeAllEdges();
+        return m.publish(true);
+    }
+
+    @Override
+    public synchronized boolean clear() {
+        Mutation m = new Mutation();
+        m.clear();
+        m.publish(true);
+        return true;
+    }
+
+    @Override
+    public synchronized Set<E> removeAllEdgesBetweenVertex(V origin, V destination) {
+        assert (containsVertex(origin) && containsVertex(destination)) : "Vertices must be in graph";
+        Set<E> edges = m_current.getEdgesBetween(origin, destination);
+        removeAllEdges(edges);
+        return edges;
+    }
+
+    /**
+     * All vertices are removed in one generation.
+     */
+    @Override
+    public synchronized boolean removeAllVertices(Collection<? extends V> vertices) {
+        Mutation m = new Mutation();
+        boolean all = true;
+        for (V v : vertices) {
+            all &= m.removeVertex(v);
+        }
+        m.publish(true);
+        return all;
+    }
+
+    @Override
+    public synchronized void addDigraphListener(DigraphListener<? super V, ? super E> listener) {
+        if (m_listeners == null)
+            m_listeners = new ArrayList<>();
+        m_listeners.add(listener);
+    }
+
+    @Override
+    public synchronized boolean removeDigraphListener(DigraphListener<? super V, ? super E> listener) {
+        if (m_listeners == null || !m_listeners.remove(listener))
+            return false;
+        if (m_listeners.isEmpty())
+            m_listeners = null;
+        return true;
+    }
+
+    @Override
+    public boolean containsEdge(E edge) {
+        return m_current.containsEdge(edge);
+    }
+
+    @Override
+    public boolean containsEdge(V origin, V destination) {
+        return m_current.containsEdge(origin, destination);
+    }
+
+    @Override
+    public boolean containsVertex(V vertex) {
+        return m_current.containsVertex(vertex);
+    }
+
+    @Override
+    public int indegOf(V vertex) {
+        return m_current.indegOf(vertex);
+    }
+
+    @Override
+    public int outdegOf(V vertex) {
+        return m_current.outdegOf(vertex);
+    }
+
+    /**
+     * @return the unmodifiable vertex set of the current generation
+     */
+    @Override
+    public Set<V> getVertsOfGraph() {
+        return m_current.getVertsOfGraph();
+    }
+
+    /**
+     * @return the unmodifiable edge set of the current generation
+     */
+    @Override
+    public Set<E> getEdgesOfGraph() {
+        return m_current.getEdgesOfGraph();
+    }
+
+    @Override
+    public Set<E> getAllEdgesOfVertex(V vertex) {
+        return m_current.getAllEdgesOfVertex(vertex);
+    }
+
+    @Override
+    public Set<E> getLeavingEdgesOfVertex(V vertex) {
+        return m_current.getLeavingEdgesOfVertex(vertex);
+    }
+
+    @Override
+    public Set<E> getIncomingEdgesOfVertex(V vertex) {
+        return m_current.getIncomingEdgesOfVertex(vertex);
+    }
+
+    @Override
+    public Set<E> getEdgesBetween(V source, V destination) {
+        return m_current.getEdgesBetween(source, destination);
+    }
+
+    @Override
+    public V getEdgeSource(E edge) {
+        return m_current.getEdgeSource(edge);
+    }
+
+    @Override
+    public V getEdgeDestination(E edge) {
+        return m_current.getEdgeDestination(edge);
+    }
+
+    @Override
+    public double getEdgeWeight(E edge) {
+        return m_current.getEdgeWeight(edge);
+    }
+
+    @Override
+    public int getNumberOfVerts() {
+        return m_current.getNumberOfVerts();
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return m_current.getNumberOfEdges();
+    }
+
+    @Override
+    public void forEachOutgoing(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        m_current.forEachOutgoing(vertex, consumer);
+    }
+
+    @Override
+    public void forEachIncoming(V vertex, EdgeConsumer<? super V, ? super E> consumer) {
+        m_current.forEachIncoming(vertex, consumer);
+    }
+
+    /**
+     * Every reset of the cursor moves it to the current generation.
+     */
+    @Override
+    public EdgeCursor<V, E> newEdgeCursor() {
+        return new GraphSnapshot.Cursor<>(this::snapshot);
+    }
+
+    @Override
+    public ShortestPathTree<V, E> shortestPathTree(V origin, DijkstraListener<? super V, ? super E> listener) {
+        return m_current.shortestPathTree(origin, listener);
+    }
+
+    @Override
+    public Path<V, E> shortestPath(V origin, V target) {
+        return m_current.shortestPath(origin, target);
+    }
+
+    @Override
+    public Path<V, E> astar(V origin, V target, ToDoubleBiFunction<? super V, ? super V> heuristic) {
+        return m_current.astar(origin, target, heuristic);
+    }
+
+    @Override
+    public Path<V, E> bidirectionalShortestPath(V origin, V target) {
+        return m_current.bidirectionalShortestPath(origin, target);
+    }
+
+    @Override
+    public DfsResult<V, E> depthFirstSearch() {
+        return m_current.depthFirstSearch();
+    }
+
+    @Override
+    public CompactDigraph<V, E> toCompact() {
+        return m_current.toCompact();
+    }
+
+    @Override
+    public String toString() {
+        return m_current.toString();
+    }
+
+    private static int[] append(int[] a, int x) {
+        int[] b = Arrays.copyOf(a, a.length + 1);
+        b[a.length] = x;
+        return b;
+    }
+
+    /**
+     * @return a without its first occurrence of x
+     */
+    private static int[] without(int[] a, int x) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == x) {
+                int[] b = new int[a.length - 1];
+                System.arraycopy(a, 0, b, 0, i);
+                System.arraycopy(a, i + 1, b, i, b.length - i);
+                return b;
+            }
+        }
+        return a;
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+    // INNER CLASSES
+    // ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Page directory of the next generation. A page is copied on its first change; pages that are
+     * not changed are shared with the previous generation.
+     */
+    private static class Pages {
+        private Object[][] m_dir;
+        private boolean[] m_owned; // true if the page was copied for the next generation
+
+        private Pages(Object[][] dir) {
+            m_dir = dir.clone();
+            m_owned = new boolean[dir.length];
+        }
+
+        private Object get(int id) {
+            final int p = id >>> GraphSnapshot.PAGE_BITS;
+            return (p >= m_dir.length || m_dir[p] == null) ? null : m_dir[p][id & GraphSnapshot.MASK];
+        }
+
+        private void set(int id, Object value) {
+            final int p = id >>> GraphSnapshot.PAGE_BITS;
+            if (p >= m_dir.length) {
+                m_dir = Arrays.copyOf(m_dir, Math.max(p + 1, 2*m_dir.length));
+                m_owned = Arrays.copyOf(m_owned, m_dir.length);
+            }
+            if (!m_owned[p]) {
+                m_dir[p] = (m_dir[p] == null) ? new Object[GraphSnapshot.PAGE] : m_dir[p].clone();
+                m_owned[p] = true;
+            }
+            m_dir[p][id & GraphSnapshot.MASK] = value;
+        }
+    }
+
+    /**
+     * Changes of the next generation. Only used under the write lock.
+     */
+    private class Mutation {
+        private final GraphSnapshot<V, E> m_base = m_current;
+        private Pages m_vertices = new Pages(m_base.m_vertexPages);
+        private Pages m_edges = new Pages(m_base.m_edgePages);
+        private int m_numberOfVerts = m_base.getNumberOfVerts();
+        private int m_numberOfEdges = m_base.getNumberOfEdges();
+        private boolean m_changed;
+        private final ArrayList<Consumer<DigraphListener<? super V, ? super E>>> m_events = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        private Node<V> node(int id) {
+            return (Node<V>) m_vertices.get(id);
+        }
+
+        @SuppressWarnings("unchecked")
+        private EdgeState<E> edge(int id) {
+            return (EdgeState<E>) m_edges.get(id);
+        }
+
+        private void event(Consumer<DigraphListener<? super V, ? super E>> event) {
+            if (m_listeners != null)
+                m_events.add(event);
+        }
+
+        private boolean addVertex(V vertex) {
+            Integer id = m_vertexIds.get(vertex);
+            if (id != null && node(id) != null)
+                return false;
+            if (id == null) {
+                id = m_vertexIds.size();
+                m_vertexIds.put(vertex, id);
+            }
+            m_vertices.set(id, new Node<>(vertex, NONE, NONE));
+            m_numberOfVerts++;
+            m_changed = true;
+            event(l -> l.vertexAdded(vertex));
+            return true;
+        }
+
+        private boolean addEdge(E key, double weight, V origin, V destination) {
+            Integer o = m_vertexIds.get(origin);
+            Integer d = m_vertexIds.get(destination);
+            if (o == null || d == null || node(o) == null || node(d) == null)
+                return false;
+            // an edge with the same key is discarded
+            removeEdge(key);
+            Integer id = m_edgeIds.get(key);
+            if (id == null) {
+                id = m_edgeIds.size();
+                m_edgeIds.put(key, id);
+            }
+            m_edges.set(id, new EdgeState<>(key, o, d, weight));
+            Node<V> from = node(o);
+            m_vertices.set(o, new Node<>(origin, append(from.m_out, id), from.m_in));
+            Node<V> to = node(d);
+            m_vertices.set(d, new Node<>(destination, to.m_out, append(to.m_in, id)));
+            m_numberOfEdges++;
+            m_changed = true;
+            event(l -> l.edgeAdded(key, origin, destination, weight));
+            return true;
+        }
+
+        private boolean removeEdge(E key) {
+            Integer id = m_edgeIds.get(key);
+            EdgeState<E> e = (id == null) ? null : edge(id);
+            if (e == null)
+                return false;
+            removeEdgeEvent(key, id);
+            unlink(id, e);
+            return true;
+        }
+
+        private void removeEdgeEvent(E key, int id) {
+            EdgeState<E> e = edge(id);
+            V origin = node(e.m_origin).m_key;
+            V destination = node(e.m_destination).m_key;
+            event(l -> l.edgeRemoved(key, origin, destination, e.m_weight));
+        }
+
+        private void unlink(int id, EdgeState<E> e) {
+            m_edges.set(id, null);
+            Node<V> from = node(e.m_origin);
+            m_vertices.set(e.m_origin, new Node<>(from.m_key, without(from.m_out, id), from.m_in));
+            Node<V> to = node(e.m_destination);
+            m_vertices.set(e.m_destination, new Node<>(to.m_key, to.m_out, without(to.m_in, id)));
+            m_numberOfEdges--;
+            m_changed = true;
+        }
+
+        private boolean removeVertex(V vertex) {
+            Integer id = m_vertexIds.get(vertex);
+            Node<V> v = (id == null) ? null : node(id);
+            if (v == null)
+                return false;
+            // only the adjacency of the other endpoints is copied, the node of vertex is dropped
+            for (int e : v.m_out) {
+                EdgeState<E> edge = edge(e);
+                m_edges.set(e, null);
+                m_numberOfEdges--;
+                if (edge.m_destination != id) {
+                    Node<V> to = node(edge.m_destination);
+                    m_vertices.set(edge.m_destination, new Node<>(to.m_key, to.m_out, without(to.m_in, e)));
+                }
+            }
+            for (int e : v.m_in) {
+                EdgeState<E> edge = edge(e);
+                // self-loops are already removed
+                if (edge == null)
+                    continue;
+                m_edges.set(e, null);
+                m_numberOfEdges--;
+                Node<V> from = node(edge.m_origin);
+                m_vertices.set(edge.m_origin, new Node<>(from.m_key, without(from.m_out, e), from.m_in));
+            }
+            m_vertices.set(id, null);
+            m_numberOfVerts--;
+            m_changed = true;
+            event(l -> l.vertexRemoved(vertex));
+            return true;
+        }
+
+        private boolean setEdgeWeight(E key, double weight) {
+            Integer id = m_edgeIds.get(key);
+            EdgeState<E> e = (id == null) ? null : edge(id);
+            if (e == null)
+                return false;
+            m_edges.set(id, new EdgeState<>(key, e.m_origin, e.m_destination, weight));
+            m_changed = true;
+            V origin = node(e.m_origin).m_key;
+            V destination = node(e.m_destination).m_key;
+            event(l -> l.edgeWeightChanged(key, origin, destination, e.m_weight, weight));
+            return true;
+        }
+
+        private void removeAllEdges() {
+            if (m_listeners != null) {
+                for (E key : m_base.getEdgesOfGraph()) {
+                    removeEdgeEvent(key, m_edgeIds.get(key));
+                }
+            }
+            for (int v = 0; v < m_base.m_vertexPages.length << GraphSnapshot.PAGE_BITS; v++) {
+                Node<V> node = node(v);
+                if (node != null && (node.m_out.length > 0 || node.m_in.length > 0))
+                    m_vertices.set(v, new Node<>(node.m_key, NONE, NONE));
+            }
+            m_edges = new Pages(new Object[0][]);
+            m_numberOfEdges = 0;
+            m_changed = true;
+        }
+
+        /**
+         * Adds the edges in two passes: first the edge states, counting the new edges of every
+         * vertex, then every touched vertex gets its grown adjacency arrays.
+         */
+        @SuppressWarnings("unchecked")
+        private int addEdges(Object[] keys, double[] weights, Object[] origins, Object[] destinations, int ne) {
+            int[] ids = new int[ne]; // edge id by index, -1 if skipped or replaced within the batch
+            int[] batchIndex = new int[16]; // index of an edge id added by this batch, by edge id
+            int[] outCount = new int[m_vertexIds.size()];
+            int[] inCount = new int[m_vertexIds.size()];
+            int added = 0;
+            V lastOrigin = null, lastDestination = null;
+            Integer o = null, d = null;
+            for (int i = 0; i < ne; i++) {
+                V origin = (V) origins[i];
+                V destination = (V) destinations[i];
+                if (lastOrigin == null || !lastOrigin.equals(origin)) {
+                    lastOrigin = origin;
+                    o = m_vertexIds.get(origin);
+                }
+                if (lastDestination == null || !lastDestination.equals(destination)) {
+                    lastDestination = destination;
+                    d = m_vertexIds.get(destination);
+                }
+                ids[i] = -1;
+                if (o == null || d == null || node(o) == null || node(d) == null)
+                    continue;
+                E key = (E) keys[i];
+                Integer id = m_edgeIds.get(key);
+                if (id == null) {
+                    id = m_edgeIds.size();
+                    m_edgeIds.put(key, id);
+                } else if (edge(id) != null) {
+                    // an edge with the same key is discarded
+                    if (id < batchIndex.length && batchIndex[id] > 0) {
+                        int j = batchIndex[id] - 1;
+                        EdgeState<E> e = edge(id);
+                        outCount[e.m_origin]--;
+                        inCount[e.m_destination]--;
+                        ids[j] = -1;
+                        removeEdgeEvent(key, id);
+                        m_numberOfEdges--;
+                    } else {
+                        removeEdge(key);
+                    }
+                }
+                if (id >= batchIndex.length)
+                    batchIndex = Arrays.copyOf(batchIndex, Math.max(id + 1, 2*batchIndex.length));
+                batchIndex[id] = i + 1;
+                ids[i] = id;
+                m_edges.set(id, new EdgeState<>(key, o, d, weights[i]));
+                outCount[o]++;
+                inCount[d]++;
+                m_numberOfEdges++;
+                added++;
+                final double weight = weights[i];
+                event(l -> l.edgeAdded(key, origin, destination, weight));
+            }
+
+            // grow the arrays of the touched vertices once, the new edges are appended in order
+            int[] outPos = new int[outCount.length];
+            int[] inPos = new int[inCount.length];
+            for (int v = 0; v < outCount.length; v++) {
+                if (outCount[v] == 0 && inCount[v] == 0)
+                    continue;
+                Node<V> node = node(v);
+                outPos[v] = node.m_out.length;
+                inPos[v] = node.m_in.length;
+                m_vertices.set(v, new Node<>(node.m_key, Arrays.copyOf(node.m_out, outPos[v] + outCount[v]),
+                        Arrays.copyOf(node.m_in, inPos[v] + inCount[v])));
+            }
+            for (int i = 0; i < ne; i++) {
+                if (ids[i] < 0)
+                    continue;
+                EdgeState<E> e = edge(ids[i]);
+                node(e.m_origin).m_out[outPos[e.m_origin]++] = ids[i];
+                node(e.m_destination).m_in[inPos[e.m_destination]++] = ids[i];
+            }
+            if (added > 0)
+                m_changed = true;
+            return added;
+        }
+
+        private void clear() {
+            m_vertices = new Pages(new Object[0][]);
+            m_edges = new Pages(new Object[0][]);
+            m_numberOfVerts = 0;
+            m_numberOfEdges = 0;
+            m_changed = true;
+            event(l -> l.cleared());
+        }
+
+        /**
+         * Publishes the next generation if anything changed and notifies the listeners.
+         * @return result
+         */
+        private boolean publish(boolean result) {
+            if (m_changed) {
+                m_current = new GraphSnapshot<>(m_base.getVersion() + 1, m_vertexIds, m_edgeIds, m_vertices.m_dir,
+                        m_edges.m_dir, m_numberOfVerts, m_numberOfEdges);
+                if (m_listeners != null) {
+                    for (Consumer<DigraphListener<? super V, ? super E>> event : m_events) {
+                        for (DigraphListener<? super V, ? super E> l : new ArrayList<>(m_listeners)) {
+                            event.accept(l);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
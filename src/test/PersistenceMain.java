@@ -0,0 +1,179 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import digraph.CompactDigraph;
+import digraph.Digraph;
+import digraph.IReadOnlyDigraph;
+import digraph.KeyCodec;
+import digraph.MappedDigraph;
+import digraph.MutationJournal;
+
+/**
+ * Checks that a Graph survives the round trips through MappedDigraph, serialization, lazyCopy and
+ * MutationJournal unchanged. Throws an IllegalStateException on the first difference.
+ */
+public class PersistenceMain {
+
+	public static void main(String[] args) throws Exception {
+		File dir = Files.createTempDirectory("digraph").toFile();
+		try {
+			mappedRoundTrip(dir);
+			serializationRoundTrip();
+			lazyCopy();
+			journal(new File(dir, "journal"));
+		} finally {
+			delete(dir);
+		}
+		System.out.println("ok");
+	}
+
+	private static Digraph<Integer, String> sample() {
+		Digraph<Integer, String> g = new Digraph<>();
+		for (int v = 0; v < 6; v++) {
+			g.addVertex(v);
+		}
+		g.addEdge("01", 2, 0, 1);
+		g.addEdge("02", 1, 0, 2);
+		g.addEdge("12", 4, 1, 2);
+		g.addEdge("13", 1, 1, 3);
+		g.addEdge("23", 3, 2, 3);
+		g.addEdge("34", 2, 3, 4);
+		g.addEdge("40", 5, 4, 0);
+		g.addEdge("44", 1, 4, 4);
+		// leaves free ids behind
+		g.removeEdge("12");
+		g.removeVertex(5);
+		return g;
+	}
+
+	private static void mappedRoundTrip(File dir) throws IOException {
+		Digraph<Integer, String> g = sample();
+		File file = new File(dir, "graph");
+		MappedDigraph.write(g, file, KeyCodec.INTEGER, KeyCodec.STRING);
+		MappedDigraph<Integer, String> mapped = MappedDigraph.open(file, KeyCodec.INTEGER, KeyCodec.STRING);
+		check(same(g, mapped), "MappedDigraph.open differs from the written Graph");
+		check(g.shortestPath(0, 4).getWeight() == mapped.shortestPath(0, 4).getWeight(),
+				"MappedDigraph finds another shortest path");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void serializationRoundTrip() throws IOException, ClassNotFoundException {
+		Digraph<Integer, String> g = sample();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(g);
+		}
+		Digraph<Integer, String> copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (Digraph<Integer, String>) in.readObject();
+		}
+		check(same(g, copy), "deserialized Graph differs");
+		check(g.idOf(4) == copy.idOf(4), "deserialized Graph has other ids");
+
+		// the copy must stay usable
+		g.addVertex(5);
+		copy.addVertex(5);
+		g.addEdge("50", 1, 5, 0);
+		copy.addEdge("50", 1, 5, 0);
+		check(same(g, copy), "deserialized Graph differs after the same changes");
+	}
+
+	private static void lazyCopy() {
+		Digraph<Integer, String> g = sample();
+		CompactDigraph<Integer, String> before = g.toCompact();
+		Digraph<Integer, String> copy = g.lazyCopy();
+		check(same(g, copy), "lazyCopy differs");
+
+		copy.addEdge("03", 7, 0, 3);
+		copy.setEdgeWeight("01", 9);
+		copy.removeVertex(2);
+		check(same(before, g), "changing the lazyCopy changed the original");
+		CompactDigraph<Integer, String> changed = copy.toCompact();
+
+		g.removeEdge("34");
+		g.addVertex(7);
+		check(same(changed, copy), "changing the original changed the lazyCopy");
+		check(g.containsVertex(2) && !copy.containsVertex(2), "lazyCopy shares the vertices");
+	}
+
+	private static void journal(File dir) throws IOException {
+		// commit, checkpoint and commit again
+		Digraph<Integer, String> g = new Digraph<>();
+		MutationJournal<Integer, String> journal = MutationJournal.open(dir, g, KeyCodec.INTEGER, KeyCodec.STRING);
+		Digraph<Integer, String> s = sample();
+		for (Integer v : s.getVertsOfGraph()) {
+			g.addVertex(v);
+		}
+		for (String e : s.getEdgesOfGraph()) {
+			g.addEdge(e, s.getEdgeWeight(e), s.getEdgeSource(e), s.getEdgeDestination(e));
+		}
+		journal.commit();
+		journal.checkpoint();
+		g.setEdgeWeight("01", 3);
+		g.removeVertex(1);
+		g.addEdge("30", 2, 3, 0);
+		journal.commit();
+		journal.close();
+
+		Digraph<Integer, String> reopened = new Digraph<>();
+		journal = MutationJournal.open(dir, reopened, KeyCodec.INTEGER, KeyCodec.STRING);
+		check(same(g, reopened), "reopened journal differs after commit and checkpoint");
+
+		// the frame of the last commit is torn
+		reopened.addVertex(8);
+		reopened.addEdge("84", 1, 8, 4);
+		journal.commit();
+		CompactDigraph<Integer, String> committed = reopened.toCompact();
+		reopened.removeEdge("84");
+		reopened.setEdgeWeight("02", 6);
+		journal.commit();
+		journal.close();
+		try (RandomAccessFile file = new RandomAccessFile(new File(dir, "journal"), "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		Digraph<Integer, String> recovered = new Digraph<>();
+		journal = MutationJournal.open(dir, recovered, KeyCodec.INTEGER, KeyCodec.STRING);
+		journal.close();
+		check(same(committed, recovered), "reopened journal differs after a torn frame");
+	}
+
+	/**
+	 * @return true if both Graphs contain the same vertices and the same edges with the same
+	 *         endpoints and weights
+	 */
+	private static <V, E> boolean same(IReadOnlyDigraph<V, E> a, IReadOnlyDigraph<V, E> b) {
+		if (!a.getVertsOfGraph().equals(b.getVertsOfGraph()) || !a.getEdgesOfGraph().equals(b.getEdgesOfGraph()))
+			return false;
+		for (E e : a.getEdgesOfGraph()) {
+			if (!a.getEdgeSource(e).equals(b.getEdgeSource(e))
+					|| !a.getEdgeDestination(e).equals(b.getEdgeDestination(e))
+					|| a.getEdgeWeight(e) != b.getEdgeWeight(e))
+				return false;
+		}
+		return true;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException(message);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}